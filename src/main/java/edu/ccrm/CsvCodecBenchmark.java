@@ -0,0 +1,180 @@
+package edu.ccrm;
+
+import edu.ccrm.io.CsvReader;
+import edu.ccrm.io.CsvRow;
+import edu.ccrm.io.CsvWriter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of the CSV codec against the split-based path it replaced
+ * Reads and writes the same student-shaped rows both ways, in memory, so
+ * only parsing and formatting are timed:
+ * <ul>
+ *   <li>read: BufferedReader lines with String.split(",") and trim versus
+ *       CsvReader over the UTF-8 bytes</li>
+ *   <li>write: String.format per row versus CsvWriter</li>
+ * </ul>
+ * The rows contain no quotes or commas, since the old path cannot read
+ * those at all; a round trip of such rows is checked separately.
+ * Usage: java edu.ccrm.CsvCodecBenchmark [rows] [iterations]
+ */
+public class CsvCodecBenchmark {
+
+    private static final int FIELDS = 10;
+    private static final int WARM_UP_ITERATIONS = 3;
+    private static final String[] DEPARTMENTS = {"Computer Science", "Mathematics", "Physics", "Chemistry"};
+
+    private static long sink; // Keeps results alive so the JIT cannot drop the work
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.println("CCRM CSV Codec Benchmark");
+        System.out.println("========================");
+
+        checkRoundTrip();
+
+        Object[][] data = generateRows(rows);
+        byte[] csv = writeWithCsvWriter(data).getBytes(StandardCharsets.UTF_8);
+        System.out.printf("%,d rows, %,d bytes, best of %d runs after %d warm-up runs%n%n",
+            rows, csv.length, iterations, WARM_UP_ITERATIONS);
+
+        long splitRead = best(iterations, () -> sink += readWithSplit(csv));
+        long codecRead = best(iterations, () -> sink += readWithCsvReader(csv));
+        long formatWrite = best(iterations, () -> sink += writeWithFormat(data).length());
+        long codecWrite = best(iterations, () -> sink += writeWithCsvWriter(data).length());
+
+        report("read ", "split + trim", splitRead, "CsvReader", codecRead, rows);
+        report("write", "String.format", formatWrite, "CsvWriter", codecWrite, rows);
+    }
+
+    /**
+     * Quoted fields must survive a write and read unchanged
+     */
+    private static void checkRoundTrip() {
+        List<String> values = Arrays.asList("O'Brien, Jr.", "say \"hi\"", "two\nlines", "  padded  ", "", "plain");
+        StringBuilder text = new StringBuilder();
+        CsvWriter writer = new CsvWriter(text);
+        values.forEach(writer::field);
+        writer.endRow();
+
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8)));
+        CsvRow row = new CsvRow();
+        boolean same = reader.next(row) && row.getFieldCount() == values.size();
+        for (int i = 0; same && i < values.size(); i++) {
+            same = values.get(i).equals(row.getString(i));
+        }
+        if (!same) {
+            throw new IllegalStateException("CSV round trip changed " + values + " into " + text);
+        }
+        System.out.println("Round trip of quoted fields: ok (split would see "
+            + text.toString().split(",").length + " fields in " + values.size() + ")");
+    }
+
+    private static Object[][] generateRows(int rows) {
+        Random random = new Random(42);
+        Object[][] data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[] {
+                "STU" + i, "REG2024" + i, "First" + random.nextInt(1000), "Last" + random.nextInt(5000),
+                "student" + i + "@university.edu", DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                1 + random.nextInt(8), random.nextInt(401) / 100.0,
+                random.nextInt(10) == 0 ? "INACTIVE" : "ACTIVE", LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1500))
+            };
+        }
+        return data;
+    }
+
+    /**
+     * The pre-codec import: one String per line, split, trimmed, semester parsed
+     */
+    private static long readWithSplit(byte[] csv) {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                for (int i = 0; i < FIELDS; i++) {
+                    checksum += fields[i].trim().length();
+                }
+                checksum += Integer.parseInt(fields[6].trim());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return checksum;
+    }
+
+    private static long readWithCsvReader(byte[] csv) {
+        long checksum = 0;
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(csv));
+        CsvRow row = new CsvRow();
+        while (reader.next(row)) {
+            for (int i = 0; i < FIELDS; i++) {
+                checksum += row.getString(i).length();
+            }
+            checksum += row.getInt(6);
+        }
+        return checksum;
+    }
+
+    /**
+     * The pre-codec export: String.format per row
+     */
+    private static String writeWithFormat(Object[][] data) {
+        StringBuilder text = new StringBuilder(data.length * 100);
+        for (Object[] row : data) {
+            text.append(String.format("%s,%s,%s,%s,%s,%s,%d,%.2f,%s,%s",
+                row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8], row[9])).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String writeWithCsvWriter(Object[][] data) {
+        StringBuilder text = new StringBuilder(data.length * 100);
+        CsvWriter writer = new CsvWriter(text);
+        for (Object[] row : data) {
+            writer.field((String) row[0]).field((String) row[1]).field((String) row[2]).field((String) row[3])
+                .field((String) row[4]).field((String) row[5]).field((Integer) row[6])
+                .field((Double) row[7], 2).field((String) row[8]).field((LocalDate) row[9]);
+            writer.endRow();
+        }
+        return text.toString();
+    }
+
+    /**
+     * Run a task repeatedly and keep the fastest run
+     * @return best time in nanoseconds
+     */
+    private static long best(int iterations, Runnable task) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            task.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void report(String operation, String oldName, long oldNanos,
+                               String newName, long newNanos, int rows) {
+        System.out.printf("%s  %-14s %8.1f ms (%,11.0f rows/s)   %-10s %8.1f ms (%,11.0f rows/s)   %.2fx%n",
+            operation, oldName, oldNanos / 1e6, rows / (oldNanos / 1e9),
+            newName, newNanos / 1e6, rows / (newNanos / 1e9), (double) oldNanos / newNanos);
+    }
+}
@@ -0,0 +1,257 @@
+package edu.ccrm;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.util.DuplicateEnrollmentException;
+import edu.ccrm.util.MaxCreditLimitExceededException;
+import edu.ccrm.service.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test for concurrent enrollment
+ * Many threads enroll and unenroll random students in a few oversubscribed
+ * courses at once. Afterwards every course must hold exactly as many seats
+ * as it has students on its roster, never more than its capacity, and the
+ * rosters must match the students' own course lists and the successful
+ * operations counted by the threads. A second run goes through
+ * StudentService.enrollStudentInCourse(), the student-side check-and-enroll,
+ * where no student may end up over the credit limit.
+ * Each run is repeated with 1 to 64 threads sharing the same total number
+ * of operations, so the timings are comparable. Successful and rejected
+ * operations are reported separately, since a rejection is much cheaper.
+ * Usage: java edu.ccrm.EnrollmentStressTest [students] [total operations]
+ */
+public class EnrollmentStressTest {
+
+    private static final int COURSES = 8;
+    private static final int CAPACITY = 400; // Oversubscribed: far fewer seats than students want
+    private static final int SERVICE_COURSES = 12; // Twice what the credit limit allows per student
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final AtomicLong ROUND = new AtomicLong();
+
+    public static void main(String[] args) throws InterruptedException {
+        int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int totalOperations = args.length > 1 ? Integer.parseInt(args[1]) : 640_000;
+
+        System.out.println("CCRM Enrollment Stress Test");
+        System.out.println("===========================");
+        System.out.printf("%d students, %,d operations per run split across the threads, %d cores%n",
+            studentCount, totalOperations, Runtime.getRuntime().availableProcessors());
+
+        System.out.printf("%nEnrollmentEngine: %d courses of %d seats, 1 in 10 operations unenrolls%n",
+            COURSES, CAPACITY);
+        runAll(false, studentCount, totalOperations);
+
+        System.out.printf("%nStudentService.enrollStudentInCourse: %d course codes, at most %d per student%n",
+            SERVICE_COURSES, getMaxCredits() / CreditLedger.DEFAULT_COURSE_CREDITS);
+        runAll(true, studentCount, totalOperations);
+
+        System.out.println("\n✅ No lost or over-booked enrollments");
+    }
+
+    /**
+     * Run one path at every thread count and print a line per run
+     * @param throughService true for enrollStudentInCourse(), false for the engine
+     */
+    private static void runAll(boolean throughService, int studentCount, int totalOperations)
+            throws InterruptedException {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) { // Warm up the JIT on both ends of the range
+            run(throughService, 1, studentCount, totalOperations);
+            run(throughService, THREAD_COUNTS[THREAD_COUNTS.length - 1], studentCount, totalOperations);
+        }
+
+        for (int threads : THREAD_COUNTS) {
+            RunResult result = run(throughService, threads, studentCount, totalOperations);
+            double seconds = result.elapsedNanos / 1_000_000_000.0;
+            System.out.printf("%3d threads: %8.1f ms  %,10d ok (%,11.0f/s)  %,10d rejected (%,11.0f/s)  consistent%n",
+                threads, result.elapsedNanos / 1_000_000.0,
+                result.succeeded, result.succeeded / seconds,
+                result.rejected, result.rejected / seconds);
+        }
+    }
+
+    /**
+     * Outcome of one timed run
+     */
+    private static class RunResult {
+        final long elapsedNanos;
+        final long succeeded;
+        final long rejected;
+
+        RunResult(long elapsedNanos, long succeeded, long rejected) {
+            this.elapsedNanos = elapsedNanos;
+            this.succeeded = succeeded;
+            this.rejected = rejected;
+        }
+    }
+
+    /**
+     * Run one round on fresh services and verify the result
+     * @param throughService true for enrollStudentInCourse(), false for the engine
+     * @param totalOperations operations shared by all threads
+     * @return timing and outcome counts
+     */
+    private static RunResult run(boolean throughService, int threads, int studentCount, int totalOperations)
+            throws InterruptedException {
+        StudentService studentService = new StudentService();
+        CourseService courseService = new CourseService();
+        EnrollmentEngine engine = new EnrollmentEngine(studentService, courseService);
+
+        String prefix = "R" + ROUND.incrementAndGet() + "-"; // Student IDs stay unique across rounds
+        List<Student> students = new ArrayList<>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            students.add(new Student(prefix + i, "REG" + prefix + i, new Name("Stress", "Student" + i),
+                "stress" + i + "@university.edu", LocalDate.of(2000, 1, 1), "Computer Science"));
+        }
+        studentService.addStudents(students);
+
+        List<Course> courses = new ArrayList<>(COURSES);
+        for (int i = 0; i < COURSES; i++) {
+            courses.add(new Course.Builder(CourseCode.of("STR", 100 + i, "A"), "Stress Course " + i)
+                .credits(3)
+                .department("Computer Science")
+                .semester(Semester.FALL)
+                .maxCapacity(CAPACITY)
+                .build());
+        }
+        courseService.addCourses(courses);
+
+        AtomicLong enrolled = new AtomicLong();
+        AtomicLong unenrolled = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int operations = totalOperations / threads + (t < totalOperations % threads ? 1 : 0);
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long localEnrolled = 0;
+                long localUnenrolled = 0;
+                long localRejected = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < operations; i++) {
+                    String studentId = prefix + random.nextInt(studentCount);
+                    if (throughService) {
+                        try {
+                            studentService.enrollStudentInCourse(studentId,
+                                "SVC" + (100 + random.nextInt(SERVICE_COURSES)), CreditLedger.DEFAULT_COURSE_CREDITS);
+                            localEnrolled++;
+                        } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+                            localRejected++;
+                        }
+                        continue;
+                    }
+                    String courseCode = courses.get(random.nextInt(COURSES)).getCourseCode().getFullCode();
+                    if (random.nextInt(10) == 0) {
+                        if (engine.unenroll(studentId, courseCode)) {
+                            localUnenrolled++;
+                        } else {
+                            localRejected++;
+                        }
+                    } else if (engine.enroll(studentId, courseCode) == EnrollmentResult.ENROLLED) {
+                        localEnrolled++;
+                    } else {
+                        localRejected++;
+                    }
+                }
+                enrolled.addAndGet(localEnrolled);
+                unenrolled.addAndGet(localUnenrolled);
+                rejected.addAndGet(localRejected);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        System.gc(); // Leave the previous round's garbage out of this round's time
+        PrintStream console = System.out;
+        if (throughService) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream())); // One line per enrollment otherwise
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } finally {
+            System.setOut(console);
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        if (throughService) {
+            verifyCredits(students, enrolled.get());
+        } else {
+            verify(students, courses, enrolled.get() - unenrolled.get());
+        }
+        return new RunResult(elapsed, enrolled.get() + unenrolled.get(), rejected.get());
+    }
+
+    /**
+     * Check that seats, rosters and student course lists agree
+     * @param expected successful enrollments minus successful unenrollments
+     */
+    private static void verify(List<Student> students, List<Course> courses, long expected) {
+        long rosterTotal = 0;
+        for (Course course : courses) {
+            int seats = CAPACITY - course.getAvailableSpots();
+            int roster = course.getCurrentEnrollment();
+            check(seats == roster, course.getCourseCode() + ": " + seats + " seats taken but " + roster + " on roster");
+            check(roster <= CAPACITY, course.getCourseCode() + " over-booked: " + roster + " > " + CAPACITY);
+            rosterTotal += roster;
+        }
+
+        long studentTotal = 0;
+        for (Student student : students) {
+            for (String courseCode : student.getEnrolledCourses()) {
+                Course course = courses.get(Integer.parseInt(courseCode.substring(3, 6)) - 100);
+                check(course.isStudentEnrolled(student.getId()),
+                    student.getId() + " lists " + courseCode + " but is not on its roster");
+                studentTotal++;
+            }
+        }
+
+        check(rosterTotal == studentTotal,
+            "Rosters hold " + rosterTotal + " enrollments, students list " + studentTotal);
+        check(rosterTotal == expected,
+            "Rosters hold " + rosterTotal + " enrollments, threads completed " + expected);
+    }
+
+    /**
+     * Check that no student went over the credit limit and no enrollment was lost
+     * @param expected successful enrollments
+     */
+    private static void verifyCredits(List<Student> students, long expected) {
+        long studentTotal = 0;
+        for (Student student : students) {
+            check(student.getCurrentCredits() <= getMaxCredits(),
+                student.getId() + " carries " + student.getCurrentCredits() + " credits, over " + getMaxCredits());
+            studentTotal += student.getEnrolledCourses().size();
+        }
+        check(studentTotal == expected,
+            "Students list " + studentTotal + " enrollments, threads completed " + expected);
+    }
+
+    private static int getMaxCredits() {
+        return AppConfig.getInstance().getMaxCoursesPerStudent() * CreditLedger.DEFAULT_COURSE_CREDITS;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Consistency check failed: " + message);
+        }
+    }
+}
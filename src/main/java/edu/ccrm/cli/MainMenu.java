@@ -6,6 +6,7 @@ import edu.ccrm.service.StudentService;
 import edu.ccrm.service.CourseService;
 import edu.ccrm.domain.*;
 import java.util.Scanner;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
@@ -17,10 +18,14 @@ import java.util.List;
  */
 public class MainMenu {
     
+    private static final int IMPORT_BATCH_SIZE = 1000; // Records per batch for streaming imports
+    
     private final Scanner scanner;
     private final AppConfig config;
     private final StudentService studentService;
     private final CourseService courseService;
+    private WriteAheadLog writeAheadLog; // Null if the log could not be opened
+    private AuditEventLog auditEventLog; // Null if the log could not be opened
     private boolean running;
     
     /**
@@ -45,6 +50,8 @@ public class MainMenu {
         System.out.println("Current Configuration:");
         System.out.println(config.getConfigurationSummary());
         
+        recoverState();
+        
         // Main application loop - demonstrates while loop
         while (running) {
             try {
@@ -58,10 +65,81 @@ public class MainMenu {
         }
         
         // Cleanup
+        checkpointState();
         scanner.close();
         System.out.println("Thank you for using CCRM!");
     }
     
+    /**
+     * Load the latest snapshot, replay the write-ahead log on top of it and
+     * attach the log, so every later mutation is durable
+     * The audit event log is attached afterwards, so recovery is not audited again
+     */
+    private void recoverState() {
+        try {
+            SnapshotService snapshotService = new SnapshotService();
+            Path snapshotPath = snapshotService.getDefaultSnapshotPath();
+            if (Files.exists(snapshotPath)) {
+                SnapshotService.Snapshot snapshot = snapshotService.readSnapshot(snapshotPath);
+                courseService.addCourses(snapshot.getCourses());
+                studentService.addStudents(snapshot.getStudents());
+            }
+            
+            writeAheadLog = new WriteAheadLog();
+            WriteAheadLog.ReplayResult replayed = writeAheadLog.replay(studentService, courseService);
+            if (replayed.getApplied() + replayed.getSkipped() > 0) {
+                System.out.println(replayed);
+            }
+            studentService.setMutationListener(writeAheadLog);
+            courseService.setMutationListener(writeAheadLog);
+        } catch (Exception e) {
+            System.err.println("Could not recover saved state: " + e.getMessage());
+            System.out.println("Continuing without a write-ahead log; changes will not survive a crash");
+        }
+        
+        try {
+            auditEventLog = new AuditEventLog();
+            AuditLog.getDefault().setSink(auditEventLog);
+            AuditLog.getDefault().setArchive(auditEventLog);
+        } catch (Exception e) {
+            System.err.println("Could not open audit log: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Close the audit log, write a snapshot and drop the log segments it covers
+     */
+    private void checkpointState() {
+        if (auditEventLog != null) {
+            AuditLog.getDefault().setSink(null);
+            AuditLog.getDefault().setArchive(null);
+            try {
+                auditEventLog.close();
+            } catch (Exception e) {
+                System.err.println("Could not close audit log: " + e.getMessage());
+            }
+        }
+        if (writeAheadLog == null) {
+            return;
+        }
+        try {
+            long checkpoint = writeAheadLog.beginCheckpoint();
+            SnapshotService snapshotService = new SnapshotService();
+            snapshotService.writeSnapshot(snapshotService.getDefaultSnapshotPath(),
+                studentService.getAll(), courseService.getAll());
+            writeAheadLog.completeCheckpoint(checkpoint);
+        } catch (Exception e) {
+            System.err.println("Could not write snapshot: " + e.getMessage());
+            System.out.println("The write-ahead log is kept and will be replayed on next start");
+        } finally {
+            try {
+                writeAheadLog.close();
+            } catch (Exception e) {
+                System.err.println("Could not close write-ahead log: " + e.getMessage());
+            }
+        }
+    }
+    
     /**
      * Display main menu options
      */
@@ -483,7 +561,7 @@ public class MainMenu {
             courseNumber = Integer.parseInt(numberBuilder.toString());
             
             // Create course using Builder pattern
-            CourseCode courseCode = new CourseCode(courseDept, courseNumber, courseSection);
+            CourseCode courseCode = CourseCode.of(courseDept, courseNumber, courseSection);
             Course.Builder builder = new Course.Builder(courseCode, title)
                 .credits(credits)
                 .department(department)
@@ -835,28 +913,22 @@ public class MainMenu {
             System.out.println("   Courses CSV valid: " + (coursesValid ? "✓" : "✗"));
             
             // Demonstrate import if files exist
+            // Records are streamed straight into the services in batches,
+            // so the whole file is never held in memory
             if (studentsValid) {
                 System.out.println("\n3. Importing students...");
-                var students = ioService.importStudents(studentsPath);
-                System.out.println("   Imported " + students.size() + " students successfully");
-                
-                // Show sample student data
-                if (!students.isEmpty()) {
-                    System.out.println("   Sample student: " + students.get(0).getName().getFullName() + 
-                                     " (" + students.get(0).getDepartment() + ")");
-                }
+                var stats = ioService.streamStudents(studentsPath, IMPORT_BATCH_SIZE, 
+                    studentService::addStudents);
+                System.out.println("   Imported " + stats.getRecordsImported() + " students successfully");
+                System.out.println("   Total students in system: " + studentService.getTotalCount());
             }
             
             if (coursesValid) {
                 System.out.println("\n4. Importing courses...");
-                var courses = ioService.importCourses(coursesPath);
-                System.out.println("   Imported " + courses.size() + " courses successfully");
-                
-                // Show sample course data
-                if (!courses.isEmpty()) {
-                    System.out.println("   Sample course: " + courses.get(0).getTitle() + 
-                                     " (" + courses.get(0).getCourseCode().getFullCode() + ")");
-                }
+                var stats = ioService.streamCourses(coursesPath, IMPORT_BATCH_SIZE, 
+                    courseService::addCourses);
+                System.out.println("   Imported " + stats.getRecordsImported() + " courses successfully");
+                System.out.println("   Total courses in system: " + courseService.getTotalCount());
             }
             
             System.out.println("\n✓ Import/Export demonstration completed using NIO.2 APIs");
@@ -904,6 +976,10 @@ public class MainMenu {
             String backupInfo = backupService.getBackupInfo(newBackup);
             System.out.println(backupInfo);
             
+            System.out.println("5. Verifying backup...");
+            backupService.verifyBackup(newBackup);
+            System.out.println();
+            
             System.out.println("✓ Backup operations completed using NIO.2 file visitor pattern");
             
         } catch (Exception e) {
@@ -30,6 +30,10 @@ public class AppConfig {
     private int maxCoursesPerStudent;
     private double minimumGPA;
     private String defaultSemester;
+    private int backupCompressionLevel;
+    private int backupThreads;
+    private String walDurability;
+    private long walFlushIntervalMillis;
     
     /**
      * Private constructor prevents external instantiation
@@ -88,6 +92,10 @@ public class AppConfig {
         maxCoursesPerStudent = 6;
         minimumGPA = 2.0;
         defaultSemester = "FALL";
+        backupCompressionLevel = 6;
+        backupThreads = Runtime.getRuntime().availableProcessors();
+        walDurability = "SYNC";
+        walFlushIntervalMillis = 10;
         
         // Set runtime configuration
         runtimeConfig.put("app.name", "Campus Course & Records Manager");
@@ -130,6 +138,10 @@ public class AppConfig {
         properties.setProperty("max.courses.per.student", String.valueOf(maxCoursesPerStudent));
         properties.setProperty("minimum.gpa", String.valueOf(minimumGPA));
         properties.setProperty("default.semester", defaultSemester);
+        properties.setProperty("backup.compression.level", String.valueOf(backupCompressionLevel));
+        properties.setProperty("backup.threads", String.valueOf(backupThreads));
+        properties.setProperty("wal.durability", walDurability);
+        properties.setProperty("wal.flush.interval.ms", String.valueOf(walFlushIntervalMillis));
     }
     
     // Getters for configuration values
@@ -158,6 +170,55 @@ public class AppConfig {
         this.defaultSemester = defaultSemester; 
     }
     
+    /**
+     * Deflate level of backup archives
+     * @return level between 0 (store) and 9 (smallest)
+     */
+    public int getBackupCompressionLevel() { return backupCompressionLevel; }
+    public void setBackupCompressionLevel(int backupCompressionLevel) {
+        if (backupCompressionLevel < 0 || backupCompressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        this.backupCompressionLevel = backupCompressionLevel;
+    }
+    
+    /**
+     * Number of threads compressing a backup; 1 writes it sequentially
+     * @return thread count, by default the number of cores
+     */
+    public int getBackupThreads() { return backupThreads; }
+    public void setBackupThreads(int backupThreads) {
+        if (backupThreads < 1) {
+            throw new IllegalArgumentException("Backup thread count must be positive");
+        }
+        this.backupThreads = backupThreads;
+    }
+    
+    /**
+     * How long callers wait for a logged mutation to reach the disk
+     * @return SYNC (default), BATCHED or ASYNC
+     */
+    public String getWalDurability() { return walDurability; }
+    public void setWalDurability(String walDurability) {
+        String mode = walDurability != null ? walDurability.trim().toUpperCase() : "";
+        if (!mode.equals("SYNC") && !mode.equals("BATCHED") && !mode.equals("ASYNC")) {
+            throw new IllegalArgumentException("Write-ahead log durability must be SYNC, BATCHED or ASYNC");
+        }
+        this.walDurability = mode;
+    }
+    
+    /**
+     * Interval of the background write-ahead log flush in BATCHED and ASYNC mode
+     * @return interval in milliseconds
+     */
+    public long getWalFlushIntervalMillis() { return walFlushIntervalMillis; }
+    public void setWalFlushIntervalMillis(long walFlushIntervalMillis) {
+        if (walFlushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.walFlushIntervalMillis = walFlushIntervalMillis;
+    }
+    
     /**
      * Get runtime configuration value
      * @param key configuration key
@@ -246,6 +307,10 @@ public class AppConfig {
         summary.append(String.format("Max Courses/Student: %d\n", maxCoursesPerStudent));
         summary.append(String.format("Minimum GPA: %.2f\n", minimumGPA));
         summary.append(String.format("Default Semester: %s\n", defaultSemester));
+        summary.append(String.format("Backup Compression: level %d, %d thread(s)\n",
+            backupCompressionLevel, backupThreads));
+        summary.append(String.format("Write-Ahead Log: %s, flush every %d ms\n",
+            walDurability, walFlushIntervalMillis));
         summary.append("=".repeat(40)).append("\n");
         return summary.toString();
     }
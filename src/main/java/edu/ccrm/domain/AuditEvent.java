@@ -0,0 +1,98 @@
+package edu.ccrm.domain;
+
+/**
+ * Kinds of audit events
+ * Events are stored as an ordinal plus their arguments and only formatted
+ * with the pattern when displayed. Enrollment events name their course in
+ * the first argument, so they can be found under the course as well.
+ * Names, titles and notes are free text: only their first argument may be,
+ * and it is stored with the event instead of in an interning dictionary
+ */
+public enum AuditEvent {
+    STUDENT_CREATED("Student created: %s", 1, false, true),
+    ENROLLED("Enrolled in course: %s", 1, true),
+    GRADE_RECORDED("Grade recorded for %s: %s", 2, true),
+    INFORMATION_UPDATED("Student information updated", 0),
+    DEACTIVATED("Student deactivated", 0),
+    ACTIVATED("Student activated", 0),
+    BULK_ACTIVATED("Bulk activated", 0),
+    BULK_DEACTIVATED("Bulk deactivated", 0),
+    COURSE_CREATED("Course created: %s", 1, false, true),
+    COURSE_UPDATED("Course information updated", 0),
+    COURSE_ACTIVATED("Course activated", 0),
+    COURSE_DEACTIVATED("Course deactivated", 0),
+    INSTRUCTOR_ASSIGNED("Instructor assigned: %s", 1),
+    NOTE("%s", 1, false, true); // Free-form entry from addAuditEntry()
+
+    /**
+     * Largest number of arguments of any event
+     */
+    public static final int MAX_ARGUMENTS = 2;
+
+    private static final AuditEvent[] VALUES = values();
+
+    private final String pattern;
+    private final int arity;
+    private final boolean courseRelated;
+    private final boolean freeText;
+
+    AuditEvent(String pattern, int arity) {
+        this(pattern, arity, false, false);
+    }
+
+    AuditEvent(String pattern, int arity, boolean courseRelated) {
+        this(pattern, arity, courseRelated, false);
+    }
+
+    AuditEvent(String pattern, int arity, boolean courseRelated, boolean freeText) {
+        this.pattern = pattern;
+        this.arity = arity;
+        this.courseRelated = courseRelated;
+        this.freeText = freeText;
+    }
+
+    public int getArity() { return arity; }
+
+    /**
+     * Check whether an argument is free text rather than a code or ID
+     * @param argument argument position
+     * @return true for the first argument of name, title and note events
+     */
+    public boolean isFreeText(int argument) {
+        return freeText && argument == 0;
+    }
+
+    /**
+     * Get the course an event also concerns, e.g. the course of an enrollment
+     * @param arguments event arguments
+     * @return course code, or null if the event concerns only its entity
+     */
+    public String getRelatedEntity(String... arguments) {
+        return courseRelated && arguments.length > 0 ? arguments[0] : null;
+    }
+
+    /**
+     * Format the event's message
+     * @param arguments event arguments; missing ones are shown empty
+     * @return message without timestamp
+     */
+    public String format(String... arguments) {
+        if (arity == 0) {
+            return pattern;
+        }
+        Object[] values = new Object[arity];
+        for (int i = 0; i < arity; i++) {
+            values[i] = i < arguments.length && arguments[i] != null ? arguments[i] : "";
+        }
+        return String.format(pattern, values);
+    }
+
+    /**
+     * Get an event by ordinal without copying values()
+     * @param ordinal event ordinal
+     * @return event
+     */
+    public static AuditEvent fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,463 @@
+package edu.ccrm.domain;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared, bounded audit event store
+ * Events of all entities go into one ring buffer of primitive arrays:
+ * timestamp, event ordinal, interned argument ids and the sequence number
+ * of the same entity's previous event, about 29 bytes per event. Only
+ * codes and IDs are interned; free text such as names and notes is held in
+ * a per-slot reference that is overwritten with the slot. Each
+ * entity holds a small Trail that chains its events newest first. When the
+ * ring is full the oldest events are overwritten, and each trail shows at
+ * most its retention limit of events, so memory stays bounded however long
+ * the application runs. Entries are formatted only when read.
+ * Eviction is global: the ring overwrites the oldest events whatever entity
+ * they belong to, so heavy activity elsewhere can push a quiet entity's
+ * events out before its retention limit is reached. A trail missing events
+ * that way reads its shown events from the archive instead, if one is set,
+ * e.g. the persistent log that is also the sink.
+ * Every event gets the next sequence number and a timestamp that never
+ * goes backwards, and is passed in that order to the sink, if one is set,
+ * e.g. a persistent log that keeps the full history.
+ * Thread-safe: appends and reads synchronize on the log and are short.
+ */
+public final class AuditLog {
+
+    /**
+     * Default number of events kept across all entities
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /**
+     * Default number of events shown per entity
+     */
+    public static final int DEFAULT_RETENTION = 256;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int SEGMENT_BITS = 14; // Segments are allocated as the ring fills
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int NO_ARGUMENT = -1;
+    private static final int TEXT_ARGUMENT = -2; // Value is in texts, not the dictionary
+    private static final long NO_EVENT = -1;
+
+    private static final AuditLog DEFAULT = new AuditLog(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final long[][] times;
+    private final long[][] previous;
+    private final byte[][] types;
+    private final int[][] arguments; // MAX_ARGUMENTS ids per event
+    private final String[][] texts; // Free-text argument per event, if any
+    private long nextSequence;
+    private long lastTime;
+    private volatile Sink sink;
+    private volatile Archive archive;
+
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private String[] symbols = new String[256];
+
+    /**
+     * Constructor
+     * @param capacity events kept across all entities; rounded up to a power of two
+     */
+    public AuditLog(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Audit log capacity must be between 1 and 2^30");
+        }
+        this.capacity = Math.max(SEGMENT_SIZE, Integer.highestOneBit(capacity - 1) << 1);
+        int segments = this.capacity >> SEGMENT_BITS;
+        this.times = new long[segments][];
+        this.previous = new long[segments][];
+        this.types = new byte[segments][];
+        this.arguments = new int[segments][];
+        this.texts = new String[segments][];
+    }
+
+    /**
+     * Get the log shared by all domain objects
+     * @return default audit log
+     */
+    public static AuditLog getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Create the trail of a new entity
+     * @param entityId ID the entity's events are recorded under
+     * @return empty trail with the default retention limit
+     */
+    public Trail newTrail(String entityId) {
+        return new Trail(entityId);
+    }
+
+    /**
+     * Record an event of an entity without a trail, e.g. a course
+     * The event is numbered and passed to the sink but not kept in memory
+     * @param entityId entity the event concerns
+     * @param event kind of event
+     * @param values event arguments
+     */
+    public synchronized void record(String entityId, AuditEvent event, String... values) {
+        long sequence = nextSequence++;
+        publish(sequence, nextTime(), entityId, event, values);
+    }
+
+    /**
+     * Receive every event in sequence order
+     * @param sink receiver, or null for none
+     */
+    public void setSink(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Read trails from an archive once the ring has overwritten their events
+     * @param archive full event history, or null to show only what the ring holds
+     */
+    public void setArchive(Archive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Get the number of events kept across all entities
+     * @return capacity in events
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of events appended since the log was created
+     * @return total events, including overwritten ones
+     */
+    public synchronized long getTotalEvents() {
+        return nextSequence;
+    }
+
+    private synchronized long append(Trail trail, AuditEvent event, String[] values) {
+        long sequence = nextSequence++;
+        long time = nextTime();
+        int slot = (int) (sequence & (capacity - 1));
+        int segment = slot >> SEGMENT_BITS;
+        int offset = slot & (SEGMENT_SIZE - 1);
+        if (times[segment] == null) {
+            times[segment] = new long[SEGMENT_SIZE];
+            previous[segment] = new long[SEGMENT_SIZE];
+            types[segment] = new byte[SEGMENT_SIZE];
+            arguments[segment] = new int[SEGMENT_SIZE * AuditEvent.MAX_ARGUMENTS];
+            texts[segment] = new String[SEGMENT_SIZE];
+        }
+        times[segment][offset] = time;
+        previous[segment][offset] = trail.lastSequence;
+        types[segment][offset] = (byte) event.ordinal();
+        texts[segment][offset] = null; // Release the overwritten event's text
+        for (int i = 0; i < AuditEvent.MAX_ARGUMENTS; i++) {
+            int id = NO_ARGUMENT;
+            if (i < event.getArity() && i < values.length && values[i] != null) {
+                if (event.isFreeText(i)) {
+                    texts[segment][offset] = values[i];
+                    id = TEXT_ARGUMENT;
+                } else {
+                    id = intern(values[i]);
+                }
+            }
+            arguments[segment][offset * AuditEvent.MAX_ARGUMENTS + i] = id;
+        }
+        trail.lastSequence = sequence;
+        trail.lastTime = time;
+        trail.count++;
+        publish(sequence, time, trail.entityId, event, values);
+        return sequence;
+    }
+
+    private long nextTime() {
+        lastTime = Math.max(lastTime, System.currentTimeMillis()); // Keep time order equal to sequence order
+        return lastTime;
+    }
+
+    private void publish(long sequence, long time, String entityId, AuditEvent event, String[] values) {
+        Sink receiver = sink;
+        if (receiver != null) {
+            receiver.eventRecorded(sequence, time, entityId, event, values);
+        }
+    }
+
+    /**
+     * Get the dictionary id of a code or ID; the vocabulary is closed, so the
+     * dictionary stays small however many events are recorded
+     */
+    private int intern(String value) {
+        Integer id = symbolIds.get(value);
+        if (id == null) {
+            id = symbolIds.size();
+            if (id == symbols.length) {
+                symbols = Arrays.copyOf(symbols, id * 2);
+            }
+            symbols[id] = value;
+            symbolIds.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Count a trail's live events within its retention limit
+     */
+    private synchronized int count(Trail trail) {
+        long oldestLive = nextSequence - capacity;
+        int size = 0;
+        for (long sequence = trail.lastSequence; sequence != NO_EVENT && sequence >= oldestLive
+                && size < trail.retention; sequence = previous[segment(sequence)][offset(sequence)]) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Copy one page of a trail's live events, oldest first
+     */
+    private synchronized Page read(Trail trail, int offset, int limit) {
+        long oldestLive = nextSequence - capacity;
+        long[] chain = new long[count(trail)];
+        int size = 0;
+        for (long sequence = trail.lastSequence; sequence != NO_EVENT && sequence >= oldestLive
+                && size < chain.length; sequence = previous[segment(sequence)][offset(sequence)]) {
+            chain[size++] = sequence;
+        }
+
+        int from = Math.min(offset, size);
+        int count = Math.min(limit, size - from);
+        Page page = new Page(count);
+        for (int i = 0; i < count; i++) {
+            long sequence = chain[size - 1 - from - i]; // The chain is newest first
+            int segment = segment(sequence);
+            int slot = offset(sequence);
+            page.times[i] = times[segment][slot];
+            page.types[i] = types[segment][slot];
+            for (int a = 0; a < AuditEvent.MAX_ARGUMENTS; a++) {
+                int id = arguments[segment][slot * AuditEvent.MAX_ARGUMENTS + a];
+                page.arguments[i * AuditEvent.MAX_ARGUMENTS + a] =
+                    id == NO_ARGUMENT ? null : id == TEXT_ARGUMENT ? texts[segment][slot] : symbols[id];
+            }
+        }
+        return page;
+    }
+
+    private int segment(long sequence) {
+        return (int) (sequence & (capacity - 1)) >> SEGMENT_BITS;
+    }
+
+    private int offset(long sequence) {
+        return (int) sequence & (SEGMENT_SIZE - 1);
+    }
+
+    /**
+     * Format an entry as "[yyyy-MM-dd HH:mm:ss] message"
+     * @param time event time in milliseconds
+     * @param event kind of event
+     * @param values event arguments
+     * @return formatted entry
+     */
+    public static String format(long time, AuditEvent event, String... values) {
+        return "[" + TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault())) + "] "
+            + event.format(values);
+    }
+
+    /**
+     * Audit events of one entity
+     * A handle into the shared log, holding only the position of the
+     * entity's newest event; its state is guarded by the log
+     */
+    public final class Trail {
+        private final String entityId;
+        private long lastSequence = NO_EVENT;
+        private volatile long lastTime; // Written under the log's lock, read without it
+        private long count;
+        private int retention = DEFAULT_RETENTION;
+
+        private Trail(String entityId) {
+            this.entityId = entityId;
+        }
+
+        /**
+         * Record an event now
+         * @param event kind of event
+         * @param values event arguments, interned in the shared log
+         */
+        public void append(AuditEvent event, String... values) {
+            AuditLog.this.append(this, event, values);
+        }
+
+        /**
+         * Get the number of events shown by this trail
+         * @return events within the retention limit that are still in the log,
+         *         or in the archive if the log overwrote some of them
+         */
+        public int size() {
+            List<String> archived = archivedEntries();
+            return archived != null ? archived.size() : count(this);
+        }
+
+        /**
+         * Get all shown events, oldest first
+         * @return unmodifiable list that formats entries when they are accessed
+         */
+        public List<String> entries() {
+            return entries(0, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Get a page of shown events, oldest first
+         * @param offset index of the first event
+         * @param limit maximum number of events
+         * @return unmodifiable list that formats entries when they are accessed
+         */
+        public List<String> entries(int offset, int limit) {
+            if (offset < 0 || limit < 0) {
+                throw new IllegalArgumentException("Offset and limit must not be negative");
+            }
+            List<String> archived = archivedEntries();
+            if (archived != null) {
+                int from = Math.min(offset, archived.size());
+                int to = (int) Math.min(archived.size(), (long) from + limit);
+                return Collections.unmodifiableList(archived.subList(from, to));
+            }
+            Page page = read(this, offset, limit);
+            return page.size() == 0 ? Collections.emptyList() : page;
+        }
+
+        /**
+         * Read the shown events from the archive if the ring overwrote some of them
+         * The archive is read without the log's lock, so appends are not held up
+         * @return formatted events oldest first, or null to read the ring
+         */
+        private List<String> archivedEntries() {
+            Archive source = archive;
+            if (source == null) {
+                return null;
+            }
+            int shown;
+            synchronized (AuditLog.this) {
+                shown = (int) Math.min(count, retention);
+                if (count(this) == shown) {
+                    return null; // Nothing evicted
+                }
+            }
+            try {
+                return source.history(entityId, shown);
+            } catch (IOException e) {
+                return null; // Show what the ring still holds
+            }
+        }
+
+        /**
+         * Get the number of events ever recorded, including ones no longer shown
+         * @return total events
+         */
+        public long getEventCount() {
+            synchronized (AuditLog.this) {
+                return count;
+            }
+        }
+
+        /**
+         * Get the time of the newest event
+         * @return timestamp in milliseconds, or 0 if no event was recorded
+         */
+        public long getLastEventTime() {
+            return lastTime;
+        }
+
+        /**
+         * Get the number of newest events shown
+         * @return retention limit
+         */
+        public int getRetention() {
+            synchronized (AuditLog.this) {
+                return retention;
+            }
+        }
+
+        /**
+         * Limit the number of newest events shown
+         * Older events are no longer shown and are reclaimed as the log wraps
+         * @param retention retention limit, at least 1
+         */
+        public void setRetention(int retention) {
+            if (retention < 1) {
+                throw new IllegalArgumentException("Audit retention must be positive");
+            }
+            synchronized (AuditLog.this) {
+                this.retention = retention;
+            }
+        }
+    }
+
+    /**
+     * Receiver of all audit events
+     * Called in sequence order while the log's lock is held, so it must be quick
+     */
+    public interface Sink {
+        /**
+         * An event was recorded
+         * @param sequence sequence number, one higher than the previous event's
+         * @param time event time in milliseconds, never lower than the previous event's
+         * @param entityId entity the event concerns
+         * @param event kind of event
+         * @param arguments event arguments
+         */
+        void eventRecorded(long sequence, long time, String entityId, AuditEvent event, String[] arguments);
+    }
+
+    /**
+     * Full history of all entities, e.g. a persistent log
+     * Read without the log's lock
+     */
+    public interface Archive {
+        /**
+         * Get the newest events of an entity
+         * @param entityId entity the events concern
+         * @param limit maximum number of events
+         * @return entries formatted like the trail's, oldest first
+         * @throws IOException if the archive cannot be read
+         */
+        List<String> history(String entityId, int limit) throws IOException;
+    }
+
+    /**
+     * Copied events of one read, formatted on access
+     */
+    private static final class Page extends AbstractList<String> {
+        private final long[] times;
+        private final byte[] types;
+        private final String[] arguments;
+
+        Page(int count) {
+            this.times = new long[count];
+            this.types = new byte[count];
+            this.arguments = new String[count * AuditEvent.MAX_ARGUMENTS];
+        }
+
+        @Override
+        public String get(int index) {
+            AuditEvent event = AuditEvent.fromOrdinal(types[index]); // Bounds-checked by the array
+            int base = index * AuditEvent.MAX_ARGUMENTS;
+            return format(times[index], event, Arrays.copyOfRange(arguments, base, base + AuditEvent.MAX_ARGUMENTS));
+        }
+
+        @Override
+        public int size() {
+            return times.length;
+        }
+    }
+}
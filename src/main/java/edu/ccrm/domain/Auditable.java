@@ -20,20 +20,60 @@ public interface Auditable {
      */
     void addAuditEntry(String entry);
     
+    /**
+     * Add a typed audit event
+     * Default implementation formats it and adds it as an entry; implementations
+     * backed by an AuditLog store it compactly and format it when read
+     * @param event kind of event
+     * @param arguments event arguments
+     */
+    default void addAuditEvent(AuditEvent event, String... arguments) {
+        addAuditEntry(event.format(arguments));
+    }
+    
+    /**
+     * Get a page of the audit trail, oldest entry first
+     * @param offset index of the first entry
+     * @param limit maximum number of entries
+     * @return list of audit entries
+     */
+    default List<String> getAuditTrail(int offset, int limit) {
+        List<String> trail = getAuditTrail();
+        int from = Math.min(Math.max(offset, 0), trail.size());
+        return trail.subList(from, from + Math.min(Math.max(limit, 0), trail.size() - from));
+    }
+    
+    /**
+     * Get the number of audit entries
+     * @return audit trail length
+     */
+    default int getAuditEntryCount() {
+        return getAuditTrail().size();
+    }
+    
     /**
      * Get creation timestamp
      * @return creation time in milliseconds
      */
     long getCreationTime();
     
+    /**
+     * Get the time of the newest audit entry
+     * Default implementation only knows whether there is one; implementations
+     * backed by an AuditLog return the recorded time
+     * @return timestamp in milliseconds, or 0 if there is no entry
+     */
+    default long getLastAuditTime() {
+        return getAuditEntryCount() == 0 ? 0 : System.currentTimeMillis();
+    }
+    
     /**
      * Default method that might conflict with Persistable
      * Demonstrates diamond problem scenario
      * @return last modified timestamp
      */
     default long getLastModified() {
-        List<String> trail = getAuditTrail();
-        return trail.isEmpty() ? getCreationTime() : System.currentTimeMillis();
+        return Math.max(getCreationTime(), getLastAuditTime());
     }
     
     /**
@@ -49,8 +89,7 @@ public interface Auditable {
      * @return formatted audit summary
      */
     default String getAuditSummary() {
-        List<String> trail = getAuditTrail();
         return String.format("Audit Trail: %d entries, Last Modified: %d", 
-            trail.size(), getLastModified());
+            getAuditEntryCount(), getLastModified());
     }
 }
\ No newline at end of file
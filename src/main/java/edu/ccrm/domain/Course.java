@@ -1,25 +1,38 @@
 package edu.ccrm.domain;
 
+import edu.ccrm.io.CsvWriter;
+
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Course class representing an academic course
  * Demonstrates Builder pattern, composition, and encapsulation
+ * Thread-safe: seats are claimed with a lock-free CAS counter and the roster
+ * of enrolled student keys is guarded by its own lock, so a full course never
+ * accepts another student
  */
-public class Course {
+public class Course implements Persistable {
     private final CourseCode courseCode;
     private String title;
     private int credits;
-    private String instructorId;
+    private volatile String instructorId;
     private Semester semester;
     private String department;
     private String description;
     private final Set<String> prerequisites;
-    private final Set<String> enrolledStudents;
-    private int maxCapacity;
-    private boolean active;
+    private final SortedIntSet enrolledStudents; // Keys from studentKeys, guarded by itself
+    private StudentKeys studentKeys; // Own table until a service shares its table; guarded by enrolledStudents
+    private final AtomicInteger seatsTaken; // Reserved or occupied seats, never above maxCapacity
+    private volatile int maxCapacity;
+    private volatile boolean active;
     private LocalDate creationDate;
+    private volatile int unsaved = 1; // 1 while there are changes not yet exported
+    
+    private static final AtomicIntegerFieldUpdater<Course> UNSAVED = 
+        AtomicIntegerFieldUpdater.newUpdater(Course.class, "unsaved");
     
     /**
      * Private constructor for Builder pattern
@@ -30,13 +43,15 @@ public class Course {
         this.credits = builder.credits;
         this.instructorId = builder.instructorId;
         this.semester = builder.semester;
-        this.department = builder.department;
+        this.department = SymbolTable.intern(builder.department);
         this.description = builder.description;
         this.prerequisites = new LinkedHashSet<>(builder.prerequisites);
-        this.enrolledStudents = new LinkedHashSet<>();
+        this.enrolledStudents = new SortedIntSet();
+        this.studentKeys = new StudentKeys();
+        this.seatsTaken = new AtomicInteger();
         this.maxCapacity = builder.maxCapacity;
         this.active = true;
-        this.creationDate = LocalDate.now();
+        this.creationDate = builder.creationDate != null ? builder.creationDate : LocalDate.now();
     }
     
     // Getters and setters
@@ -46,40 +61,54 @@ public class Course {
     public void setTitle(String title) { 
         assert title != null && !title.trim().isEmpty() : "Title cannot be empty";
         this.title = title; 
+        markModified();
     }
     
     public int getCredits() { return credits; }
     public void setCredits(int credits) { 
         assert credits > 0 && credits <= 6 : "Credits must be between 1 and 6";
         this.credits = credits; 
+        markModified();
     }
     
     public String getInstructorId() { return instructorId; }
-    public void setInstructorId(String instructorId) { this.instructorId = instructorId; }
+    public void setInstructorId(String instructorId) { 
+        this.instructorId = instructorId; 
+        markModified();
+    }
     
     public Semester getSemester() { return semester; }
     public void setSemester(Semester semester) { 
         assert semester != null : "Semester cannot be null";
         this.semester = semester; 
+        markModified();
     }
     
     public String getDepartment() { return department; }
     public void setDepartment(String department) { 
         assert department != null && !department.trim().isEmpty() : "Department cannot be empty";
-        this.department = department; 
+        this.department = SymbolTable.intern(department);
+        markModified();
     }
     
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
+    public void setDescription(String description) { 
+        this.description = description; 
+        markModified();
+    }
     
     public int getMaxCapacity() { return maxCapacity; }
     public void setMaxCapacity(int maxCapacity) { 
         assert maxCapacity > 0 : "Max capacity must be positive";
         this.maxCapacity = maxCapacity; 
+        markModified();
     }
     
     public boolean isActive() { return active; }
-    public void setActive(boolean active) { this.active = active; }
+    public void setActive(boolean active) { 
+        this.active = active; 
+        markModified();
+    }
     
     public LocalDate getCreationDate() { return creationDate; }
     
@@ -92,9 +121,36 @@ public class Course {
     
     /**
      * Get defensive copy of enrolled students
+     * The roster is ordered by student key, i.e. by the order in which the
+     * service's rosters first took the students, not by enrollment order in
+     * this course, so listings are stable however enrollments interleave
+     * @return unmodifiable snapshot of student IDs
      */
     public Set<String> getEnrolledStudents() {
-        return Collections.unmodifiableSet(enrolledStudents);
+        synchronized (enrolledStudents) {
+            return studentKeys.asIdSet(enrolledStudents.toArray());
+        }
+    }
+    
+    /**
+     * Key the roster with a table shared by all courses of a service
+     * Called when a service registers the course; a roster restored before
+     * that is re-keyed, so the course's own table can be dropped
+     * @param keys the service's student key table
+     */
+    public void useStudentKeys(StudentKeys keys) {
+        assert keys != null : "Key table cannot be null";
+        synchronized (enrolledStudents) {
+            if (keys == studentKeys) {
+                return;
+            }
+            int[] previous = enrolledStudents.toArray();
+            enrolledStudents.clear();
+            for (int key : previous) {
+                enrolledStudents.add(keys.keyOf(studentKeys.idOf(key)));
+            }
+            studentKeys = keys;
+        }
     }
     
     /**
@@ -103,7 +159,11 @@ public class Course {
     public boolean addPrerequisite(String prerequisiteCourseCode) {
         assert prerequisiteCourseCode != null && !prerequisiteCourseCode.trim().isEmpty() : 
             "Prerequisite course code required";
-        return prerequisites.add(prerequisiteCourseCode.trim().toUpperCase());
+        boolean added = prerequisites.add(SymbolTable.internCode(prerequisiteCourseCode));
+        if (added) {
+            markModified();
+        }
+        return added;
     }
     
     /**
@@ -111,7 +171,11 @@ public class Course {
      */
     public boolean removePrerequisite(String prerequisiteCourseCode) {
         if (prerequisiteCourseCode == null) return false;
-        return prerequisites.remove(prerequisiteCourseCode.trim().toUpperCase());
+        boolean removed = prerequisites.remove(SymbolTable.normalizeCode(prerequisiteCourseCode));
+        if (removed) {
+            markModified();
+        }
+        return removed;
     }
     
     /**
@@ -120,11 +184,98 @@ public class Course {
     public boolean enrollStudent(String studentId) {
         assert studentId != null && !studentId.trim().isEmpty() : "Student ID required";
         
-        if (enrolledStudents.size() >= maxCapacity) {
+        if (isStudentEnrolled(studentId)) {
+            return false;
+        }
+        if (!tryReserveSeat()) {
             throw new IllegalStateException("Course capacity exceeded");
         }
         
-        return enrolledStudents.add(studentId);
+        return addReservedStudent(studentId);
+    }
+    
+    /**
+     * Claim one seat with a compare-and-set loop, without locking
+     * @return true if a seat was reserved, false if the course is full
+     */
+    public boolean tryReserveSeat() {
+        while (true) {
+            int taken = seatsTaken.get();
+            if (taken >= maxCapacity) {
+                return false;
+            }
+            if (seatsTaken.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Claim up to the requested number of seats in one compare-and-set
+     * @param wanted number of seats wanted
+     * @return number of seats actually reserved (0 if the course is full)
+     */
+    public int reserveSeats(int wanted) {
+        while (true) {
+            int taken = seatsTaken.get();
+            int granted = Math.min(wanted, maxCapacity - taken);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (seatsTaken.compareAndSet(taken, taken + granted)) {
+                return granted;
+            }
+        }
+    }
+    
+    /**
+     * Give back a seat reserved with tryReserveSeat() that was not used
+     */
+    public void releaseSeat() {
+        seatsTaken.decrementAndGet();
+    }
+    
+    /**
+     * Give back several unused reserved seats
+     * @param count number of seats to release
+     */
+    public void releaseSeats(int count) {
+        if (count > 0) {
+            seatsTaken.addAndGet(-count);
+        }
+    }
+    
+    /**
+     * Add a student into a previously reserved seat
+     * The seat is released again if the student was already enrolled
+     * @param studentId student taking the seat
+     * @return true if the student was added
+     */
+    public boolean addReservedStudent(String studentId) {
+        boolean added = addStudentKey(studentId);
+        if (added) {
+            markModified();
+        } else {
+            releaseSeat();
+        }
+        return added;
+    }
+    
+    /**
+     * Restore an enrolled student from persisted state
+     * Takes a seat without the capacity check, since the persisted roster was valid when saved
+     * @param studentId enrolled student
+     */
+    public void restoreStudent(String studentId) {
+        if (addStudentKey(studentId)) {
+            seatsTaken.incrementAndGet();
+        }
+    }
+    
+    private boolean addStudentKey(String studentId) {
+        synchronized (enrolledStudents) {
+            return enrolledStudents.add(studentKeys.keyOf(studentId));
+        }
     }
     
     /**
@@ -132,35 +283,51 @@ public class Course {
      */
     public boolean unenrollStudent(String studentId) {
         if (studentId == null) return false;
-        return enrolledStudents.remove(studentId);
+        boolean removed;
+        synchronized (enrolledStudents) {
+            int key = studentKeys.find(studentId);
+            removed = key >= 0 && enrolledStudents.remove(key);
+        }
+        if (removed) {
+            releaseSeat();
+            markModified();
+        }
+        return removed;
     }
     
     /**
      * Check if student is enrolled
      */
     public boolean isStudentEnrolled(String studentId) {
-        return studentId != null && enrolledStudents.contains(studentId);
+        synchronized (enrolledStudents) {
+            int key = studentKeys.find(studentId);
+            return key >= 0 && enrolledStudents.contains(key);
+        }
     }
     
     /**
-     * Get current enrollment count
+     * Get current enrollment count (students on the roster)
      */
     public int getCurrentEnrollment() {
-        return enrolledStudents.size();
+        synchronized (enrolledStudents) {
+            return enrolledStudents.size();
+        }
     }
     
     /**
      * Check if course is full
+     * Counts seats reserved by in-flight enrollments, like admission does
      */
     public boolean isFull() {
-        return getCurrentEnrollment() >= maxCapacity;
+        return seatsTaken.get() >= maxCapacity;
     }
     
     /**
      * Get available spots
+     * Seats reserved by in-flight enrollments are not available
      */
     public int getAvailableSpots() {
-        return Math.max(0, maxCapacity - getCurrentEnrollment());
+        return Math.max(0, maxCapacity - seatsTaken.get());
     }
     
     /**
@@ -170,6 +337,70 @@ public class Course {
         return !prerequisites.isEmpty();
     }
     
+    // Persistable interface implementation
+    @Override
+    public String getId() {
+        return courseCode.getFullCode();
+    }
+    
+    @Override
+    public boolean isValid() {
+        return courseCode != null && title != null && !title.trim().isEmpty() &&
+               credits > 0 && semester != null &&
+               department != null && !department.trim().isEmpty();
+    }
+    
+    @Override
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder(128);
+        new CsvWriter(csv)
+            .field(getId())
+            .field(title)
+            .field(credits)
+            .field(department)
+            .field(semester.name())
+            .field(instructorId)
+            .field(maxCapacity)
+            .field(getCurrentEnrollment())
+            .field(active ? "ACTIVE" : "INACTIVE");
+        return csv.toString();
+    }
+    
+    /**
+     * Check for changes not yet exported
+     * @return true if changed since the last export and valid
+     */
+    @Override
+    public boolean needsSaving() {
+        return unsaved == 1 && isValid();
+    }
+    
+    /**
+     * Check for changes not yet exported, whether or not the course is valid
+     * @return true if changed since the last export
+     */
+    public boolean hasUnsavedChanges() {
+        return unsaved == 1;
+    }
+    
+    /**
+     * Flag the course as changed since the last export
+     */
+    @Override
+    public void markModified() {
+        unsaved = 1;
+    }
+    
+    /**
+     * Atomically clear the unsaved-changes flag
+     * Call before reading the state to export
+     * @return true if there were unsaved changes
+     */
+    @Override
+    public boolean markSaved() {
+        return UNSAVED.getAndSet(this, 0) == 1;
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -204,6 +435,7 @@ public class Course {
         private String description = "";
         private Set<String> prerequisites = new LinkedHashSet<>();
         private int maxCapacity = 30; // Default capacity
+        private LocalDate creationDate; // Today unless restored
         
         public Builder(CourseCode courseCode, String title) {
             assert courseCode != null : "Course code is required";
@@ -247,9 +479,14 @@ public class Course {
             return this;
         }
         
+        public Builder creationDate(LocalDate creationDate) {
+            this.creationDate = creationDate;
+            return this;
+        }
+        
         public Builder prerequisite(String prerequisiteCourseCode) {
             if (prerequisiteCourseCode != null && !prerequisiteCourseCode.trim().isEmpty()) {
-                this.prerequisites.add(prerequisiteCourseCode.trim().toUpperCase());
+                this.prerequisites.add(SymbolTable.internCode(prerequisiteCourseCode));
             }
             return this;
         }
@@ -258,7 +495,7 @@ public class Course {
             if (prerequisites != null) {
                 prerequisites.stream()
                     .filter(prereq -> prereq != null && !prereq.trim().isEmpty())
-                    .forEach(prereq -> this.prerequisites.add(prereq.trim().toUpperCase()));
+                    .forEach(prereq -> this.prerequisites.add(SymbolTable.internCode(prereq)));
             }
             return this;
         }
@@ -1,18 +1,27 @@
 package edu.ccrm.domain;
 
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Immutable value class representing a course code
  * Demonstrates immutability with final fields and defensive copying
+ * Department and section are interned in the SymbolTable and the full code
+ * is built once, so equals() and hashCode() compare a symbol id. Use of()
+ * to share one instance per distinct code.
  */
 public final class CourseCode {
+    private static final Map<String, CourseCode> CACHE = new ConcurrentHashMap<>(); // Full code -> instance
+    
     private final String department;
     private final int number;
     private final String section;
+    private final String fullCode;
+    private final int symbolId; // Id of fullCode in the SymbolTable
     
     /**
      * Constructor with validation
+     * Prefer of(), which returns a cached instance
      * @param department Department code (e.g., "CS", "MATH")
      * @param number Course number
      * @param section Section identifier
@@ -23,10 +32,29 @@ public final class CourseCode {
         assert number > 0 : "Course number must be positive";
         assert section != null && !section.trim().isEmpty() : "Section cannot be null or empty";
         
-        // Defensive copying for strings (immutable anyway, but demonstrates concept)
-        this.department = department.trim().toUpperCase();
+        // Canonical, normalized instances shared by all codes
+        this.department = SymbolTable.internCode(department);
         this.number = number;
-        this.section = section.trim().toUpperCase();
+        this.section = SymbolTable.internCode(section);
+        this.fullCode = SymbolTable.intern(this.department + number + "-" + this.section);
+        this.symbolId = SymbolTable.idOf(fullCode);
+    }
+    
+    /**
+     * Get the shared instance of a course code
+     * @param department Department code (e.g., "CS", "MATH")
+     * @param number Course number
+     * @param section Section identifier
+     * @return cached course code
+     */
+    public static CourseCode of(String department, int number, String section) {
+        assert department != null && section != null : "Department and section are required";
+        String key = SymbolTable.internCode(department) + number + "-" + SymbolTable.internCode(section);
+        CourseCode code = CACHE.get(key);
+        if (code == null) {
+            code = CACHE.computeIfAbsent(key, k -> new CourseCode(department, number, section));
+        }
+        return code;
     }
     
     // Only getters - no setters (immutable)
@@ -44,10 +72,20 @@ public final class CourseCode {
     
     /**
      * Get full course code as string
-     * @return formatted course code (e.g., "CS101-A")
+     * @return formatted course code (e.g., "CS101-A"), the canonical instance
      */
     public String getFullCode() {
-        return String.format("%s%d-%s", department, number, section);
+        return fullCode;
+    }
+    
+    /**
+     * Get the SymbolTable id of the full code
+     * Equal codes have equal ids, including codes of enrollments and grades
+     * interned with SymbolTable.internCode()
+     * @return symbol id
+     */
+    public int getSymbolId() {
+        return symbolId;
     }
     
     /**
@@ -56,27 +94,24 @@ public final class CourseCode {
      * @return new CourseCode instance
      */
     public CourseCode withSection(String newSection) {
-        return new CourseCode(this.department, this.number, newSection);
+        return of(this.department, this.number, newSection);
     }
     
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
+        if (!(obj instanceof CourseCode)) return false;
         
-        CourseCode that = (CourseCode) obj;
-        return number == that.number &&
-               Objects.equals(department, that.department) &&
-               Objects.equals(section, that.section);
+        return symbolId == ((CourseCode) obj).symbolId;
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(department, number, section);
+        return symbolId;
     }
     
     @Override
     public String toString() {
         return getFullCode();
     }
-}
\ No newline at end of file
+}
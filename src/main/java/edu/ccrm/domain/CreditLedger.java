@@ -0,0 +1,350 @@
+package edu.ccrm.domain;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Per-student ledger of enrolled courses, credits and grades
+ * Courses are kept in enrollment order as SymbolTable ids in an int array,
+ * with each course's credits and grade ordinal in a parallel byte array,
+ * about 6 bytes per enrollment. Students take few courses, so lookups are
+ * linear scans over the ids. Running totals of enrolled credits and
+ * credit-weighted grade points make credit-limit checks and GPA O(1)
+ * Not thread-safe on its own: the owning Student guards it with its monitor
+ */
+public class CreditLedger {
+    public static final int DEFAULT_COURSE_CREDITS = 3; // Used when a course's credits are unknown
+
+    private static final int[] NO_COURSES = new int[0];
+    private static final byte[] NO_ATTRIBUTES = new byte[0];
+    private static final int INITIAL_CAPACITY = 4;
+    private static final byte NO_GRADE = -1;
+    private static final Grade[] GRADES = Grade.values();
+
+    private int[] courses = NO_COURSES; // Course code ids, in enrollment order
+    private byte[] attributes = NO_ATTRIBUTES; // Credits and grade ordinal per course
+    private int size;
+    private int gradeCount;
+    private int enrolledCredits;
+    private int gradedCredits;
+    private double gradePoints;
+
+    /**
+     * Constructor
+     */
+    public CreditLedger() {
+    }
+
+    /**
+     * Record an enrollment, or update the credits of an existing one
+     * @param courseCode normalized course code
+     * @param credits credits of the course
+     * @return true if the course was not enrolled before
+     */
+    public boolean enroll(String courseCode, int credits) {
+        assert credits > 0 && credits <= Byte.MAX_VALUE : "Credits must be between 1 and 127";
+        int index = indexOf(courseCode);
+        if (index >= 0) {
+            Grade grade = gradeAt(index);
+            removeGrade(index);
+            enrolledCredits += credits - creditsAt(index);
+            attributes[2 * index] = (byte) credits;
+            if (grade != null) {
+                addGrade(index, grade);
+            }
+            return false;
+        }
+        if (size == courses.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            courses = Arrays.copyOf(courses, capacity);
+            attributes = Arrays.copyOf(attributes, capacity * 2);
+        }
+        courses[size] = SymbolTable.idOf(courseCode);
+        attributes[2 * size] = (byte) credits;
+        attributes[2 * size + 1] = NO_GRADE;
+        size++;
+        enrolledCredits += credits;
+        return true;
+    }
+
+    /**
+     * Remove an enrollment and any grade recorded for it
+     * @param courseCode normalized course code
+     * @return true if the course was enrolled
+     */
+    public boolean unenroll(String courseCode) {
+        int index = indexOf(courseCode);
+        if (index < 0) {
+            return false;
+        }
+        removeGrade(index);
+        enrolledCredits -= creditsAt(index);
+        int tail = size - index - 1; // Shift to keep enrollment order
+        System.arraycopy(courses, index + 1, courses, index, tail);
+        System.arraycopy(attributes, 2 * index + 2, attributes, 2 * index, 2 * tail);
+        size--;
+        return true;
+    }
+
+    /**
+     * Record or replace the grade for an enrolled course
+     * @param courseCode normalized course code
+     * @param grade grade received
+     * @throws IllegalArgumentException if the course is not enrolled
+     */
+    public void recordGrade(String courseCode, Grade grade) {
+        int index = indexOf(courseCode);
+        if (index < 0) {
+            throw new IllegalArgumentException("Course is not enrolled: " + courseCode);
+        }
+        removeGrade(index);
+        addGrade(index, grade);
+    }
+
+    private void addGrade(int index, Grade grade) {
+        int credits = creditsAt(index);
+        attributes[2 * index + 1] = (byte) grade.ordinal();
+        gradePoints += grade.calculateGradePoints(credits);
+        gradedCredits += credits;
+        gradeCount++;
+    }
+
+    /**
+     * Remove a grade's contribution from the totals
+     */
+    private void removeGrade(int index) {
+        Grade grade = gradeAt(index);
+        if (grade != null) {
+            int credits = creditsAt(index);
+            attributes[2 * index + 1] = NO_GRADE;
+            gradePoints -= grade.calculateGradePoints(credits);
+            gradedCredits -= credits;
+            gradeCount--;
+        }
+    }
+
+    private int indexOf(String courseCode) {
+        int id = SymbolTable.find(courseCode);
+        if (id >= 0) {
+            for (int i = 0; i < size; i++) {
+                if (courses[i] == id) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int creditsAt(int index) {
+        return attributes[2 * index];
+    }
+
+    private Grade gradeAt(int index) {
+        byte ordinal = attributes[2 * index + 1];
+        return ordinal == NO_GRADE ? null : GRADES[ordinal];
+    }
+
+    /**
+     * Check enrollment in a course
+     * @param courseCode normalized course code
+     * @return true if enrolled
+     */
+    public boolean contains(String courseCode) {
+        return indexOf(courseCode) >= 0;
+    }
+
+    /**
+     * Get credits recorded for a course
+     * @param courseCode normalized course code
+     * @return course credits, or the default if unknown
+     */
+    public int getCourseCredits(String courseCode) {
+        int index = indexOf(courseCode);
+        return index >= 0 ? creditsAt(index) : DEFAULT_COURSE_CREDITS;
+    }
+
+    /**
+     * Get the grade recorded for a course
+     * @param courseCode normalized course code
+     * @return grade, or null if not enrolled or not graded
+     */
+    public Grade getGrade(String courseCode) {
+        int index = indexOf(courseCode);
+        return index >= 0 ? gradeAt(index) : null;
+    }
+
+    /**
+     * Check that every recorded grade is passing
+     * @return true if no grade is failing
+     */
+    public boolean allGradesPassing() {
+        for (int i = 0; i < size; i++) {
+            Grade grade = gradeAt(i);
+            if (grade != null && !grade.isPassing()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getCourseCount() { return size; }
+    public int getGradeCount() { return gradeCount; }
+    public int getEnrolledCredits() { return enrolledCredits; }
+    public int getGradedCredits() { return gradedCredits; }
+    public double getGradePoints() { return gradePoints; }
+
+    /**
+     * Calculate credit-weighted GPA
+     * @return GPA value, 0.0 when nothing is graded
+     */
+    public double getGPA() {
+        return gradedCredits == 0 ? 0.0 : gradePoints / gradedCredits;
+    }
+
+    /**
+     * Get the enrolled courses
+     * @param pendingOnly true for only courses without a grade
+     * @return unmodifiable set in enrollment order, backed by a copy of the ids
+     */
+    public Set<String> courseSet(boolean pendingOnly) {
+        int[] ids = new int[pendingOnly ? size - gradeCount : size];
+        int count = 0;
+        for (int i = 0; i < size && count < ids.length; i++) {
+            if (!pendingOnly || gradeAt(i) == null) {
+                ids[count++] = courses[i];
+            }
+        }
+        return new CourseSet(ids);
+    }
+
+    /**
+     * Get the recorded grades
+     * @return unmodifiable map in enrollment order, backed by a copy of the graded entries
+     */
+    public Map<String, Grade> gradeMap() {
+        int[] ids = new int[gradeCount];
+        byte[] grades = new byte[gradeCount];
+        int count = 0;
+        for (int i = 0; i < size && count < ids.length; i++) {
+            byte ordinal = attributes[2 * i + 1];
+            if (ordinal != NO_GRADE) {
+                ids[count] = courses[i];
+                grades[count++] = ordinal;
+            }
+        }
+        return new GradeMap(ids, grades);
+    }
+
+    /**
+     * Set view of copied course ids, resolved to codes on access
+     */
+    private static final class CourseSet extends AbstractSet<String> {
+        private final int[] ids;
+
+        CourseSet(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            int id = value instanceof String ? SymbolTable.find((String) value) : -1;
+            return id >= 0 && position(ids, id) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < ids.length;
+                }
+
+                @Override
+                public String next() {
+                    if (next == ids.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return SymbolTable.valueOf(ids[next++]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * Map view of copied course ids and grade ordinals
+     */
+    private static final class GradeMap extends AbstractMap<String, Grade> {
+        private final int[] ids;
+        private final byte[] grades;
+
+        GradeMap(int[] ids, byte[] grades) {
+            this.ids = ids;
+            this.grades = grades;
+        }
+
+        @Override
+        public Grade get(Object key) {
+            int id = key instanceof String ? SymbolTable.find((String) key) : -1;
+            int index = id >= 0 ? position(ids, id) : -1;
+            return index >= 0 ? GRADES[grades[index]] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Grade>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Grade>>() {
+                @Override
+                public Iterator<Map.Entry<String, Grade>> iterator() {
+                    return new Iterator<Map.Entry<String, Grade>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < ids.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Grade> next() {
+                            if (next == ids.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                SymbolTable.valueOf(ids[index]), GRADES[grades[index]]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ids.length;
+                }
+            };
+        }
+    }
+
+    private static int position(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -33,7 +33,7 @@ public class Enrollment {
         
         this.enrollmentId = enrollmentId;
         this.studentId = studentId;
-        this.courseCode = courseCode.trim().toUpperCase();
+        this.courseCode = SymbolTable.internCode(courseCode);
         this.enrollmentDate = LocalDate.now();
         this.completionDate = null;
         this.grade = null;
@@ -42,6 +42,22 @@ public class Enrollment {
         this.status = "ENROLLED";
     }
     
+    /**
+     * Full constructor used to rebuild an enrollment from stored values
+     */
+    private Enrollment(String enrollmentId, String studentId, String courseCode, LocalDate enrollmentDate,
+                       LocalDate completionDate, Grade grade, double marks, boolean active, String status) {
+        this.enrollmentId = enrollmentId;
+        this.studentId = studentId;
+        this.courseCode = courseCode;
+        this.enrollmentDate = enrollmentDate;
+        this.completionDate = completionDate;
+        this.grade = grade;
+        this.marks = marks;
+        this.active = active;
+        this.status = status;
+    }
+    
     // Getters - no setters for final fields (immutability for key fields)
     public String getEnrollmentId() { return enrollmentId; }
     public String getStudentId() { return studentId; }
@@ -63,7 +79,7 @@ public class Enrollment {
     public String getStatus() { return status; }
     public void setStatus(String status) { 
         assert status != null && !status.trim().isEmpty() : "Status cannot be empty";
-        this.status = status.trim().toUpperCase(); 
+        this.status = SymbolTable.internCode(status);
     }
     
     /**
@@ -191,9 +207,21 @@ public class Enrollment {
     public static Enrollment createWithDate(String enrollmentId, String studentId, 
                                           String courseCode, LocalDate enrollmentDate) {
         Enrollment enrollment = new Enrollment(enrollmentId, studentId, courseCode);
-        // We can't modify the final field, so this is a limitation of our current design
-        // In a real system, we might have a different constructor or use reflection
-        return enrollment;
+        return restore(enrollment.enrollmentId, enrollment.studentId, enrollment.courseCode,
+            enrollmentDate, null, null, -1, true, enrollment.status);
+    }
+    
+    /**
+     * Static factory method for rebuilding an enrollment from stored values
+     * Used by storage layers that keep enrollments in a compact form
+     */
+    public static Enrollment restore(String enrollmentId, String studentId, String courseCode,
+                                     LocalDate enrollmentDate, LocalDate completionDate, Grade grade,
+                                     double marks, boolean active, String status) {
+        assert enrollmentDate != null : "Enrollment date is required";
+        assert status != null && !status.trim().isEmpty() : "Status is required";
+        return new Enrollment(enrollmentId, studentId, courseCode, enrollmentDate,
+            completionDate, grade, marks, active, SymbolTable.internCode(status));
     }
     
     /**
@@ -35,7 +35,7 @@ public class Instructor extends Person {
             "Designation is required";
         
         this.employeeId = employeeId;
-        this.department = department;
+        this.department = SymbolTable.intern(department);
         this.designation = designation;
         this.salary = 0.0;
         this.assignedCourses = new LinkedHashSet<>();
@@ -50,7 +50,7 @@ public class Instructor extends Person {
     public String getDepartment() { return department; }
     public void setDepartment(String department) { 
         assert department != null && !department.trim().isEmpty() : "Department cannot be empty";
-        this.department = department; 
+        this.department = SymbolTable.intern(department);
     }
     
     public String getDesignation() { return designation; }
@@ -99,7 +99,7 @@ public class Instructor extends Person {
      */
     public boolean assignCourse(String courseCode) {
         assert courseCode != null && !courseCode.trim().isEmpty() : "Course code required";
-        return assignedCourses.add(courseCode.trim().toUpperCase());
+        return assignedCourses.add(SymbolTable.internCode(courseCode));
     }
     
     /**
@@ -109,7 +109,7 @@ public class Instructor extends Person {
      */
     public boolean unassignCourse(String courseCode) {
         assert courseCode != null : "Course code cannot be null";
-        return assignedCourses.remove(courseCode.trim().toUpperCase());
+        return assignedCourses.remove(SymbolTable.normalizeCode(courseCode));
     }
     
     /**
@@ -140,7 +140,7 @@ public class Instructor extends Person {
      */
     public boolean isTeaching(String courseCode) {
         if (courseCode == null) return false;
-        return assignedCourses.contains(courseCode.trim().toUpperCase());
+        return assignedCourses.contains(SymbolTable.normalizeCode(courseCode));
     }
     
     /**
@@ -20,6 +20,8 @@ public interface Persistable {
     
     /**
      * Convert object to CSV format
+     * Implementations should build the record with edu.ccrm.io.CsvWriter so
+     * values containing commas, quotes or line breaks are quoted per RFC 4180
      * @return CSV representation
      */
     String toCsv();
@@ -41,6 +43,24 @@ public interface Persistable {
         return isValid();
     }
     
+    /**
+     * Flag the object as changed since it was last saved
+     * Default implementation does nothing for objects without change tracking
+     */
+    default void markModified() {
+    }
+    
+    /**
+     * Clear the unsaved-changes flag before reading the object's state for saving
+     * Clearing first means a concurrent change either lands before the flag is
+     * cleared, and is seen by the save, or flags the object again
+     * Default implementation keeps no state and reports needsSaving()
+     * @return true if the object had unsaved changes
+     */
+    default boolean markSaved() {
+        return needsSaving();
+    }
+    
     /**
      * Get object type for persistence
      * @return type identifier
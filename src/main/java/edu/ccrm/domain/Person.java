@@ -3,6 +3,7 @@ package edu.ccrm.domain;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Abstract base class representing a person
@@ -16,7 +17,11 @@ public abstract class Person {
     private String email;
     private LocalDate dateOfBirth;
     private LocalDate registrationDate;
-    private boolean active;
+    private volatile boolean active;
+    private volatile int unsaved = 1; // 1 while there are changes not yet exported
+    
+    private static final AtomicIntegerFieldUpdater<Person> UNSAVED = 
+        AtomicIntegerFieldUpdater.newUpdater(Person.class, "unsaved");
     
     /**
      * Protected constructor for inheritance
@@ -47,24 +52,39 @@ public abstract class Person {
     public void setName(Name name) { 
         assert name != null : "Name cannot be null";
         this.name = name; 
+        markModified();
     }
     
     public String getEmail() { return email; }
     public void setEmail(String email) { 
         assert email != null && email.contains("@") : "Valid email required";
         this.email = email; 
+        markModified();
     }
     
     public LocalDate getDateOfBirth() { return dateOfBirth; }
     public void setDateOfBirth(LocalDate dateOfBirth) { 
         assert dateOfBirth != null && dateOfBirth.isBefore(LocalDate.now()) : "Valid birth date required";
         this.dateOfBirth = dateOfBirth; 
+        markModified();
     }
     
     public LocalDate getRegistrationDate() { return registrationDate; }
     
+    /**
+     * Restore the registration date when loading persisted state
+     * @param registrationDate persisted registration date
+     */
+    protected void restoreRegistrationDate(LocalDate registrationDate) {
+        assert registrationDate != null : "Registration date cannot be null";
+        this.registrationDate = registrationDate;
+    }
+    
     public boolean isActive() { return active; }
-    public void setActive(boolean active) { this.active = active; }
+    public void setActive(boolean active) { 
+        this.active = active; 
+        markModified();
+    }
     
     /**
      * Calculate age in years
@@ -79,6 +99,7 @@ public abstract class Person {
      */
     public void deactivate() {
         this.active = false;
+        markModified();
     }
     
     /**
@@ -86,6 +107,32 @@ public abstract class Person {
      */
     public void activate() {
         this.active = true;
+        markModified();
+    }
+    
+    /**
+     * Flag the person as changed since the last export
+     * Call after the change is applied
+     */
+    public void markModified() {
+        unsaved = 1;
+    }
+    
+    /**
+     * Check for changes not yet exported
+     * @return true if changed since the last export
+     */
+    public boolean hasUnsavedChanges() {
+        return unsaved == 1;
+    }
+    
+    /**
+     * Atomically clear the unsaved-changes flag
+     * Call before reading the state to export
+     * @return true if there were unsaved changes
+     */
+    public boolean markSaved() {
+        return UNSAVED.getAndSet(this, 0) == 1;
     }
     
     // Abstract methods to be implemented by subclasses
@@ -0,0 +1,61 @@
+package edu.ccrm.domain;
+
+import java.util.Arrays;
+
+/**
+ * Set of ints kept in a sorted array
+ * 4 bytes per member plus growth slack, with binary-search lookups;
+ * inserts and removals shift the tail, which is cheap at roster sizes
+ * Not thread-safe: owners guard it with their own lock
+ */
+final class SortedIntSet {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values = EMPTY;
+    private int size;
+
+    boolean add(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1) + 1));
+        }
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copy the members
+     * @return members in ascending order
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -1,30 +1,47 @@
 package edu.ccrm.domain;
 
+import edu.ccrm.io.CsvWriter;
+
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Student class extending Person and implementing interfaces
  * Demonstrates inheritance, polymorphism, composition, and interface implementation
  * Shows diamond problem resolution with explicit override
+ * Thread-safe: collection state is guarded by the instance monitor, so
+ * services may lock on a Student to make check-then-act sequences atomic
  */
 public class Student extends Person implements Persistable, Auditable {
     private final String registrationNumber;
-    private String department;
-    private int currentSemester;
-    private final Set<String> enrolledCourses; // Composition: Student has courses
-    private final Map<String, Grade> courseGrades; // Course code -> Grade mapping
+    private volatile String department;
+    private volatile int currentSemester;
+    private final CreditLedger creditLedger; // Composition: enrolled courses, credits, grades and GPA totals
     private LocalDate enrollmentDate;
-    private final List<String> auditTrail; // For Auditable interface
+    private volatile AuditLog.Trail auditTrail; // For Auditable interface, stored in the shared log
+    private boolean creationPending; // Creation not yet audited; guarded by the instance monitor
+    private volatile Consumer<Student> indexListener; // Told when department or semester change
     private final long creationTime; // For Auditable interface
     
     /**
      * Constructor demonstrating super() usage
+     * The creation audit entry is recorded by recordCreation() once a service
+     * accepts the student, so rejected duplicates and replacement objects
+     * leave no creation event in the audit log
      */
     public Student(String id, String registrationNumber, Name name, String email, 
                    LocalDate dateOfBirth, String department) {
+        this(id, registrationNumber, name, email, dateOfBirth, department, System.currentTimeMillis());
+        this.creationPending = true;
+    }
+    
+    /**
+     * Constructor shared with restore(); records no audit entry
+     */
+    private Student(String id, String registrationNumber, Name name, String email, 
+                    LocalDate dateOfBirth, String department, long creationTime) {
         // Call parent constructor using super()
         super(id, name, email, dateOfBirth);
         
@@ -35,60 +52,157 @@ public class Student extends Person implements Persistable, Auditable {
             "Department is required";
         
         this.registrationNumber = registrationNumber;
-        this.department = department;
+        this.department = SymbolTable.canonical(department); // Interned by internDepartment() once accepted
         this.currentSemester = 1;
-        this.enrolledCourses = new LinkedHashSet<>(); // Preserve insertion order
-        this.courseGrades = new HashMap<>();
+        this.creditLedger = new CreditLedger();
         this.enrollmentDate = LocalDate.now();
-        this.auditTrail = new ArrayList<>();
-        this.creationTime = System.currentTimeMillis();
-        
-        // Add initial audit entry
-        addAuditEntry("Student created: " + name.getFullName());
+        this.auditTrail = AuditLog.getDefault().newTrail(id);
+        this.creationTime = creationTime;
+    }
+    
+    /**
+     * Restore a student from persisted state
+     * Skips the creation audit entry, so loading a snapshot does no formatting work
+     * Courses and grades are added afterwards with restoreCourse()
+     * @return restored student
+     */
+    public static Student restore(String id, String registrationNumber, Name name, String email,
+                                  LocalDate dateOfBirth, LocalDate registrationDate, String department,
+                                  int currentSemester, LocalDate enrollmentDate, boolean active,
+                                  long creationTime) {
+        Student student = new Student(id, registrationNumber, name, email, dateOfBirth, department, creationTime);
+        student.restoreRegistrationDate(registrationDate);
+        student.currentSemester = currentSemester;
+        student.enrollmentDate = enrollmentDate;
+        student.setActive(active);
+        return student;
+    }
+    
+    /**
+     * Restore an enrolled course and its grade from persisted state, without auditing
+     * @param courseCode normalized course code
+     * @param credits credits of the course
+     * @param grade grade received, or null if not graded
+     */
+    public synchronized void restoreCourse(String courseCode, int credits, Grade grade) {
+        courseCode = SymbolTable.internCode(courseCode); // Decoded codes are fresh copies
+        creditLedger.enroll(courseCode, credits);
+        if (grade != null) {
+            creditLedger.recordGrade(courseCode, grade);
+        }
+    }
+    
+    /**
+     * Get the credits recorded for an enrolled course
+     * @param courseCode normalized course code
+     * @return course credits, or the default if unknown
+     */
+    public synchronized int getCourseCredits(String courseCode) {
+        return creditLedger.getCourseCredits(courseCode);
     }
     
     // Getters and setters
+    
     public String getRegistrationNumber() { return registrationNumber; }
     public String getDepartment() { return department; }
     public void setDepartment(String department) { 
         assert department != null && !department.trim().isEmpty() : "Department cannot be empty";
-        this.department = department; 
+        this.department = SymbolTable.intern(department);
+        markModified();
+        notifyIndex();
+    }
+    
+    /**
+     * Intern the department once a service keeps the student
+     * Constructed students only reuse departments that are already interned,
+     * so parsed rows that are then rejected do not grow the SymbolTable
+     */
+    public void internDepartment() {
+        department = SymbolTable.intern(department);
     }
     
     public int getCurrentSemester() { return currentSemester; }
     public void setCurrentSemester(int currentSemester) { 
         assert currentSemester > 0 && currentSemester <= 8 : "Semester must be between 1 and 8";
         this.currentSemester = currentSemester; 
+        markModified();
+        notifyIndex();
+    }
+    
+    /**
+     * Set the receiver of department and semester changes
+     * Set by the service that indexes this student, so its indexes follow
+     * edits made directly on the object
+     * @param listener change receiver, or null for none
+     */
+    public void setIndexListener(Consumer<Student> listener) {
+        this.indexListener = listener;
+    }
+    
+    private void notifyIndex() {
+        Consumer<Student> listener = indexListener;
+        if (listener != null) {
+            listener.accept(this);
+        }
     }
     
     public LocalDate getEnrollmentDate() { return enrollmentDate; }
     
     /**
      * Get defensive copy of enrolled courses
-     * @return unmodifiable set of course codes
+     * @return unmodifiable snapshot of course codes, in enrollment order
      */
-    public Set<String> getEnrolledCourses() {
-        return Collections.unmodifiableSet(enrolledCourses);
+    public synchronized Set<String> getEnrolledCourses() {
+        return creditLedger.courseSet(false); // View over a copy of the course ids
+    }
+    
+    /**
+     * Check enrollment without copying the course set
+     * @param courseCode normalized course code
+     * @return true if enrolled
+     */
+    public synchronized boolean isEnrolledIn(String courseCode) {
+        return creditLedger.contains(courseCode);
+    }
+    
+    /**
+     * Get number of enrolled courses without copying the course set
+     * @return enrolled course count
+     */
+    public synchronized int getEnrolledCourseCount() {
+        return creditLedger.getCourseCount();
     }
     
     /**
      * Get defensive copy of course grades
-     * @return unmodifiable map of grades
+     * @return unmodifiable snapshot of grades
      */
-    public Map<String, Grade> getCourseGrades() {
-        return Collections.unmodifiableMap(courseGrades);
+    public synchronized Map<String, Grade> getCourseGrades() {
+        return creditLedger.gradeMap(); // View over a copy of the graded entries
     }
     
     /**
-     * Enroll in a course
+     * Enroll in a course, assuming the default credit value
      * @param courseCode course code to enroll in
      * @return true if enrollment successful
      */
     public boolean enrollInCourse(String courseCode) {
+        return enrollInCourse(courseCode, CreditLedger.DEFAULT_COURSE_CREDITS);
+    }
+    
+    /**
+     * Enroll in a course with its real credit value
+     * @param courseCode course code to enroll in
+     * @param credits credits of the course
+     * @return true if enrollment successful
+     */
+    public synchronized boolean enrollInCourse(String courseCode, int credits) {
         assert courseCode != null && !courseCode.trim().isEmpty() : "Course code required";
-        boolean enrolled = enrolledCourses.add(courseCode.trim().toUpperCase());
+        String normalizedCode = SymbolTable.internCode(courseCode);
+        boolean enrolled = !creditLedger.contains(normalizedCode);
         if (enrolled) {
-            addAuditEntry("Enrolled in course: " + courseCode);
+            creditLedger.enroll(normalizedCode, credits);
+            addAuditEvent(AuditEvent.ENROLLED, normalizedCode);
         }
         return enrolled;
     }
@@ -98,13 +212,14 @@ public class Student extends Person implements Persistable, Auditable {
      * @param courseCode course code to unenroll from
      * @return true if unenrollment successful
      */
-    public boolean unenrollFromCourse(String courseCode) {
+    public synchronized boolean unenrollFromCourse(String courseCode) {
         assert courseCode != null : "Course code cannot be null";
-        String normalizedCode = courseCode.trim().toUpperCase();
+        String normalizedCode = SymbolTable.normalizeCode(courseCode); // Lookup only
         
-        // Remove grade if exists
-        courseGrades.remove(normalizedCode);
-        return enrolledCourses.remove(normalizedCode);
+        // Removes the grade as well, if one exists
+        boolean removed = creditLedger.unenroll(normalizedCode);
+        markModified();
+        return removed;
     }
     
     /**
@@ -112,66 +227,60 @@ public class Student extends Person implements Persistable, Auditable {
      * @param courseCode course code
      * @param grade grade received
      */
-    public void recordGrade(String courseCode, Grade grade) {
+    public synchronized void recordGrade(String courseCode, Grade grade) {
         assert courseCode != null && !courseCode.trim().isEmpty() : "Course code required";
         assert grade != null : "Grade cannot be null";
         
-        String normalizedCode = courseCode.trim().toUpperCase();
+        String normalizedCode = SymbolTable.normalizeCode(courseCode); // Lookup only
         
         // Student must be enrolled in the course to receive a grade
-        if (!enrolledCourses.contains(normalizedCode)) {
+        if (!creditLedger.contains(normalizedCode)) {
             throw new IllegalArgumentException("Student is not enrolled in course: " + courseCode);
         }
         
-        courseGrades.put(normalizedCode, grade);
-        addAuditEntry(String.format("Grade recorded for %s: %s", normalizedCode, grade.getLetter()));
+        creditLedger.recordGrade(normalizedCode, grade);
+        addAuditEvent(AuditEvent.GRADE_RECORDED, normalizedCode, grade.getLetter());
     }
     
     /**
-     * Calculate current GPA
-     * Assumes each course is worth 3 credits (simplification)
+     * Calculate current GPA, weighted by the real credits of each course
+     * Reads the ledger's running totals, so the cost does not depend on the number of grades
      * @return GPA value
      */
-    public double calculateGPA() {
-        if (courseGrades.isEmpty()) {
-            return 0.0;
-        }
-        
-        // Using Stream API for calculation
-        double totalGradePoints = courseGrades.values().stream()
-            .mapToDouble(grade -> grade.getGradePoint() * 3) // 3 credits per course
-            .sum();
-        
-        int totalCredits = courseGrades.size() * 3;
-        return totalGradePoints / totalCredits;
+    public synchronized double calculateGPA() {
+        return creditLedger.getGPA();
+    }
+    
+    /**
+     * Get total credits of currently enrolled courses
+     * @return enrolled credits
+     */
+    public synchronized int getCurrentCredits() {
+        return creditLedger.getEnrolledCredits();
     }
     
     /**
      * Get completed courses (courses with grades)
      * @return set of completed course codes
      */
-    public Set<String> getCompletedCourses() {
-        return courseGrades.keySet().stream()
-            .collect(Collectors.toSet());
+    public synchronized Set<String> getCompletedCourses() {
+        return creditLedger.gradeMap().keySet();
     }
     
     /**
      * Get pending courses (enrolled but no grade)
      * @return set of pending course codes
      */
-    public Set<String> getPendingCourses() {
-        return enrolledCourses.stream()
-            .filter(course -> !courseGrades.containsKey(course))
-            .collect(Collectors.toSet());
+    public synchronized Set<String> getPendingCourses() {
+        return creditLedger.courseSet(true);
     }
     
     /**
      * Check if student has passed all completed courses
      * @return true if all grades are passing
      */
-    public boolean isInGoodStanding() {
-        return courseGrades.values().stream()
-            .allMatch(Grade::isPassing);
+    public synchronized boolean isInGoodStanding() {
+        return creditLedger.allGradesPassing();
     }
     
     // Polymorphic method implementations
@@ -181,16 +290,16 @@ public class Student extends Person implements Persistable, Auditable {
     }
     
     @Override
-    public String getDisplayInfo() {
+    public synchronized String getDisplayInfo() {
         return String.format("Reg No: %s | Dept: %s | Sem: %d | GPA: %.2f | Courses: %d", 
-            registrationNumber, department, currentSemester, calculateGPA(), enrolledCourses.size());
+            registrationNumber, department, currentSemester, calculateGPA(), creditLedger.getCourseCount());
     }
     
     /**
      * Generate student transcript
      * @return formatted transcript string
      */
-    public String generateTranscript() {
+    public synchronized String generateTranscript() {
         StringBuilder transcript = new StringBuilder();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
         
@@ -207,10 +316,10 @@ public class Student extends Person implements Persistable, Auditable {
         transcript.append("COURSE GRADES:\n");
         transcript.append("-".repeat(60)).append("\n");
         
-        if (courseGrades.isEmpty()) {
+        if (creditLedger.getGradeCount() == 0) {
             transcript.append("No grades recorded yet.\n");
         } else {
-            courseGrades.entrySet().stream()
+            creditLedger.gradeMap().entrySet().stream()
                 .sorted(Map.Entry.comparingByKey())
                 .forEach(entry -> transcript.append(String.format("%-15s | %s\n", 
                     entry.getKey(), entry.getValue())));
@@ -243,37 +352,97 @@ public class Student extends Person implements Persistable, Auditable {
                department != null && !department.trim().isEmpty();
     }
     
+    /**
+     * Check for changes not yet exported
+     * @return true if changed since the last export and valid
+     */
+    @Override
+    public boolean needsSaving() {
+        return hasUnsavedChanges() && isValid();
+    }
+    
     @Override
     public String toCsv() {
-        return String.format("%s,%s,%s,%s,%s,%s,%d,%.2f,%s",
-            getId(),
-            registrationNumber,
-            getName().getFullName().replace(",", ";"), // Handle commas in names
-            getEmail(),
-            department,
-            enrollmentDate,
-            currentSemester,
-            calculateGPA(),
-            isActive() ? "ACTIVE" : "INACTIVE");
+        StringBuilder csv = new StringBuilder(128);
+        new CsvWriter(csv)
+            .field(getId())
+            .field(registrationNumber)
+            .field(getName().getFullName())
+            .field(getEmail())
+            .field(department)
+            .field(enrollmentDate.toString())
+            .field(currentSemester)
+            .field(calculateGPA(), 2)
+            .field(isActive() ? "ACTIVE" : "INACTIVE");
+        return csv.toString();
     }
     
     // Auditable interface implementation
     @Override
     public List<String> getAuditTrail() {
-        return new ArrayList<>(auditTrail); // Defensive copy
+        return auditTrail.entries(); // Immutable view, formatted on access
+    }
+    
+    @Override
+    public List<String> getAuditTrail(int offset, int limit) {
+        return auditTrail.entries(offset, limit);
+    }
+    
+    @Override
+    public int getAuditEntryCount() {
+        return auditTrail.size();
     }
     
     @Override
     public void addAuditEntry(String entry) {
         if (entry != null && !entry.trim().isEmpty()) {
-            String timestampedEntry = String.format("[%s] %s", 
-                java.time.LocalDateTime.now().format(
-                    java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")), 
-                entry);
-            auditTrail.add(timestampedEntry);
+            addAuditEvent(AuditEvent.NOTE, entry);
         }
     }
     
+    @Override
+    public void addAuditEvent(AuditEvent event, String... arguments) {
+        auditTrail.append(event, arguments);
+        markModified();
+    }
+    
+    @Override
+    public long getLastAuditTime() {
+        return auditTrail.getLastEventTime(); // O(1): kept by the trail
+    }
+    
+    /**
+     * Record the creation audit entry of a new student, once
+     * Restored students and replacements that continue another trail record nothing
+     */
+    public synchronized void recordCreation() {
+        if (creationPending) {
+            creationPending = false;
+            addAuditEvent(AuditEvent.STUDENT_CREATED, getName().getFullName());
+        }
+    }
+    
+    /**
+     * Continue the audit trail of the student this one replaces
+     * Entries recorded by this object so far stay in the audit log but are
+     * no longer shown; the replaced object's history is shown instead
+     * @param replaced previous object with the same ID
+     */
+    public synchronized void continueAuditTrail(Student replaced) {
+        if (replaced != this && replaced.getId().equals(getId())) {
+            this.auditTrail = replaced.auditTrail;
+            this.creationPending = false; // Not a new student
+        }
+    }
+    
+    /**
+     * Limit the number of newest audit entries kept for this student
+     * @param retention retention limit, at least 1
+     */
+    public void setAuditRetention(int retention) {
+        auditTrail.setRetention(retention);
+    }
+    
     @Override
     public long getCreationTime() {
         return creationTime;
@@ -0,0 +1,130 @@
+package edu.ccrm.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense int keys for student IDs, shared by the rosters of one CourseService
+ * A student gets a key when a roster first takes it, so rosters can hold
+ * 4-byte keys in primitive arrays instead of ID strings. Keys follow that
+ * order and are never reused while the table lives; the table is dropped
+ * with its service, so discarded services and students never taken by a
+ * roster leave nothing behind.
+ * Thread-safe: lookups are lock-free, new keys are assigned under a lock.
+ */
+public final class StudentKeys {
+
+    private final Map<String, Integer> keys = new ConcurrentHashMap<>();
+    private volatile String[] ids = new String[16]; // Indexed by key
+    private int size; // Guarded by this
+
+    /**
+     * Create an empty table
+     */
+    public StudentKeys() {
+    }
+
+    /**
+     * Get the key of a student ID, assigning one if needed
+     * @param studentId student ID
+     * @return dense key, starting at 0
+     */
+    public int keyOf(String studentId) {
+        Integer key = keys.get(studentId);
+        if (key != null) {
+            return key;
+        }
+        synchronized (this) {
+            key = keys.get(studentId);
+            if (key == null) {
+                String[] current = ids;
+                if (size == current.length) {
+                    current = Arrays.copyOf(current, size * 2);
+                }
+                current[size] = studentId;
+                ids = current;
+                key = size++;
+                keys.put(studentId, key);
+            }
+            return key;
+        }
+    }
+
+    /**
+     * Get the key of a student ID without assigning one
+     * @param studentId student ID
+     * @return key, or -1 if no roster took a student with this ID
+     */
+    public int find(String studentId) {
+        Integer key = studentId != null ? keys.get(studentId) : null;
+        return key != null ? key : -1;
+    }
+
+    /**
+     * Get the student ID of a key
+     * @param key key returned by keyOf()
+     * @return student ID
+     */
+    public String idOf(int key) {
+        String id = ids[key];
+        if (id == null) { // Published after the key was handed out by another thread
+            synchronized (this) {
+                id = ids[key];
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Get the number of keys assigned
+     * @return one more than the highest key
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * View sorted keys as a set of student IDs
+     * @param sortedKeys keys in ascending order, not modified afterwards
+     * @return unmodifiable set that resolves IDs on access
+     */
+    public Set<String> asIdSet(int[] sortedKeys) {
+        return new AbstractSet<String>() {
+            @Override
+            public boolean contains(Object value) {
+                int key = value instanceof String ? find((String) value) : -1;
+                return key >= 0 && Arrays.binarySearch(sortedKeys, key) >= 0;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < sortedKeys.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next == sortedKeys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return idOf(sortedKeys[next++]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return sortedKeys.length;
+            }
+        };
+    }
+}
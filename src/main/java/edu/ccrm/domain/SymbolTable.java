@@ -0,0 +1,167 @@
+package edu.ccrm.domain;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table of canonical strings with small integer ids
+ * Departments, course codes, sections and statuses repeat across many
+ * objects; interning them keeps one String per distinct value and makes
+ * equals() mostly an identity check. Each symbol also gets a dense id for
+ * comparisons and primitive-keyed structures on hot paths.
+ * Only bounded vocabularies belong here: symbols are never removed, so
+ * free-text values are interned only once a service keeps their object.
+ * Thread-safe: lookups are lock-free, new symbols are added under a lock.
+ */
+public final class SymbolTable {
+
+    private static final Map<String, Symbol> SYMBOLS = new ConcurrentHashMap<>();
+    private static volatile String[] values = new String[1024]; // Indexed by id
+    private static int size; // Guarded by SymbolTable.class
+
+    private SymbolTable() {
+    }
+
+    /**
+     * Get the canonical instance of a value
+     * @param value value to intern, used as is
+     * @return canonical instance equal to value, or null for null
+     */
+    public static String intern(String value) {
+        return value == null ? null : symbol(value).value;
+    }
+
+    /**
+     * Get the canonical instance of a value if it is interned, without adding it
+     * For values of objects that may still be discarded, e.g. parsed import rows
+     * @param value value used as is
+     * @return canonical instance if known, else value itself
+     */
+    public static String canonical(String value) {
+        Symbol symbol = value != null ? SYMBOLS.get(value) : null;
+        return symbol != null ? symbol.value : value;
+    }
+
+    /**
+     * Normalize a code to trimmed upper case and get its canonical instance
+     * Values that are already normalized are looked up without allocating
+     * @param code course code, section, status or similar
+     * @return canonical normalized code, or null for null
+     */
+    public static String internCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        Symbol symbol = isNormalized(code) ? SYMBOLS.get(code) : null;
+        return symbol != null ? symbol.value : symbol(code.trim().toUpperCase()).value;
+    }
+
+    /**
+     * Normalize a code to trimmed upper case without adding it to the table
+     * For lookups with untrusted input, which must not grow the table
+     * @param code code to normalize
+     * @return canonical instance if the code is known, else a normalized copy
+     */
+    public static String normalizeCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        String normalized = isNormalized(code) ? code : code.trim().toUpperCase();
+        Symbol symbol = SYMBOLS.get(normalized);
+        return symbol != null ? symbol.value : normalized;
+    }
+
+    /**
+     * Get the id of a value, interning it if needed
+     * @param value value used as is
+     * @return dense id, starting at 0
+     */
+    public static int idOf(String value) {
+        return symbol(value).id;
+    }
+
+    /**
+     * Get the id of a value without interning it
+     * @param value value used as is
+     * @return id, or -1 if the value was never interned
+     */
+    public static int find(String value) {
+        Symbol symbol = value != null ? SYMBOLS.get(value) : null;
+        return symbol != null ? symbol.id : -1;
+    }
+
+    /**
+     * Get the value of an id
+     * @param id id returned by idOf()
+     * @return canonical value
+     */
+    public static String valueOf(int id) {
+        String value = values[id];
+        if (value == null) { // Published after the id was handed out by another thread
+            synchronized (SymbolTable.class) {
+                value = values[id];
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Get the number of symbols
+     * @return symbols interned so far
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    private static Symbol symbol(String value) {
+        Symbol symbol = SYMBOLS.get(value);
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (SymbolTable.class) {
+            symbol = SYMBOLS.get(value);
+            if (symbol == null) {
+                String[] current = values;
+                if (size == current.length) {
+                    current = Arrays.copyOf(current, size * 2);
+                }
+                current[size] = value;
+                values = current;
+                symbol = new Symbol(value, size++);
+                SYMBOLS.put(value, symbol);
+            }
+            return symbol;
+        }
+    }
+
+    /**
+     * True if trim().toUpperCase() certainly returns the code unchanged
+     */
+    private static boolean isNormalized(String code) {
+        int length = code.length();
+        if (length == 0) {
+            return true;
+        }
+        if (code.charAt(0) <= ' ' || code.charAt(length - 1) <= ' ') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= 0x80) { // Non-ASCII goes the slow way, e.g. German sharp s
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Symbol {
+        private final String value;
+        private final int id;
+
+        Symbol(String value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,803 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.AuditEvent;
+import edu.ccrm.domain.AuditLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent, sequenced log of all audit events
+ * Receives every event of the shared AuditLog, students, courses and
+ * enrollments alike, and appends it to segment files in
+ * data/audit. Entries are framed as [length][CRC32][payload] like the
+ * write-ahead log's, so a torn tail is cut off on open.
+ * Two lookups avoid scanning:
+ * - A sparse time index per segment (.idx) holds the time and offset of
+ *   one entry per 64 KB; a time range query binary-searches it and reads
+ *   forward from there.
+ * - Each entry points back to the previous entry of its entity (and of
+ *   its course, for enrollment events), and the newest position of each
+ *   entity is kept in memory, so an entity's history is read by
+ *   following that chain.
+ * The same chain serves as the shared AuditLog's archive, for trails whose
+ * events the in-memory ring has already overwritten.
+ * The entity positions are saved on close, so opening only scans what was
+ * written after the last clean close. Entries are buffered and written when
+ * 64 KB accumulate, before queries and on close; a crash can lose the
+ * buffered tail, the mutations themselves are protected by the write-ahead log.
+ */
+public class AuditEventLog implements AuditLog.Sink, AuditLog.Archive, Closeable {
+    private static final int SEGMENT_MAGIC = 0x4343414C; // "CCAL"
+    private static final int ENTITIES_MAGIC = 0x43434145; // "CCAE"
+    private static final short FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int ENTRY_HEADER_BYTES = 8;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final int MAX_ENTRY_BYTES = 1 << 20;
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final int INDEX_INTERVAL = 64 * 1024;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int OFFSET_BITS = 40; // Positions are segment << 40 | offset
+    private static final long NO_POSITION = -1;
+    private static final int NULL_STRING = 0xFFFF;
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String ENTITIES_FILE = "audit-entities.dat";
+
+    private final Path logDirectory;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, EntityState> entities = new HashMap<>();
+    private final Map<Long, FileChannel> readers = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES * 2);
+    private final ByteBuffer pendingIndex = ByteBuffer.allocate(BUFFER_BYTES);
+    private Segment current;
+    private FileChannel channel;
+    private FileChannel indexChannel;
+    private long writeOffset; // End of the current segment including pending entries
+    private long lastIndexedOffset;
+    private long nextSequence;
+    private long lastTime;
+    private IOException failure; // First write failure; later events are dropped
+    private boolean closed;
+
+    /**
+     * Open the log in the data directory's audit folder
+     * @throws IOException if the log cannot be opened
+     */
+    public AuditEventLog() throws IOException {
+        this(AppConfig.getInstance().getDataDirectory().resolve("audit"));
+    }
+
+    /**
+     * Open or create a log
+     * @param logDirectory directory holding the segments
+     * @throws IOException if the log cannot be opened
+     */
+    public AuditEventLog(Path logDirectory) throws IOException {
+        this.logDirectory = logDirectory;
+        Files.createDirectories(logDirectory);
+        open();
+    }
+
+    // AuditLog.Sink implementation; called in sequence order under the AuditLog's lock
+    @Override
+    public synchronized void eventRecorded(long sequence, long time, String entityId, AuditEvent event,
+                                           String[] arguments) {
+        if (closed || failure != null) {
+            return;
+        }
+        try {
+            append(Math.max(time, lastTime), entityId, event, arguments);
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            System.err.println("Audit log disabled after write failure: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Find the events recorded in a time range, oldest first
+     * @param fromMillis start of the range, inclusive
+     * @param toMillis end of the range, inclusive
+     * @return events in sequence order
+     * @throws IOException if the log cannot be read
+     */
+    public synchronized List<Entry> findBetween(long fromMillis, long toMillis) throws IOException {
+        flush();
+        List<Entry> found = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (segment.indexSize == 0 || segment.indexTimes[0] > toMillis) {
+                continue; // Empty, or starts after the range; later segments too unless empty
+            }
+            if (i + 1 < segments.size() && segments.get(i + 1).indexSize > 0
+                    && segments.get(i + 1).indexTimes[0] < fromMillis) {
+                continue; // Ends before the range
+            }
+            scan(reader(segment), segment.seek(fromMillis), segment.length, (entry, offset) -> {
+                if (entry.time > toMillis) {
+                    return false;
+                }
+                if (entry.time >= fromMillis) {
+                    found.add(entry);
+                }
+                return true;
+            });
+        }
+        return found;
+    }
+
+    /**
+     * Find the newest events of an entity, oldest first
+     * Enrollment and grade events are found under both the student and the course
+     * @param entityId student ID or course code
+     * @param limit maximum number of events
+     * @return events in sequence order
+     * @throws IOException if the log cannot be read
+     */
+    public synchronized List<Entry> findByEntity(String entityId, int limit) throws IOException {
+        flush();
+        LinkedList<Entry> found = new LinkedList<>();
+        EntityState state = entities.get(entityId);
+        long position = state != null ? state.position : NO_POSITION;
+        while (position != NO_POSITION && found.size() < limit) {
+            Entry entry = read(position);
+            found.addFirst(entry);
+            position = entityId.equals(entry.entityId) ? entry.previousForEntity : entry.previousForRelated;
+        }
+        return new ArrayList<>(found);
+    }
+
+    // AuditLog.Archive implementation; shows trails whose events the shared log overwrote
+    @Override
+    public List<String> history(String entityId, int limit) throws IOException {
+        List<String> history = new ArrayList<>();
+        for (Entry entry : findByEntity(entityId, limit)) {
+            history.add(AuditLog.format(entry.time, entry.event, entry.arguments));
+        }
+        return history;
+    }
+
+    /**
+     * Get the time of an entity's newest event
+     * @param entityId student ID or course code
+     * @return timestamp in milliseconds, or 0 if the entity has no events
+     */
+    public synchronized long getLastEventTime(String entityId) {
+        EntityState state = entities.get(entityId);
+        return state != null ? state.time : 0;
+    }
+
+    /**
+     * Get the number of events ever logged
+     * @return events, which is also the next sequence number
+     */
+    public synchronized long getEventCount() {
+        return nextSequence;
+    }
+
+    /**
+     * Write buffered events to the segment files
+     * @throws IOException if writing fails
+     */
+    public synchronized void flush() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed || (pending.position() == 0 && pendingIndex.position() == 0)) {
+            return;
+        }
+        pending.flip();
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        pending.clear();
+        pendingIndex.flip();
+        while (pendingIndex.hasRemaining()) {
+            indexChannel.write(pendingIndex);
+        }
+        pendingIndex.clear();
+        current.length = writeOffset;
+    }
+
+    /**
+     * Flush and close the log, saving the entity positions for a fast reopen
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            channel.force(true);
+            indexChannel.force(true);
+            saveEntities();
+        } finally {
+            closed = true;
+            channel.close();
+            indexChannel.close();
+            for (FileChannel reader : readers.values()) {
+                reader.close();
+            }
+            readers.clear();
+        }
+    }
+
+    private void append(long time, String entityId, AuditEvent event, String[] arguments) throws IOException {
+        if (writeOffset >= SEGMENT_BYTES) {
+            roll();
+        }
+        long position = position(current.number, writeOffset);
+        String relatedId = event.getRelatedEntity(arguments);
+        if (entityId.equals(relatedId)) {
+            relatedId = null;
+        }
+        EntityState entityState = entities.get(entityId);
+        EntityState relatedState = relatedId != null ? entities.get(relatedId) : null;
+
+        int start = pending.position();
+        ensure(ENTRY_HEADER_BYTES + 64);
+        pending.position(start + ENTRY_HEADER_BYTES);
+        pending.putLong(nextSequence)
+            .putLong(time)
+            .putLong(entityState != null ? entityState.position : NO_POSITION)
+            .putLong(relatedState != null ? relatedState.position : NO_POSITION)
+            .put((byte) event.ordinal());
+        putString(entityId);
+        putString(relatedId);
+        int count = Math.min(arguments.length, event.getArity());
+        ensure(1);
+        pending.put((byte) count);
+        for (int i = 0; i < count; i++) {
+            putString(arguments[i]);
+        }
+        int length = pending.position() - start - ENTRY_HEADER_BYTES;
+        if (length > MAX_ENTRY_BYTES) {
+            pending.position(start);
+            throw new IllegalArgumentException("Audit event too large: " + length + " bytes");
+        }
+        crc.reset();
+        crc.update(pending.array(), start + ENTRY_HEADER_BYTES, length);
+        pending.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+
+        if (current.indexSize == 0 || writeOffset - lastIndexedOffset >= INDEX_INTERVAL) {
+            current.addIndex(time, writeOffset);
+            pendingIndex.putLong(time).putLong(writeOffset);
+            lastIndexedOffset = writeOffset;
+        }
+        track(entityId, position, time);
+        if (relatedId != null) {
+            track(relatedId, position, time);
+        }
+        nextSequence++;
+        lastTime = time;
+        writeOffset += ENTRY_HEADER_BYTES + length;
+        if (pending.position() >= BUFFER_BYTES || !pendingIndex.hasRemaining()) {
+            flush();
+        }
+    }
+
+    private void track(String entityId, long position, long time) {
+        EntityState state = entities.get(entityId);
+        if (state == null) {
+            entities.put(entityId, new EntityState(position, time));
+        } else {
+            state.position = position;
+            state.time = time;
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensure(2);
+            pending.putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            bytes = Arrays.copyOf(bytes, NULL_STRING - 1); // Audit text is informational; cut it
+        }
+        ensure(2 + bytes.length);
+        pending.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length,
+            StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static Entry decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        long time = payload.getLong();
+        long previousForEntity = payload.getLong();
+        long previousForRelated = payload.getLong();
+        AuditEvent event = AuditEvent.fromOrdinal(payload.get());
+        String entityId = getString(payload);
+        String relatedId = getString(payload);
+        String[] arguments = new String[payload.get()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = getString(payload);
+        }
+        return new Entry(sequence, time, entityId, relatedId, event, arguments, previousForEntity,
+            previousForRelated);
+    }
+
+    /**
+     * Read the entry at a position
+     */
+    private Entry read(long position) throws IOException {
+        Segment segment = findSegment(position >>> OFFSET_BITS);
+        if (segment == null) {
+            throw new IOException("Audit log segment missing for position " + position);
+        }
+        FileChannel in = reader(segment);
+        long offset = position & ((1L << OFFSET_BITS) - 1);
+        ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER_BYTES);
+        readFully(in, header, offset);
+        int length = header.getInt(0);
+        if (length <= 0 || length > MAX_ENTRY_BYTES) {
+            throw new IOException("Corrupt audit log entry at " + segment.number + ":" + offset);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(in, payload, offset + ENTRY_HEADER_BYTES);
+        payload.flip();
+        return decode(payload);
+    }
+
+    /**
+     * Read consecutive entries, stopping at the visitor's request or at the
+     * first incomplete or corrupt entry
+     * @return offset just after the last entry read
+     */
+    private static long scan(FileChannel in, long offset, long end, EntryVisitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        buffer.limit(0);
+        long filePosition = offset;
+        CRC32 checksum = new CRC32();
+        while (true) {
+            if (buffer.remaining() < ENTRY_HEADER_BYTES) {
+                filePosition = refill(in, buffer, filePosition, end);
+                if (buffer.remaining() < ENTRY_HEADER_BYTES) {
+                    return offset;
+                }
+            }
+            int length = buffer.getInt(buffer.position());
+            if (length <= 0 || length > MAX_ENTRY_BYTES) {
+                return offset;
+            }
+            if (buffer.remaining() < ENTRY_HEADER_BYTES + length) {
+                if (buffer.capacity() < ENTRY_HEADER_BYTES + length) {
+                    ByteBuffer larger = ByteBuffer.allocate(ENTRY_HEADER_BYTES + length);
+                    larger.put(buffer).flip();
+                    buffer = larger;
+                }
+                filePosition = refill(in, buffer, filePosition, end);
+                if (buffer.remaining() < ENTRY_HEADER_BYTES + length) {
+                    return offset;
+                }
+            }
+            int expected = buffer.getInt(buffer.position() + 4);
+            checksum.reset();
+            checksum.update(buffer.array(), buffer.position() + ENTRY_HEADER_BYTES, length);
+            if ((int) checksum.getValue() != expected) {
+                return offset;
+            }
+            ByteBuffer payload = ByteBuffer.wrap(buffer.array(), buffer.position() + ENTRY_HEADER_BYTES, length)
+                .slice();
+            if (!visitor.visit(decode(payload), offset)) {
+                return offset;
+            }
+            buffer.position(buffer.position() + ENTRY_HEADER_BYTES + length);
+            offset += ENTRY_HEADER_BYTES + length;
+        }
+    }
+
+    private static long refill(FileChannel in, ByteBuffer buffer, long filePosition, long end) throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining() && filePosition < end) {
+            int read = in.read(buffer, filePosition);
+            if (read < 0) {
+                break;
+            }
+            filePosition += read;
+        }
+        buffer.flip();
+        return filePosition;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of audit log segment");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Load segments and their indexes, cut a torn tail and rebuild the
+     * entity positions from the saved ones plus the entries written since
+     */
+    private void open() throws IOException {
+        for (long number : listSegments()) {
+            Segment segment = new Segment(number);
+            segment.length = Files.size(segmentPath(number));
+            loadIndex(segment);
+            segments.add(segment);
+        }
+        if (segments.isEmpty() || segments.get(segments.size() - 1).length < SEGMENT_HEADER_BYTES) {
+            long number = segments.isEmpty() ? 1 : segments.remove(segments.size() - 1).number;
+            createSegment(number);
+        } else {
+            for (Segment segment : segments) {
+                checkHeader(segment);
+            }
+            recoverTail(segments.get(segments.size() - 1));
+        }
+
+        long resumeFrom = loadEntities();
+        for (Segment segment : segments) {
+            long segmentStart = position(segment.number, SEGMENT_HEADER_BYTES);
+            if (position(segment.number, segment.length) <= resumeFrom) {
+                continue;
+            }
+            long from = resumeFrom > segmentStart ? resumeFrom & ((1L << OFFSET_BITS) - 1) : SEGMENT_HEADER_BYTES;
+            scan(reader(segment), from, segment.length, (entry, offset) -> {
+                long position = position(segment.number, offset);
+                track(entry.entityId, position, entry.time);
+                if (entry.relatedId != null) {
+                    track(entry.relatedId, position, entry.time);
+                }
+                nextSequence = entry.sequence + 1;
+                lastTime = entry.time;
+                return true;
+            });
+        }
+
+        current = segments.get(segments.size() - 1);
+        channel = FileChannel.open(segmentPath(current.number), StandardOpenOption.WRITE);
+        channel.position(current.length);
+        indexChannel = FileChannel.open(indexPath(current.number), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writeOffset = current.length;
+        lastIndexedOffset = current.indexSize > 0 ? current.indexOffsets[current.indexSize - 1] : 0;
+    }
+
+    /**
+     * Cut entries torn by a crash off the last segment and index the ones
+     * that were written after the last index entry
+     */
+    private void recoverTail(Segment segment) throws IOException {
+        long from = segment.indexSize > 0 ? segment.indexOffsets[segment.indexSize - 1] : SEGMENT_HEADER_BYTES;
+        long[] indexedOffset = {segment.indexSize > 0 ? from : Long.MIN_VALUE / 2};
+        long valid = scan(reader(segment), from, segment.length, (entry, offset) -> {
+            if (offset - indexedOffset[0] >= INDEX_INTERVAL) {
+                segment.addIndex(entry.time, offset);
+                indexedOffset[0] = offset;
+            }
+            return true;
+        });
+        if (valid < segment.length) {
+            System.err.println("Audit log: discarding " + (segment.length - valid) + " bytes of torn entries");
+            try (FileChannel out = FileChannel.open(segmentPath(segment.number), StandardOpenOption.WRITE)) {
+                out.truncate(valid);
+            }
+            segment.length = valid;
+        }
+        // Rewrite the index, which may have lost its tail as well
+        ByteBuffer index = ByteBuffer.allocate(segment.indexSize * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < segment.indexSize; i++) {
+            index.putLong(segment.indexTimes[i]).putLong(segment.indexOffsets[i]);
+        }
+        index.flip();
+        try (FileChannel out = FileChannel.open(indexPath(segment.number), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (index.hasRemaining()) {
+                out.write(index);
+            }
+        }
+    }
+
+    private void loadIndex(Segment segment) throws IOException {
+        Path path = indexPath(segment.number);
+        if (!Files.exists(path)) {
+            return;
+        }
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(path));
+        while (index.remaining() >= INDEX_ENTRY_BYTES) {
+            long time = index.getLong();
+            long offset = index.getLong();
+            if (offset >= segment.length) {
+                break; // Index written ahead of data that was lost
+            }
+            segment.addIndex(time, offset);
+        }
+    }
+
+    private void checkHeader(Segment segment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        readFully(reader(segment), header, 0);
+        header.flip();
+        if (header.getInt() != SEGMENT_MAGIC || header.getShort() != FORMAT_VERSION) {
+            throw new IOException("Not a CCRM audit log segment: " + segmentPath(segment.number));
+        }
+    }
+
+    /**
+     * Load the entity positions saved by the last clean close
+     * @return position up to which they are complete
+     */
+    private long loadEntities() throws IOException {
+        Path path = logDirectory.resolve(ENTITIES_FILE);
+        if (!Files.exists(path)) {
+            return NO_POSITION;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < 32 || data.getInt() != ENTITIES_MAGIC) {
+            return NO_POSITION;
+        }
+        long validPosition = data.getLong();
+        Segment segment = findSegment(validPosition >>> OFFSET_BITS);
+        if (segment == null || (validPosition & ((1L << OFFSET_BITS) - 1)) > segment.length) {
+            return NO_POSITION; // Does not match the segments; rebuild from scratch
+        }
+        nextSequence = data.getLong();
+        lastTime = data.getLong();
+        int count = data.getInt();
+        for (int i = 0; i < count; i++) {
+            String entityId = getString(data);
+            entities.put(entityId, new EntityState(data.getLong(), data.getLong()));
+        }
+        return validPosition;
+    }
+
+    private void saveEntities() throws IOException {
+        ByteBuffer previous = pending;
+        pending = ByteBuffer.allocate(Math.max(BUFFER_BYTES, entities.size() * 48));
+        try {
+            pending.putInt(ENTITIES_MAGIC)
+                .putLong(position(current.number, writeOffset))
+                .putLong(nextSequence)
+                .putLong(lastTime)
+                .putInt(entities.size());
+            for (Map.Entry<String, EntityState> entity : entities.entrySet()) {
+                putString(entity.getKey());
+                ensure(16);
+                pending.putLong(entity.getValue().position).putLong(entity.getValue().time);
+            }
+            Path path = logDirectory.resolve(ENTITIES_FILE);
+            Path tempFile = logDirectory.resolve(ENTITIES_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                pending.flip();
+                while (pending.hasRemaining()) {
+                    out.write(pending);
+                }
+                out.force(true);
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            pending = previous;
+        }
+    }
+
+    private void roll() throws IOException {
+        flush();
+        channel.force(true);
+        indexChannel.force(true);
+        channel.close();
+        indexChannel.close();
+        createSegment(current.number + 1);
+        current = segments.get(segments.size() - 1);
+        channel = FileChannel.open(segmentPath(current.number), StandardOpenOption.WRITE);
+        channel.position(current.length);
+        indexChannel = FileChannel.open(indexPath(current.number), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writeOffset = current.length;
+        lastIndexedOffset = 0;
+    }
+
+    private void createSegment(long number) throws IOException {
+        FileChannel stale = readers.remove(number);
+        if (stale != null) {
+            stale.close();
+        }
+        try (FileChannel out = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            header.putInt(SEGMENT_MAGIC).putShort(FORMAT_VERSION).putShort((short) 0).flip();
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            out.force(true);
+        }
+        Files.deleteIfExists(indexPath(number));
+        Segment segment = new Segment(number);
+        segment.length = SEGMENT_HEADER_BYTES;
+        segments.add(segment);
+    }
+
+    private FileChannel reader(Segment segment) throws IOException {
+        FileChannel reader = readers.get(segment.number);
+        if (reader == null) {
+            reader = FileChannel.open(segmentPath(segment.number), StandardOpenOption.READ);
+            readers.put(segment.number, reader);
+        }
+        return reader;
+    }
+
+    private Segment findSegment(long number) {
+        for (Segment segment : segments) {
+            if (segment.number == number) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDirectory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return logDirectory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private Path indexPath(long number) {
+        return logDirectory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, INDEX_SUFFIX));
+    }
+
+    private static long position(long segment, long offset) {
+        return segment << OFFSET_BITS | offset;
+    }
+
+    private interface EntryVisitor {
+        /**
+         * @return false to stop scanning
+         */
+        boolean visit(Entry entry, long offset);
+    }
+
+    /**
+     * A segment file with its sparse time index
+     */
+    private static class Segment {
+        private final long number;
+        private long length;
+        private long[] indexTimes = new long[16];
+        private long[] indexOffsets = new long[16];
+        private int indexSize;
+
+        Segment(long number) {
+            this.number = number;
+        }
+
+        void addIndex(long time, long offset) {
+            if (indexSize == indexTimes.length) {
+                indexTimes = Arrays.copyOf(indexTimes, indexSize * 2);
+                indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+            }
+            indexTimes[indexSize] = time;
+            indexOffsets[indexSize] = offset;
+            indexSize++;
+        }
+
+        /**
+         * Offset of the last indexed entry strictly before a time, from which
+         * a forward read reaches every entry at or after it
+         */
+        long seek(long time) {
+            int low = 0;
+            int high = indexSize - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (indexTimes[middle] < time) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found >= 0 ? indexOffsets[found] : SEGMENT_HEADER_BYTES;
+        }
+    }
+
+    private static class EntityState {
+        private long position;
+        private long time;
+
+        EntityState(long position, long time) {
+            this.position = position;
+            this.time = time;
+        }
+    }
+
+    /**
+     * One logged audit event
+     */
+    public static class Entry {
+        private final long sequence;
+        private final long time;
+        private final String entityId;
+        private final String relatedId;
+        private final AuditEvent event;
+        private final String[] arguments;
+        private final long previousForEntity;
+        private final long previousForRelated;
+
+        Entry(long sequence, long time, String entityId, String relatedId, AuditEvent event, String[] arguments,
+              long previousForEntity, long previousForRelated) {
+            this.sequence = sequence;
+            this.time = time;
+            this.entityId = entityId;
+            this.relatedId = relatedId;
+            this.event = event;
+            this.arguments = arguments;
+            this.previousForEntity = previousForEntity;
+            this.previousForRelated = previousForRelated;
+        }
+
+        public long getSequence() { return sequence; }
+        public long getTime() { return time; }
+        public String getEntityId() { return entityId; }
+        public String getRelatedId() { return relatedId; }
+        public AuditEvent getEvent() { return event; }
+        public String[] getArguments() { return arguments.clone(); }
+
+        /**
+         * Format as "[yyyy-MM-dd HH:mm:ss] entity: message"
+         */
+        @Override
+        public String toString() {
+            String entry = AuditLog.format(time, event, arguments);
+            int split = entry.indexOf("] ") + 2;
+            return entry.substring(0, split) + entityId + ": " + entry.substring(split);
+        }
+    }
+}
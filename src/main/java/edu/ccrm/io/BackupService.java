@@ -7,8 +7,11 @@ import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -30,6 +33,8 @@ public class BackupService {
     
     /**
      * Create backup of application data
+     * With more than one backup thread configured, files are compressed in
+     * parallel blocks and the archive is assembled in order by one writer
      * @return path to backup file
      * @throws IOException if backup fails
      */
@@ -43,11 +48,18 @@ public class BackupService {
         
         System.out.println("Creating backup: " + backupPath);
         
+        if (config.getBackupThreads() > 1) {
+            createParallelBackup(backupPath);
+            return backupPath;
+        }
+        
         // Create backup using file visitor
         try (ZipOutputStream zipOut = new ZipOutputStream(
                 Files.newOutputStream(backupPath, StandardOpenOption.CREATE))) {
+            zipOut.setLevel(config.getBackupCompressionLevel());
             
             BackupFileVisitor visitor = new BackupFileVisitor(zipOut, config.getDataDirectory());
+            visitor.exclude(config.getBackupDirectory()); // Never back up the backups
             Files.walkFileTree(config.getDataDirectory(), visitor);
             
             // Skip export directory to avoid duplicates and large backup files
@@ -67,13 +79,236 @@ public class BackupService {
         return backupPath;
     }
     
+    /**
+     * Write the backup archive with the parallel compression pipeline
+     */
+    private void createParallelBackup(Path backupPath) throws IOException {
+        List<ParallelZipArchiver.SourceFile> files = new ArrayList<>();
+        BackupFileVisitor visitor = new BackupFileVisitor(files, config.getDataDirectory());
+        visitor.exclude(config.getBackupDirectory()); // Never back up the backups
+        Files.walkFileTree(config.getDataDirectory(), visitor);
+        
+        ParallelZipArchiver archiver = new ParallelZipArchiver(config.getBackupThreads(),
+            config.getBackupCompressionLevel());
+        ParallelZipArchiver.Result result = archiver.archive(files, backupPath);
+        
+        System.out.println("Backup created successfully");
+        System.out.println("Files backed up: " + result.getFiles());
+        System.out.println("Total size: " + formatFileSize(result.getBytesRead()) + " (" 
+            + formatFileSize(result.getBytesWritten()) + " compressed)");
+        System.out.println("Time: " + result.getElapsedMillis() + " ms with " + config.getBackupThreads() 
+            + " threads (" + formatFileSize(result.getBytesRead() * 1000 / Math.max(1, result.getElapsedMillis())) 
+            + "/s)");
+    }
+    
+    /**
+     * Restore application data from a backup archive
+     * The archive is extracted into a staging directory next to the data
+     * directory, with entries inflated and CRC-checked in parallel. Only an
+     * intact archive is swapped in: the backup directory is carried over,
+     * the current data directory is renamed aside and the staging directory
+     * renamed into its place. The previous data is kept, not deleted.
+     * Restart the application afterwards to load the restored data.
+     * @param backupPath backup archive to restore
+     * @return number of files restored
+     * @throws IOException if the archive is damaged or the swap fails
+     */
+    public int restoreBackup(Path backupPath) throws IOException {
+        if (!Files.exists(backupPath)) {
+            throw new IOException("Backup file does not exist: " + backupPath);
+        }
+        String timestamp = LocalDateTime.now().format(timestampFormatter);
+        Path dataDirectory = config.getDataDirectory().toAbsolutePath().normalize();
+        Path stagingDirectory = dataDirectory.resolveSibling(dataDirectory.getFileName() + ".restore_" + timestamp);
+        Path previousDirectory = dataDirectory.resolveSibling(dataDirectory.getFileName() + ".previous_" + timestamp);
+        
+        System.out.println("Restoring backup: " + backupPath.getFileName());
+        
+        ParallelZipExtractor.Result result;
+        try {
+            result = new ParallelZipExtractor(config.getBackupThreads()).extract(backupPath, stagingDirectory);
+        } catch (IOException e) {
+            deleteDirectory(stagingDirectory);
+            throw e;
+        }
+        if (!result.isIntact()) {
+            deleteDirectory(stagingDirectory);
+            throw new IOException("Backup is damaged, nothing restored: " 
+                + String.join(", ", result.getCorruptEntries()));
+        }
+        printThroughput("Extracted", result);
+        
+        // Carry the backups over; the archive never contains them
+        Path backupDirectory = config.getBackupDirectory().toAbsolutePath().normalize();
+        Path carriedBackups = null;
+        if (backupDirectory.startsWith(dataDirectory) && Files.isDirectory(backupDirectory)) {
+            carriedBackups = stagingDirectory.resolve(dataDirectory.relativize(backupDirectory));
+            if (Files.exists(carriedBackups)) {
+                deleteDirectory(stagingDirectory);
+                throw new IOException("Backup unexpectedly contains the backup directory: " + carriedBackups);
+            }
+            Files.createDirectories(carriedBackups.getParent());
+            Files.move(backupDirectory, carriedBackups, StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        try {
+            if (Files.exists(dataDirectory)) {
+                Files.move(dataDirectory, previousDirectory, StandardCopyOption.ATOMIC_MOVE);
+            }
+            try {
+                Files.move(stagingDirectory, dataDirectory, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                if (Files.exists(previousDirectory)) {
+                    Files.move(previousDirectory, dataDirectory, StandardCopyOption.ATOMIC_MOVE);
+                }
+                throw e;
+            }
+        } catch (IOException e) {
+            if (carriedBackups != null) {
+                Files.move(carriedBackups, backupDirectory, StandardCopyOption.ATOMIC_MOVE);
+            }
+            throw new IOException("Could not swap in restored data: " + e.getMessage(), e);
+        }
+        
+        System.out.println("Backup restored successfully: " + result.getEntries() + " files");
+        if (Files.exists(previousDirectory)) {
+            System.out.println("Previous data kept in: " + previousDirectory);
+        }
+        System.out.println("Restart the application to load the restored data");
+        return result.getEntries();
+    }
+    
+    /**
+     * Verify a backup archive without extracting it to disk
+     * Every entry is inflated in parallel and checked against its CRC and size
+     * @param backupPath backup archive to verify
+     * @return descriptions of damaged entries; empty if the backup is intact
+     * @throws IOException if the backup does not exist
+     */
+    public List<String> verifyBackup(Path backupPath) throws IOException {
+        if (!Files.exists(backupPath)) {
+            throw new IOException("Backup file does not exist: " + backupPath);
+        }
+        
+        System.out.println("Verifying backup: " + backupPath.getFileName());
+        
+        ParallelZipExtractor.Result result;
+        try {
+            result = new ParallelZipExtractor(config.getBackupThreads()).verify(backupPath);
+        } catch (ZipException e) {
+            System.out.println("Backup is unreadable: " + e.getMessage());
+            return List.of("archive (" + e.getMessage() + ")");
+        }
+        printThroughput("Checked", result);
+        
+        if (result.isIntact()) {
+            System.out.println("Backup is intact: " + result.getEntries() + " entries");
+        } else {
+            System.out.println("Backup is damaged: " + result.getCorruptEntries().size() + " of " 
+                + result.getEntries() + " entries");
+            for (String entry : result.getCorruptEntries()) {
+                System.out.println("  - " + entry);
+            }
+        }
+        return result.getCorruptEntries();
+    }
+    
+    private void printThroughput(String action, ParallelZipExtractor.Result result) {
+        System.out.println(action + " " + formatFileSize(result.getBytes()) + " in " + result.getElapsedMillis() 
+            + " ms with " + config.getBackupThreads() + " threads (" 
+            + formatFileSize(result.getBytes() * 1000 / Math.max(1, result.getElapsedMillis())) + "/s)");
+    }
+    
+    /**
+     * Delete a directory tree, e.g. an abandoned staging directory
+     */
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    /**
+     * Create an incremental backup of application data
+     * Only files whose size or modification time changed since the previous
+     * backup are read, and only chunks not stored by an earlier backup are written
+     * @return path to the backup manifest
+     * @throws IOException if backup fails
+     */
+    public Path createIncrementalBackup() throws IOException {
+        String timestamp = LocalDateTime.now().format(timestampFormatter);
+        String manifestName = IncrementalBackup.MANIFEST_PREFIX + timestamp + IncrementalBackup.MANIFEST_SUFFIX;
+        
+        System.out.println("Creating incremental backup: " + manifestName);
+        
+        IncrementalBackup.Result result = getIncrementalStore().backup(config.getDataDirectory(),
+            config.getBackupDirectory(), manifestName);
+        
+        System.out.println("Backup created successfully" + (result.isFull() ? " (full manifest)" : ""));
+        System.out.println("Files scanned: " + result.getFilesScanned() + " (" 
+            + formatFileSize(result.getBytesScanned()) + ")");
+        System.out.println("Files changed: " + result.getFilesChanged() + ", deleted: " + result.getFilesDeleted());
+        System.out.println("New chunks: " + result.getChunksStored() + " (" + formatFileSize(result.getBytesStored()) 
+            + " stored), reused: " + result.getChunksReused());
+        System.out.println("Time: " + result.getElapsedMillis() + " ms");
+        
+        return result.getManifest();
+    }
+    
+    /**
+     * Restore an incremental backup into a directory
+     * The backup's manifest chain is resolved and every file is reassembled
+     * from its chunks, with each chunk and file checked against its hash
+     * @param manifestPath manifest of the backup to restore
+     * @param targetDirectory directory to restore into
+     * @return number of files restored
+     * @throws IOException if the backup is incomplete or damaged
+     */
+    public int restoreIncrementalBackup(Path manifestPath, Path targetDirectory) throws IOException {
+        if (!Files.exists(manifestPath)) {
+            throw new IOException("Backup manifest does not exist: " + manifestPath);
+        }
+        IncrementalBackup store = new IncrementalBackup(manifestPath.toAbsolutePath().getParent());
+        int restored = store.restore(manifestPath, targetDirectory);
+        System.out.println("Restored " + restored + " files from " + manifestPath.getFileName());
+        return restored;
+    }
+    
+    /**
+     * List incremental backup manifests, oldest first
+     * @return array of manifest paths
+     * @throws IOException if listing fails
+     */
+    public Path[] listIncrementalBackups() throws IOException {
+        return getIncrementalStore().listManifests().toArray(new Path[0]);
+    }
+    
+    private IncrementalBackup getIncrementalStore() {
+        return new IncrementalBackup(config.getBackupDirectory().resolve("incremental"));
+    }
+    
     /**
      * File visitor for backup operations
      */
     private static class BackupFileVisitor extends SimpleFileVisitor<Path> {
         private final ZipOutputStream zipOut;
+        private final List<ParallelZipArchiver.SourceFile> files;
         private final Path rootPath;
         private final String prefix;
+        private Path excluded;
         private final AtomicLong fileCount = new AtomicLong(0);
         private final AtomicLong totalSize = new AtomicLong(0);
         
@@ -83,10 +318,36 @@ public class BackupService {
         
         public BackupFileVisitor(ZipOutputStream zipOut, Path rootPath, String prefix) {
             this.zipOut = zipOut;
+            this.files = null;
             this.rootPath = rootPath;
             this.prefix = prefix;
         }
         
+        /**
+         * Collect the files to back up instead of writing them
+         */
+        public BackupFileVisitor(List<ParallelZipArchiver.SourceFile> files, Path rootPath) {
+            this.zipOut = null;
+            this.files = files;
+            this.rootPath = rootPath;
+            this.prefix = "";
+        }
+        
+        /**
+         * Skip a directory and everything below it
+         */
+        public void exclude(Path directory) {
+            this.excluded = directory.toAbsolutePath().normalize();
+        }
+        
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (excluded != null && dir.toAbsolutePath().normalize().equals(excluded)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+        
         @Override
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
             // Skip hidden files and temporary files
@@ -99,6 +360,12 @@ public class BackupService {
             Path relativePath = rootPath.relativize(file);
             String entryName = prefix + relativePath.toString().replace('\\', '/');
             
+            if (files != null) {
+                files.add(new ParallelZipArchiver.SourceFile(file, entryName, attrs.size(),
+                    attrs.lastModifiedTime().toMillis()));
+                return FileVisitResult.CONTINUE;
+            }
+            
             // Add file to zip
             ZipEntry zipEntry = new ZipEntry(entryName);
             zipEntry.setTime(attrs.lastModifiedTime().toMillis());
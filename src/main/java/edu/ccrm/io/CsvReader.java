@@ -0,0 +1,287 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV reader
+ * Handles quoted fields, doubled-quote escapes, commas and line breaks inside
+ * quotes, and LF or CRLF record terminators. Works over a UTF-8 ByteBuffer
+ * (e.g. a mapped file), a CharBuffer, or a Reader that is buffered internally.
+ * Records are tokenized into a caller-supplied CsvRow as offsets into the
+ * buffer; no substrings are created until a field is read.
+ * Unquoted fields are trimmed, matching the import rules used so far; the
+ * content of quoted fields is kept exactly.
+ * Not thread-safe: use one reader per thread.
+ */
+public final class CsvReader {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer bytes; // UTF-8 source, or null
+    private final byte[] array; // Backing array of a heap byte source, read without buffer calls
+    private final int arrayOffset;
+    private CharBuffer chars; // Character source, or null
+    private final Reader reader; // Refills chars in streaming mode, or null
+    private boolean endOfInput;
+    private int position;
+    private byte[] scratch = new byte[64]; // Reused for UTF-8 decoding
+
+    /**
+     * Read records from a UTF-8 byte buffer, between its position and limit
+     * @param bytes source buffer
+     */
+    public CsvReader(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.array = bytes.hasArray() ? bytes.array() : null;
+        this.arrayOffset = bytes.hasArray() ? bytes.arrayOffset() : 0;
+        this.chars = null;
+        this.reader = null;
+        this.endOfInput = true;
+        this.position = bytes.position();
+    }
+
+    /**
+     * Read records from a character buffer, between its position and limit
+     * @param chars source buffer
+     */
+    public CsvReader(CharBuffer chars) {
+        this.bytes = null;
+        this.array = null;
+        this.arrayOffset = 0;
+        this.chars = chars;
+        this.reader = null;
+        this.endOfInput = true;
+        this.position = chars.position();
+    }
+
+    /**
+     * Read records from a character stream with bounded buffering
+     * The buffer only grows if a single record is larger than it
+     * @param reader source reader
+     */
+    public CsvReader(Reader reader) {
+        this.bytes = null;
+        this.array = null;
+        this.arrayOffset = 0;
+        this.chars = CharBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        this.chars.limit(0);
+        this.reader = reader;
+        this.endOfInput = false;
+        this.position = 0;
+    }
+
+    /**
+     * Parse a single record held in a string
+     * @param line record text
+     * @return field values
+     */
+    public static List<String> parseLine(CharSequence line) {
+        CsvReader reader = new CsvReader(CharBuffer.wrap(line));
+        CsvRow row = new CsvRow();
+        List<String> fields = new ArrayList<>();
+        if (reader.next(row)) {
+            for (int i = 0; i < row.getFieldCount(); i++) {
+                fields.add(row.getString(i));
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Tokenize the next record into a row
+     * The row stays valid until the next call
+     * @param row row to fill
+     * @return false when the input is exhausted
+     * @throws UncheckedIOException if the underlying reader fails
+     */
+    public boolean next(CsvRow row) {
+        while (true) {
+            if (position >= limit()) {
+                if (endOfInput || !fill()) {
+                    return false;
+                }
+                continue;
+            }
+            int end = tokenize(row, position);
+            if (end >= 0) {
+                position = end;
+                return true;
+            }
+            fill(); // Record runs past the buffered data
+        }
+    }
+
+    /**
+     * Tokenize one record starting at a position
+     * @return position after the record terminator, or -1 if more input is needed
+     */
+    private int tokenize(CsvRow row, int start) {
+        int limit = limit();
+        int pos = start;
+        row.begin(this, start);
+
+        while (true) {
+            while (pos < limit && isBlank(charAt(pos))) pos++;
+
+            int fieldStart;
+            int fieldEnd;
+            boolean quoted = pos < limit && charAt(pos) == '"';
+            boolean escaped = false;
+            boolean malformed = false;
+
+            if (quoted) {
+                fieldStart = ++pos;
+                while (true) {
+                    if (pos >= limit) {
+                        if (!endOfInput) {
+                            return -1;
+                        }
+                        malformed = true; // Unterminated quote
+                        break;
+                    }
+                    if (charAt(pos) == '"') {
+                        if (pos + 1 >= limit && !endOfInput) {
+                            return -1; // Cannot tell a closing quote from an escape yet
+                        }
+                        if (pos + 1 < limit && charAt(pos + 1) == '"') {
+                            escaped = true;
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                fieldEnd = Math.min(pos, limit);
+                pos = fieldEnd + 1;
+
+                // Only blanks may follow the closing quote
+                while (pos < limit && !isDelimiter(charAt(pos))) {
+                    if (!isBlank(charAt(pos))) {
+                        malformed = true;
+                    }
+                    pos++;
+                }
+            } else {
+                fieldStart = pos;
+                while (pos < limit && !isDelimiter(charAt(pos))) pos++;
+                fieldEnd = pos;
+                while (fieldEnd > fieldStart && isBlank(charAt(fieldEnd - 1))) fieldEnd--;
+            }
+
+            if (pos >= limit && !endOfInput) {
+                return -1; // Record terminator not buffered yet
+            }
+            row.addField(fieldStart, fieldEnd, quoted, escaped, malformed);
+
+            if (pos >= limit) {
+                row.end(limit);
+                return limit;
+            }
+            char delimiter = charAt(pos);
+            if (delimiter == ',') {
+                pos++;
+                continue;
+            }
+            row.end(pos);
+            if (delimiter == '\r') {
+                if (pos + 1 >= limit && !endOfInput) {
+                    return -1;
+                }
+                if (pos + 1 < limit && charAt(pos + 1) == '\n') {
+                    return pos + 2;
+                }
+            }
+            return pos + 1;
+        }
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == ',' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Move the unread tail to the front of the buffer and read more characters
+     * @return false if the reader is exhausted
+     */
+    private boolean fill() {
+        if (reader == null || endOfInput) {
+            return false;
+        }
+        try {
+            chars.position(position);
+            chars.compact();
+            if (!chars.hasRemaining()) {
+                CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+                chars.flip();
+                larger.put(chars);
+                chars = larger;
+            }
+            int read = reader.read(chars);
+            chars.flip();
+            position = 0;
+            if (read < 0) {
+                endOfInput = true;
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int limit() {
+        return bytes != null ? bytes.limit() : chars.limit();
+    }
+
+    /**
+     * Read the character at an absolute index
+     * Only ASCII is inspected by the tokenizer, so UTF-8 bytes can be compared directly
+     */
+    char charAt(int index) {
+        if (array != null) {
+            return (char) (array[arrayOffset + index] & 0xFF);
+        }
+        return bytes != null ? (char) (bytes.get(index) & 0xFF) : chars.get(index);
+    }
+
+    /**
+     * Decode a slice of the buffer into a String
+     * @param start first index
+     * @param end index after the last character
+     */
+    String decode(int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return "";
+        }
+        if (bytes == null && chars.hasArray()) {
+            return new String(chars.array(), chars.arrayOffset() + start, length);
+        }
+        if (bytes == null) {
+            char[] text = new char[length];
+            for (int i = 0; i < length; i++) {
+                text[i] = chars.get(start + i);
+            }
+            return new String(text);
+        }
+        if (array != null) {
+            return new String(array, arrayOffset + start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        bytes.get(start, scratch, 0, length); // One bulk copy out of a direct or mapped buffer
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,142 @@
+package edu.ccrm.io;
+
+import java.util.Arrays;
+
+/**
+ * One CSV record viewed as field slices over a CsvReader's buffer
+ * Tokenizing only records field offsets; Strings are created when a field is
+ * read with getString(), and numbers are parsed straight from the buffer
+ * A row is reused for every record a reader produces, so it is not thread-safe
+ * and is only valid until the reader's next call
+ */
+public final class CsvRow {
+    private static final byte QUOTED = 1;
+    private static final byte ESCAPED = 2; // Contains doubled quotes to unescape
+
+    private CsvReader source;
+    private int recordStart;
+    private int recordEnd;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private byte[] fieldFlags = new byte[16];
+    private int fieldCount;
+    private boolean malformed;
+
+    /**
+     * Start a new record
+     * @param source reader owning the buffer
+     * @param start index of the first character of the record
+     */
+    void begin(CsvReader source, int start) {
+        this.source = source;
+        this.recordStart = start;
+        this.recordEnd = start;
+        this.fieldCount = 0;
+        this.malformed = false;
+    }
+
+    /**
+     * Append a field slice
+     */
+    void addField(int start, int end, boolean quoted, boolean escaped, boolean malformed) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldFlags = Arrays.copyOf(fieldFlags, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldFlags[fieldCount] = (byte) ((quoted ? QUOTED : 0) | (escaped ? ESCAPED : 0));
+        fieldCount++;
+        this.malformed |= malformed;
+    }
+
+    /**
+     * Finish the record
+     * @param end index of the record terminator
+     */
+    void end(int end) {
+        this.recordEnd = end;
+    }
+
+    /**
+     * Get number of fields in the record
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Check whether the record is a blank line
+     */
+    public boolean isBlank() {
+        return fieldCount == 1 && fieldFlags[0] == 0 && fieldEnds[0] == fieldStarts[0];
+    }
+
+    /**
+     * Check whether any field had an unterminated quote or text after its closing quote
+     */
+    public boolean isMalformed() {
+        return malformed;
+    }
+
+    /**
+     * Check whether a field is missing or empty
+     */
+    public boolean isEmpty(int index) {
+        return index >= fieldCount || fieldEnds[index] == fieldStarts[index];
+    }
+
+    /**
+     * Get a field as a String, with quotes removed and escapes resolved
+     * @param index field index
+     * @return field value
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        String value = source.decode(fieldStarts[index], fieldEnds[index]);
+        return (fieldFlags[index] & ESCAPED) != 0 ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Parse a field as an int without creating a String
+     * @param index field index
+     * @return parsed value
+     * @throws NumberFormatException if the field is not an integer
+     */
+    public int getInt(int index) {
+        checkIndex(index);
+        int position = fieldStarts[index];
+        int end = fieldEnds[index];
+        if (position == end) {
+            throw new NumberFormatException("Empty numeric field " + index);
+        }
+
+        boolean negative = source.charAt(position) == '-';
+        if (negative && ++position == end) {
+            throw new NumberFormatException("Invalid number in field " + index + ": -");
+        }
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = source.charAt(position) - '0';
+            value = value * 10 + digit;
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE + (negative ? 1L : 0L)) {
+                throw new NumberFormatException("Invalid number in field " + index + ": " + getString(index));
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Decode the raw record text, for error messages
+     */
+    public String getLine() {
+        return source.decode(recordStart, recordEnd);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of bounds for " + fieldCount + " fields");
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * RFC 4180 CSV writer
+ * Fields containing commas, quotes or line breaks, or with surrounding blanks
+ * that CsvReader would trim, are quoted and their quotes doubled; everything
+ * else is written as is. Integers and dates are written digit by digit, without
+ * String.format or intermediate Strings.
+ * A writer either appends straight to a StringBuilder or streams into a
+ * Writer through its own reusable char buffer, so exports never hold more
+ * than one buffer of output in memory.
+ * I/O failures of the target are rethrown as UncheckedIOException so the
+ * writer can be used from streams and toCsv() implementations.
+ */
+public final class CsvWriter implements Flushable, Closeable {
+    private static final char LINE_END = '\n';
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final StringBuilder text; // Direct target, or null
+    private final Writer writer; // Buffered target, or null
+    private final char[] buffer;
+    private int count;
+    private final char[] digits = new char[20]; // Long.MIN_VALUE has 19 digits plus sign
+    private boolean rowStarted;
+    private long rowsWritten;
+
+    /**
+     * Constructor appending to a StringBuilder; no flushing is needed
+     * @param text target builder
+     */
+    public CsvWriter(StringBuilder text) {
+        this.text = text;
+        this.writer = null;
+        this.buffer = null;
+    }
+
+    /**
+     * Constructor streaming into a Writer
+     * Call flush() or close() when done
+     * @param writer target writer; it does not need to be buffered
+     */
+    public CsvWriter(Writer writer) {
+        this.text = null;
+        this.writer = writer;
+        this.buffer = new char[DEFAULT_BUFFER_SIZE];
+    }
+
+    /**
+     * Format values as one CSV record without a line terminator
+     * Null values become empty fields
+     * @param values field values
+     * @return CSV record
+     */
+    public static String formatRecord(Object... values) {
+        StringBuilder record = new StringBuilder(values.length * 12);
+        CsvWriter writer = new CsvWriter(record);
+        for (Object value : values) {
+            writer.field(value != null ? value.toString() : null);
+        }
+        return record.toString();
+    }
+
+    /**
+     * Write a text field, quoting it when needed
+     * @param value field value, null for an empty field
+     * @return this writer
+     */
+    public CsvWriter field(CharSequence value) {
+        separate();
+        if (value == null || value.length() == 0) {
+            return this;
+        }
+        if (!needsQuoting(value)) {
+            put(value);
+            return this;
+        }
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                put('"');
+            }
+            put(c);
+        }
+        put('"');
+        return this;
+    }
+
+    /**
+     * Write an integer field
+     * @param value field value
+     * @return this writer
+     */
+    public CsvWriter field(long value) {
+        separate();
+        putLong(value);
+        return this;
+    }
+
+    /**
+     * Write a decimal field rounded half-up to a fixed number of places
+     * Matches String.format("%.Nf"): like Formatter, it rounds the shortest
+     * decimal form of the double (1.005 becomes 1.01) and keeps the sign of
+     * a negative value that rounds to zero
+     * @param value field value
+     * @param decimals digits after the point, 0 to 6
+     * @return this writer
+     */
+    public CsvWriter field(double value, int decimals) {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Decimals must be between 0 and " + (POWERS_OF_TEN.length - 1));
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return field(Double.toString(value));
+        }
+        separate();
+        if (Math.copySign(1.0, value) < 0) {
+            put('-');
+        }
+        BigDecimal rounded = BigDecimal.valueOf(Math.abs(value)).setScale(decimals, RoundingMode.HALF_UP);
+        BigInteger unscaled = rounded.unscaledValue();
+        if (unscaled.bitLength() >= Long.SIZE - 1) {
+            put(rounded.toPlainString());
+            return this;
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = unscaled.longValue();
+        putLong(scaled / scale);
+        if (decimals > 0) {
+            put('.');
+            long fraction = scaled % scale;
+            for (long place = scale / 10; place > 0; place /= 10) {
+                put((char) ('0' + fraction / place % 10));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Write a date field in ISO format (yyyy-MM-dd)
+     * @param date field value, null for an empty field
+     * @return this writer
+     */
+    public CsvWriter field(LocalDate date) {
+        if (date == null || date.getYear() < 0 || date.getYear() > 9999) {
+            return field(date != null ? date.toString() : null);
+        }
+        separate();
+        putPadded(date.getYear(), 4);
+        put('-');
+        putPadded(date.getMonthValue(), 2);
+        put('-');
+        putPadded(date.getDayOfMonth(), 2);
+        return this;
+    }
+
+    /**
+     * Terminate the current record
+     */
+    public void endRow() {
+        put(LINE_END);
+        rowStarted = false;
+        rowsWritten++;
+    }
+
+    /**
+     * Get number of records terminated with endRow()
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Write buffered output to the target writer
+     */
+    @Override
+    public void flush() {
+        if (writer == null) {
+            return;
+        }
+        drain();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flush and close the target writer
+     */
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        drain();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the field separator unless this is the first field of the record
+     */
+    private void separate() {
+        if (rowStarted) {
+            put(',');
+        }
+        rowStarted = true;
+    }
+
+    private void put(char c) {
+        if (text != null) {
+            text.append(c);
+            return;
+        }
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = c;
+    }
+
+    private void put(CharSequence value) {
+        if (text != null) {
+            text.append(value);
+            return;
+        }
+        int length = value.length();
+        if (value instanceof String && length <= buffer.length - count) {
+            ((String) value).getChars(0, length, buffer, count);
+            count += length;
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            put(value.charAt(i));
+        }
+    }
+
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            put("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (; position < digits.length; position++) {
+            put(digits[position]);
+        }
+    }
+
+    /**
+     * Write a non-negative number left-padded with zeros to a minimum width
+     */
+    private void putPadded(int value, int width) {
+        for (long place = POWERS_OF_TEN[width - 1]; place > 1 && value < place; place /= 10) {
+            put('0');
+        }
+        putLong(value);
+    }
+
+    /**
+     * Hand the buffered characters to the target writer
+     */
+    private void drain() {
+        if (count == 0) {
+            return;
+        }
+        try {
+            writer.write(buffer, 0, count);
+            count = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Check whether a value must be quoted to survive a round trip through CsvReader
+     */
+    static boolean needsQuoting(CharSequence value) {
+        int length = value.length();
+        char first = value.charAt(0);
+        char last = value.charAt(length - 1);
+        if (first == ' ' || first == '\t' || last == ' ' || last == '\t') {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,13 +2,25 @@ package edu.ccrm.io;
 
 import edu.ccrm.domain.*;
 import edu.ccrm.config.AppConfig;
+import edu.ccrm.service.MappedStudentStore;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.nio.file.*;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,6 +30,17 @@ import java.util.stream.Stream;
  */
 public class ImportExportService {
     
+    private static final String[] STUDENT_HEADER = {"student_id", "reg_no", "first_name", "last_name", 
+        "email", "department", "semester", "gpa", "status", "enrollment_date"};
+    private static final String[] COURSE_HEADER = {"course_code", "title", "credits", "department", 
+        "semester", "instructor_id", "max_capacity", "current_enrollment", "status"};
+    private static final String[] TOMBSTONE_HEADER = {"entity_type", "id"};
+    
+    private static final String EXPORT_STATE_FILE = "export_state.properties";
+    private static final String STATE_BASE = "base";
+    private static final String STATE_LAST = "last";
+    private static final String STATE_SEQUENCE = "sequence";
+    
     private final AppConfig config;
     private final DateTimeFormatter dateFormatter;
     
@@ -43,14 +66,9 @@ public class ImportExportService {
         
         System.out.println("Importing students from: " + csvFilePath);
         
-        try (Stream<String> lines = Files.lines(csvFilePath, StandardCharsets.UTF_8)) {
-            List<Student> students = lines
-                .skip(1) // Skip header line
-                .filter(line -> !line.trim().isEmpty()) // Filter empty lines
-                .map(this::parseStudentFromCsv)
-                .filter(Objects::nonNull) // Filter failed parsing attempts
-                .collect(Collectors.toList());
-            
+        List<Student> students = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(csvFilePath, StandardCharsets.UTF_8)) {
+            readRecords(reader, this::parseStudentRow, students::add);
             System.out.println("Successfully imported " + students.size() + " students");
             return students;
         } catch (IOException e) {
@@ -60,91 +78,310 @@ public class ImportExportService {
     }
     
     /**
-     * Parse student from CSV line
-     * @param csvLine CSV line
+     * Stream students from a CSV file into a sink in bounded batches
+     * Only one batch is held in memory at a time, so heap use stays flat
+     * regardless of file size
+     * @param csvFilePath path to CSV file
+     * @param batchSize maximum number of records per batch
+     * @param sink receives each batch and returns how many records it added
+     *             (e.g. studentService::addStudents, which skips duplicates)
+     * @return import statistics
+     * @throws IOException if file operations fail
+     */
+    public ImportStatistics streamStudents(Path csvFilePath, int batchSize, 
+                                           ToIntFunction<List<Student>> sink) throws IOException {
+        return streamCsv(csvFilePath, batchSize, this::parseStudentRow, sink, "students");
+    }
+    
+    /**
+     * Stream students from a CSV file straight into a memory-mapped store
+     * Nothing is added to a StudentService, so the population never has to fit
+     * on the heap; serve it with new StudentService(store). Rows with an ID
+     * already written are skipped like duplicates in addStudents()
+     * @param csvFilePath path to CSV file
+     * @param batchSize maximum number of records per batch
+     * @param storePath store file, replaced only if the whole file is imported
+     * @return the opened store
+     * @throws IOException if file operations fail
+     */
+    public MappedStudentStore importStudentsToStore(Path csvFilePath, int batchSize, Path storePath)
+            throws IOException {
+        try (MappedStudentStore.Writer writer = new MappedStudentStore.Writer(storePath)) {
+            streamStudents(csvFilePath, batchSize, batch -> {
+                int added = 0;
+                for (Student student : batch) {
+                    try {
+                        if (writer.add(student)) {
+                            added++;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e); // Unwrapped by streamCsv()
+                    }
+                }
+                return added;
+            });
+            return writer.finish();
+        }
+    }
+    
+    /**
+     * Stream courses from a CSV file into a sink in bounded batches
+     * @param csvFilePath path to CSV file
+     * @param batchSize maximum number of records per batch
+     * @param sink receives each batch and returns how many records it added
+     *             (e.g. courseService::addCourses)
+     * @return import statistics
+     * @throws IOException if file operations fail
+     */
+    public ImportStatistics streamCourses(Path csvFilePath, int batchSize, 
+                                          ToIntFunction<List<Course>> sink) throws IOException {
+        return streamCsv(csvFilePath, batchSize, this::parseCourseRow, sink, "courses");
+    }
+    
+    /**
+     * Read a CSV file line by line, parse each row and push batches to a sink
+     * @param csvFilePath path to CSV file
+     * @param batchSize maximum number of records per batch
+     * @param parser row parser returning null for rejected rows
+     * @param sink batch consumer returning the number of records it added
+     * @param label record type for messages
+     * @return import statistics
+     * @throws IOException if file operations fail
+     */
+    private <T> ImportStatistics streamCsv(Path csvFilePath, int batchSize, Function<CsvRow, T> parser,
+                                           ToIntFunction<List<T>> sink, String label) throws IOException {
+        assert batchSize > 0 : "Batch size must be positive";
+        if (!Files.exists(csvFilePath)) {
+            throw new IOException("File does not exist: " + csvFilePath);
+        }
+        
+        System.out.println("Streaming " + label + " from: " + csvFilePath);
+        
+        List<MemoryPoolMXBean> heapPools = getHeapPools();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long startTime = System.nanoTime();
+        long rowsRead = 0;
+        long imported = 0;
+        
+        List<T> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(csvFilePath, StandardCharsets.UTF_8)) {
+            CsvReader csv = new CsvReader(reader);
+            CsvRow row = new CsvRow();
+            csv.next(row); // Skip header line
+            
+            while (csv.next(row)) {
+                if (row.isBlank()) {
+                    continue;
+                }
+                rowsRead++;
+                
+                T record = parser.apply(row);
+                if (record != null) {
+                    batch.add(record);
+                }
+                if (batch.size() == batchSize) {
+                    imported += sink.applyAsInt(batch); // Duplicates the sink skipped count as rejected
+                    batch = new ArrayList<>(batchSize); // The sink may keep the previous batch
+                }
+            }
+            
+            if (!batch.isEmpty()) {
+                imported += sink.applyAsInt(batch);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        long peakHeap = heapPools.stream()
+            .mapToLong(pool -> pool.getPeakUsage().getUsed())
+            .sum();
+        ImportStatistics statistics = new ImportStatistics(label, rowsRead, imported, 
+            System.nanoTime() - startTime, peakHeap);
+        System.out.println(statistics);
+        return statistics;
+    }
+    
+    /**
+     * Import students from a large CSV file using all available cores
+     * The file is memory-mapped and parsed in newline-aligned chunks
+     * @param csvFilePath path to CSV file
+     * @return imported students in file order
+     * @throws IOException if file operations fail
+     */
+    public List<Student> importStudentsParallel(Path csvFilePath) throws IOException {
+        return importParallel(csvFilePath, this::parseStudentRow, "students");
+    }
+    
+    /**
+     * Import courses from a large CSV file using all available cores
+     * @param csvFilePath path to CSV file
+     * @return imported courses in file order
+     * @throws IOException if file operations fail
+     */
+    public List<Course> importCoursesParallel(Path csvFilePath) throws IOException {
+        return importParallel(csvFilePath, this::parseCourseRow, "courses");
+    }
+    
+    /**
+     * Run the parallel parser and report statistics
+     * @param csvFilePath path to CSV file
+     * @param mapper row mapper returning null for rejected rows
+     * @param label record type for messages
+     * @return parsed records in file order
+     * @throws IOException if file operations fail
+     */
+    private <T> List<T> importParallel(Path csvFilePath, Function<CsvRow, T> mapper, 
+                                       String label) throws IOException {
+        if (!Files.exists(csvFilePath)) {
+            throw new IOException("File does not exist: " + csvFilePath);
+        }
+        
+        System.out.println("Importing " + label + " in parallel from: " + csvFilePath);
+        
+        List<MemoryPoolMXBean> heapPools = getHeapPools();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long startTime = System.nanoTime();
+        
+        ParallelCsvParser.ParseResult<T> result = new ParallelCsvParser().parse(csvFilePath, true, mapper);
+        
+        long peakHeap = heapPools.stream()
+            .mapToLong(pool -> pool.getPeakUsage().getUsed())
+            .sum();
+        System.out.println(new ImportStatistics(label, result.getRowsRead(), result.getRecords().size(), 
+            System.nanoTime() - startTime, peakHeap));
+        return result.getRecords();
+    }
+    
+    /**
+     * Read all records after the header and pass the parsed ones to a consumer
+     * @param reader character source
+     * @param parser row parser returning null for rejected rows
+     * @param consumer receives parsed records in file order
+     * @throws IOException if reading fails
+     */
+    private <T> void readRecords(Reader reader, Function<CsvRow, T> parser, 
+                                 Consumer<T> consumer) throws IOException {
+        try {
+            CsvReader csv = new CsvReader(reader);
+            CsvRow row = new CsvRow();
+            csv.next(row); // Skip header line
+            while (csv.next(row)) {
+                if (!row.isBlank()) {
+                    T record = parser.apply(row);
+                    if (record != null) {
+                        consumer.accept(record);
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Get the heap memory pools used for high-water mark reporting
+     */
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Parse student from a CSV row
+     * @param row CSV row
      * @return Student object or null if parsing fails
      */
-    private Student parseStudentFromCsv(String csvLine) {
+    private Student parseStudentRow(CsvRow row) {
         try {
-            String[] fields = csvLine.split(",");
-            if (fields.length < 6) {
-                System.err.println("Invalid CSV line (insufficient fields): " + csvLine);
+            if (row.isMalformed()) {
+                System.err.println("Invalid CSV line (unbalanced quotes): " + row.getLine());
+                return null;
+            }
+            if (row.getFieldCount() < 6) {
+                System.err.println("Invalid CSV line (insufficient fields): " + row.getLine());
                 return null;
             }
             
-            String id = fields[0].trim();
-            String regNo = fields[1].trim();
-            String firstName = fields[2].trim();
-            String lastName = fields[3].trim();
-            String email = fields[4].trim();
-            String department = fields[5].trim();
-            int semester = fields.length > 6 ? Integer.parseInt(fields[6].trim()) : 1;
-            
-            Name name = new Name(firstName, lastName);
+            Name name = new Name(row.getString(2), row.getString(3));
             LocalDate dateOfBirth = LocalDate.now().minusYears(20); // Default age
             
-            Student student = new Student(id, regNo, name, email, dateOfBirth, department);
-            student.setCurrentSemester(semester);
+            Student student = new Student(row.getString(0), row.getString(1), name, 
+                row.getString(4), dateOfBirth, row.getString(5));
+            student.setCurrentSemester(row.getFieldCount() > 6 ? row.getInt(6) : 1);
             
             return student;
             
         } catch (Exception e) {
-            System.err.println("Error parsing student CSV line: " + csvLine + " - " + e.getMessage());
+            System.err.println("Error parsing student CSV line: " + row.getLine() + " - " + e.getMessage());
             return null;
         }
     }
     
     /**
      * Export students to CSV file
+     * Rows are streamed straight to the file without building an in-memory copy
      * @param students list of students to export
      * @param csvFilePath output file path
      * @throws IOException if file operations fail
      */
     public void exportStudents(List<Student> students, Path csvFilePath) throws IOException {
-        // Ensure parent directory exists
-        Path parentDir = csvFilePath.getParent();
-        if (parentDir != null) {
-            Files.createDirectories(parentDir);
-        }
-        
         System.out.println("Exporting " + students.size() + " students to: " + csvFilePath);
-        
-        List<String> lines = new ArrayList<>();
-        
-        // Add header
-        lines.add("student_id,reg_no,first_name,last_name,email,department,semester,gpa,status,enrollment_date");
-        
-        // Add student data using Stream API
-        List<String> studentLines = students.stream()
-            .map(this::formatStudentAsCsv)
-            .collect(Collectors.toList());
-        
-        lines.addAll(studentLines);
-        
-        // Write to file using NIO.2
-        Files.write(csvFilePath, lines, StandardCharsets.UTF_8, 
-                   StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        
+        writeCsv(csvFilePath, STUDENT_HEADER, students, this::writeStudentRow);
         System.out.println("Students exported successfully");
     }
     
     /**
-     * Format student as CSV line
+     * Write one student as a CSV record
+     * @param csv target writer
      * @param student student object
-     * @return CSV formatted string
      */
-    private String formatStudentAsCsv(Student student) {
-        return String.format("%s,%s,%s,%s,%s,%s,%d,%.2f,%s,%s",
-            student.getId(),
-            student.getRegistrationNumber(),
-            student.getName().getFirstName(),
-            student.getName().getLastName(),
-            student.getEmail(),
-            student.getDepartment(),
-            student.getCurrentSemester(),
-            student.calculateGPA(),
-            student.isActive() ? "ACTIVE" : "INACTIVE",
-            student.getEnrollmentDate().format(dateFormatter));
+    private void writeStudentRow(CsvWriter csv, Student student) {
+        csv.field(student.getId())
+            .field(student.getRegistrationNumber())
+            .field(student.getName().getFirstName())
+            .field(student.getName().getLastName())
+            .field(student.getEmail())
+            .field(student.getDepartment())
+            .field(student.getCurrentSemester())
+            .field(student.calculateGPA(), 2)
+            .field(student.isActive() ? "ACTIVE" : "INACTIVE")
+            .field(student.getEnrollmentDate());
+    }
+    
+    /**
+     * Stream records into a CSV file through a single reusable buffer
+     * @param csvFilePath output file path; parent directories are created
+     * @param header column names
+     * @param records records to write
+     * @param rowWriter writes the fields of one record
+     * @return number of data rows written
+     * @throws IOException if file operations fail
+     */
+    private <T> long writeCsv(Path csvFilePath, String[] header, Iterable<T> records,
+                              BiConsumer<CsvWriter, T> rowWriter) throws IOException {
+        Path parentDir = csvFilePath.getParent();
+        if (parentDir != null) {
+            Files.createDirectories(parentDir);
+        }
+        
+        try (CsvWriter csv = new CsvWriter(new OutputStreamWriter(
+                Files.newOutputStream(csvFilePath, StandardOpenOption.CREATE, 
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 
+                StandardCharsets.UTF_8))) {
+            for (String column : header) {
+                csv.field(column);
+            }
+            csv.endRow();
+            
+            for (T record : records) {
+                rowWriter.accept(csv, record);
+                csv.endRow();
+            }
+            return csv.getRowsWritten() - 1; // Header is not a data row
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
     
     /**
@@ -160,71 +397,86 @@ public class ImportExportService {
         
         System.out.println("Importing courses from: " + csvFilePath);
         
-        try (Stream<String> lines = Files.lines(csvFilePath, StandardCharsets.UTF_8)) {
-            List<Course> courses = lines
-                .skip(1) // Skip header
-                .filter(line -> !line.trim().isEmpty())
-                .map(this::parseCourseFromCsv)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-            
-            System.out.println("Successfully imported " + courses.size() + " courses");
-            return courses;
+        List<Course> courses = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(csvFilePath, StandardCharsets.UTF_8)) {
+            readRecords(reader, this::parseCourseRow, courses::add);
         }
+        
+        System.out.println("Successfully imported " + courses.size() + " courses");
+        return courses;
     }
     
     /**
-     * Parse course from CSV line using Builder pattern
-     * @param csvLine CSV line
+     * Parse course from a CSV row using Builder pattern
+     * @param row CSV row
      * @return Course object or null if parsing fails
      */
-    private Course parseCourseFromCsv(String csvLine) {
+    private Course parseCourseRow(CsvRow row) {
         try {
-            String[] fields = csvLine.split(",");
-            if (fields.length < 6) {
-                System.err.println("Invalid CSV line: " + csvLine);
+            if (row.isMalformed()) {
+                System.err.println("Invalid CSV line (unbalanced quotes): " + row.getLine());
                 return null;
             }
-            
-            String codeStr = fields[0].trim();
-            String title = fields[1].trim();
-            int credits = Integer.parseInt(fields[2].trim());
-            String department = fields[3].trim();
-            String semesterStr = fields[4].trim();
-            String instructorId = fields.length > 5 ? fields[5].trim() : null;
-            int maxCapacity = fields.length > 6 ? Integer.parseInt(fields[6].trim()) : 30;
-            
-            // Parse course code (assuming format like "CS101-A")
-            String[] codeParts = codeStr.split("-");
-            if (codeParts.length != 2) {
-                System.err.println("Invalid course code format: " + codeStr);
+            if (row.getFieldCount() < 6) {
+                System.err.println("Invalid CSV line: " + row.getLine());
                 return null;
             }
             
-            String deptCode = codeParts[0].replaceAll("\\d", "");
-            int courseNumber = Integer.parseInt(codeParts[0].replaceAll("\\D", ""));
-            String section = codeParts[1];
-            
-            CourseCode courseCode = new CourseCode(deptCode, courseNumber, section);
-            Semester semester = Semester.valueOf(semesterStr.toUpperCase());
+            CourseCode courseCode = parseCourseCode(row.getString(0));
+            if (courseCode == null) {
+                return null;
+            }
+            Semester semester = Semester.valueOf(row.getString(4).toUpperCase());
+            int maxCapacity = row.getFieldCount() > 6 ? row.getInt(6) : 30;
             
-            // Use Builder pattern
-            Course.Builder builder = new Course.Builder(courseCode, title)
-                .credits(credits)
-                .department(department)
+            Course.Builder builder = new Course.Builder(courseCode, row.getString(1))
+                .credits(row.getInt(2))
+                .department(row.getString(3))
                 .semester(semester)
                 .maxCapacity(maxCapacity);
             
-            if (instructorId != null && !instructorId.isEmpty()) {
-                builder.instructor(instructorId);
+            if (!row.isEmpty(5)) {
+                builder.instructor(row.getString(5));
             }
             
             return builder.build();
             
         } catch (Exception e) {
-            System.err.println("Error parsing course CSV line: " + csvLine + " - " + e.getMessage());
+            System.err.println("Error parsing course CSV line: " + row.getLine() + " - " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Parse a course code in the form "CS101-A" without regular expressions
+     * Letters before the dash form the department code and digits the course number
+     * @param codeStr course code text
+     * @return CourseCode, or null if the format is invalid
+     */
+    private CourseCode parseCourseCode(String codeStr) {
+        int dash = codeStr.indexOf('-');
+        if (dash < 0 || codeStr.indexOf('-', dash + 1) >= 0 || dash == codeStr.length() - 1) {
+            System.err.println("Invalid course code format: " + codeStr);
             return null;
         }
+        
+        StringBuilder deptCode = new StringBuilder(dash);
+        int courseNumber = 0;
+        boolean hasDigits = false;
+        for (int i = 0; i < dash; i++) {
+            char c = codeStr.charAt(i);
+            if (c >= '0' && c <= '9') {
+                courseNumber = courseNumber * 10 + (c - '0');
+                hasDigits = true;
+            } else {
+                deptCode.append(c);
+            }
+        }
+        if (!hasDigits) {
+            throw new NumberFormatException("Course code has no number: " + codeStr);
+        }
+        
+        return CourseCode.of(deptCode.toString(), courseNumber, codeStr.substring(dash + 1));
     }
     
     /**
@@ -234,43 +486,31 @@ public class ImportExportService {
      * @throws IOException if file operations fail
      */
     public void exportCourses(List<Course> courses, Path csvFilePath) throws IOException {
-        Files.createDirectories(csvFilePath.getParent());
-        
         System.out.println("Exporting " + courses.size() + " courses to: " + csvFilePath);
-        
-        List<String> lines = new ArrayList<>();
-        lines.add("course_code,title,credits,department,semester,instructor_id,max_capacity,current_enrollment,status");
-        
-        courses.stream()
-            .map(this::formatCourseAsCsv)
-            .forEach(lines::add);
-        
-        Files.write(csvFilePath, lines, StandardCharsets.UTF_8, 
-                   StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        
+        writeCsv(csvFilePath, COURSE_HEADER, courses, this::writeCourseRow);
         System.out.println("Courses exported successfully");
     }
     
     /**
-     * Format course as CSV line
+     * Write one course as a CSV record
+     * @param csv target writer
      * @param course course object
-     * @return CSV formatted string
      */
-    private String formatCourseAsCsv(Course course) {
-        return String.format("%s,%s,%d,%s,%s,%s,%d,%d,%s",
-            course.getCourseCode().getFullCode(),
-            course.getTitle().replace(",", ";"), // Handle commas in title
-            course.getCredits(),
-            course.getDepartment(),
-            course.getSemester().name(),
-            course.getInstructorId() != null ? course.getInstructorId() : "",
-            course.getMaxCapacity(),
-            course.getCurrentEnrollment(),
-            course.isActive() ? "ACTIVE" : "INACTIVE");
+    private void writeCourseRow(CsvWriter csv, Course course) {
+        csv.field(course.getCourseCode().getFullCode())
+            .field(course.getTitle())
+            .field(course.getCredits())
+            .field(course.getDepartment())
+            .field(course.getSemester().name())
+            .field(course.getInstructorId())
+            .field(course.getMaxCapacity())
+            .field(course.getCurrentEnrollment())
+            .field(course.isActive() ? "ACTIVE" : "INACTIVE");
     }
     
     /**
      * Export system data to timestamped directory
+     * Entity files are written in parallel; the summary is written last
      * @param students list of students
      * @param courses list of courses
      * @return path to export directory
@@ -278,38 +518,204 @@ public class ImportExportService {
      */
     public Path exportSystemData(List<Student> students, List<Course> courses) throws IOException {
         // Create timestamped export directory
-        String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        String timestamp = LocalDate.now().format(dateFormatter);
         Path exportDir = config.getExportDirectory().resolve("export_" + timestamp);
         Files.createDirectories(exportDir);
         
         System.out.println("Exporting system data to: " + exportDir);
+        long startTime = System.nanoTime();
+        
+        // A full export saves everything, so it becomes the base for later deltas
+        students.forEach(Student::markSaved);
+        courses.forEach(Course::markSaved);
         
-        // Export students
+        ParallelExporter exporter = new ParallelExporter();
         if (!students.isEmpty()) {
-            exportStudents(students, exportDir.resolve("students.csv"));
+            exporter.addEntity("students.csv", STUDENT_HEADER, students, this::writeStudentRow);
         }
-        
-        // Export courses
         if (!courses.isEmpty()) {
-            exportCourses(courses, exportDir.resolve("courses.csv"));
+            exporter.addEntity("courses.csv", COURSE_HEADER, courses, this::writeCourseRow);
+        }
+        List<ParallelExporter.ExportedFile> files;
+        try {
+            files = exporter.run(exportDir);
+        } catch (IOException | RuntimeException e) {
+            students.forEach(Student::markModified);
+            courses.forEach(Course::markModified);
+            throw e;
         }
         
         // Create export summary
-        createExportSummary(exportDir, students.size(), courses.size());
+        createExportSummary(exportDir, students.size(), courses.size(), files);
         
-        System.out.println("System data export completed");
+        Properties state = new Properties();
+        state.setProperty(STATE_BASE, exportDir.getFileName().toString());
+        state.setProperty(STATE_LAST, exportDir.getFileName().toString());
+        state.setProperty(STATE_SEQUENCE, "0");
+        saveExportState(state);
+        
+        System.out.println("System data export completed in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
         return exportDir;
     }
     
+    /**
+     * Export only the records changed since the last export
+     * Changed active records go to students.csv and courses.csv, deactivated
+     * ones to tombstones.csv, and delta_manifest.properties links the delta to
+     * its base export and to the previous delta. Applying the base and then
+     * every delta in sequence order reproduces the current data.
+     * Falls back to a full export when there is no base export yet.
+     * @param students all students
+     * @param courses all courses
+     * @return path to the delta directory
+     * @throws IOException if export fails; changed records stay flagged for the next attempt
+     */
+    public Path exportDelta(List<Student> students, List<Course> courses) throws IOException {
+        Path exportRoot = config.getExportDirectory();
+        Properties state = loadExportState();
+        String base = state.getProperty(STATE_BASE);
+        if (base == null || !Files.isDirectory(exportRoot.resolve(base))) {
+            System.out.println("No base export found, running a full export");
+            return exportSystemData(students, courses);
+        }
+        
+        long sequence = Long.parseLong(state.getProperty(STATE_SEQUENCE, "0")) + 1;
+        String previous = state.getProperty(STATE_LAST, base);
+        Path deltaDir = exportRoot.resolve(String.format("delta_%s_%04d", LocalDate.now().format(dateFormatter), sequence));
+        Files.createDirectories(deltaDir);
+        
+        System.out.println("Exporting changes since " + previous + " to: " + deltaDir);
+        long startTime = System.nanoTime();
+        
+        // Clearing each flag before the record is read means a concurrent change
+        // is either included here or flags the record for the next delta
+        List<Student> changedStudents = claimChanges(students);
+        List<Course> changedCourses = claimChanges(courses);
+        
+        List<Student> updatedStudents = new ArrayList<>();
+        List<Course> updatedCourses = new ArrayList<>();
+        List<Persistable> tombstones = new ArrayList<>();
+        for (Student student : changedStudents) {
+            if (student.isActive()) {
+                updatedStudents.add(student);
+            } else {
+                tombstones.add(student);
+            }
+        }
+        for (Course course : changedCourses) {
+            if (course.isActive()) {
+                updatedCourses.add(course);
+            } else {
+                tombstones.add(course);
+            }
+        }
+        
+        ParallelExporter exporter = new ParallelExporter();
+        exporter.addEntity("students.csv", STUDENT_HEADER, updatedStudents, this::writeStudentRow);
+        exporter.addEntity("courses.csv", COURSE_HEADER, updatedCourses, this::writeCourseRow);
+        exporter.addEntity("tombstones.csv", TOMBSTONE_HEADER, tombstones, 
+            (csv, record) -> csv.field(record.getObjectType()).field(record.getId()));
+        try {
+            List<ParallelExporter.ExportedFile> files = exporter.run(deltaDir);
+            writeDeltaManifest(deltaDir, sequence, base, previous, files);
+        } catch (IOException | RuntimeException e) {
+            changedStudents.forEach(Student::markModified);
+            changedCourses.forEach(Course::markModified);
+            throw e;
+        }
+        
+        state.setProperty(STATE_LAST, deltaDir.getFileName().toString());
+        state.setProperty(STATE_SEQUENCE, Long.toString(sequence));
+        saveExportState(state);
+        
+        System.out.println(String.format("Delta export completed in %d ms (%d updated, %d tombstones)", 
+            (System.nanoTime() - startTime) / 1_000_000, 
+            updatedStudents.size() + updatedCourses.size(), tombstones.size()));
+        return deltaDir;
+    }
+    
+    /**
+     * Claim the records that changed since the last export
+     * @param records all records
+     * @return valid records whose unsaved-changes flag was set
+     */
+    private static <T extends Persistable> List<T> claimChanges(List<T> records) {
+        List<T> changed = new ArrayList<>();
+        for (T record : records) {
+            if (record.markSaved() && record.isValid()) {
+                changed.add(record);
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Write the manifest linking a delta to its base export
+     * @param deltaDir delta directory
+     * @param sequence delta number since the base export
+     * @param base base export directory name
+     * @param previous previous export or delta directory name
+     * @param files exported files with row counts and checksums
+     * @throws IOException if the manifest cannot be written
+     */
+    private void writeDeltaManifest(Path deltaDir, long sequence, String base, String previous,
+                                    List<ParallelExporter.ExportedFile> files) throws IOException {
+        List<String> manifest = new ArrayList<>(Arrays.asList(
+            "# CCRM delta export manifest",
+            "type=delta",
+            "sequence=" + sequence,
+            "base=" + base,
+            "previous=" + previous,
+            "created=" + java.time.LocalDateTime.now().withNano(0)
+        ));
+        for (ParallelExporter.ExportedFile file : files) {
+            manifest.add(file.getFileName() + ".rows=" + file.getRows());
+            manifest.add(file.getFileName() + ".bytes=" + file.getBytes());
+            manifest.add(String.format("%s.crc32=%08x", file.getFileName(), file.getCrc32()));
+        }
+        
+        Files.write(deltaDir.resolve("delta_manifest.properties"), manifest, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Load the export chain state (base export, last export and delta sequence)
+     * @return state, empty if no export has been made
+     * @throws IOException if the state file cannot be read
+     */
+    private Properties loadExportState() throws IOException {
+        Properties state = new Properties();
+        Path stateFile = config.getExportDirectory().resolve(EXPORT_STATE_FILE);
+        if (Files.exists(stateFile)) {
+            try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+                state.load(reader);
+            }
+        }
+        return state;
+    }
+    
+    /**
+     * Save the export chain state
+     * @param state state to save
+     * @throws IOException if the state file cannot be written
+     */
+    private void saveExportState(Properties state) throws IOException {
+        Path stateFile = config.getExportDirectory().resolve(EXPORT_STATE_FILE);
+        try (java.io.Writer writer = Files.newBufferedWriter(stateFile, StandardCharsets.UTF_8)) {
+            state.store(writer, "CCRM export chain state");
+        }
+    }
+    
     /**
      * Create export summary file
      * @param exportDir export directory
      * @param studentCount number of students exported
      * @param courseCount number of courses exported
+     * @param files exported files with row counts and checksums
      * @throws IOException if file creation fails
      */
-    private void createExportSummary(Path exportDir, int studentCount, int courseCount) throws IOException {
-        List<String> summary = Arrays.asList(
+    private void createExportSummary(Path exportDir, int studentCount, int courseCount, 
+                                     List<ParallelExporter.ExportedFile> files) throws IOException {
+        List<String> summary = new ArrayList<>(Arrays.asList(
             "CCRM Export Summary",
             "===================",
             "Export Date: " + LocalDate.now().format(dateFormatter),
@@ -319,17 +725,65 @@ public class ImportExportService {
             "- Students: " + studentCount,
             "- Courses: " + courseCount,
             "",
-            "Files Created:",
-            "- students.csv",
-            "- courses.csv",
-            "- export_summary.txt (this file)",
-            "",
-            "Generated by Campus Course & Records Manager v1.0"
-        );
+            "Files Created:"
+        ));
+        for (ParallelExporter.ExportedFile file : files) {
+            summary.add(String.format("- %s (rows: %d, bytes: %d, crc32: %08x)", 
+                file.getFileName(), file.getRows(), file.getBytes(), file.getCrc32()));
+        }
+        summary.add("- export_summary.txt (this file)");
+        summary.add("");
+        summary.add("Generated by Campus Course & Records Manager v1.0");
         
         Files.write(exportDir.resolve("export_summary.txt"), summary, StandardCharsets.UTF_8);
     }
     
+    /**
+     * Statistics reported at the end of a streaming import
+     */
+    public static class ImportStatistics {
+        private final String label;
+        private final long rowsRead;
+        private final long recordsImported;
+        private final long elapsedNanos;
+        private final long peakHeapBytes;
+        
+        public ImportStatistics(String label, long rowsRead, long recordsImported, 
+                                long elapsedNanos, long peakHeapBytes) {
+            this.label = label;
+            this.rowsRead = rowsRead;
+            this.recordsImported = recordsImported;
+            this.elapsedNanos = elapsedNanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+        
+        public long getRowsRead() { return rowsRead; }
+        public long getRecordsImported() { return recordsImported; }
+        public long getRowsRejected() { return rowsRead - recordsImported; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+        
+        /**
+         * Get the heap high-water mark (sum of per-pool peaks) during the import
+         * @return peak heap usage in bytes
+         */
+        public long getPeakHeapBytes() { return peakHeapBytes; }
+        
+        /**
+         * Get import throughput
+         * @return rows read per second
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Imported %d of %d %s rows in %d ms (%.0f rows/s, %d rejected, peak heap %.1f MB)",
+                recordsImported, rowsRead, label, getElapsedMillis(), getRowsPerSecond(), 
+                getRowsRejected(), peakHeapBytes / (1024.0 * 1024.0));
+        }
+    }
+    
     /**
      * Get default import path for students
      * @return path to default students CSV
@@ -369,9 +823,8 @@ public class ImportExportService {
         try (Stream<String> lines = Files.lines(csvFilePath, StandardCharsets.UTF_8)) {
             Optional<String> firstLine = lines.findFirst();
             if (firstLine.isPresent()) {
-                String[] headers = firstLine.get().split(",");
-                return Arrays.equals(expectedHeaders, 
-                    Arrays.stream(headers).map(String::trim).toArray(String[]::new));
+                List<String> headers = CsvReader.parseLine(firstLine.get());
+                return Arrays.asList(expectedHeaders).equals(headers);
             }
         }
         
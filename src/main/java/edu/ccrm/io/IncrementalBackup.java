@@ -0,0 +1,468 @@
+package edu.ccrm.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Incremental, deduplicating backup store
+ * Files are split into content-defined chunks with a gear rolling hash, so an
+ * insertion only changes the chunks around it. Chunks are stored once, deflated,
+ * under their SHA-256 in a shared chunk directory.
+ * Each backup is a CSV manifest listing the files that changed since its
+ * parent (path, size, mtime, file hash and chunk list) and the files that were
+ * deleted. A file whose size and mtime match the parent's entry is not read at
+ * all, so backup time and size follow the volume of change. Every few backups
+ * a full manifest ends the chain, which bounds restore work.
+ *
+ * Layout below the store directory:
+ * <pre>
+ * chunks/ab/abcdef...   deflated chunk named by its SHA-256
+ * ccrm_incr_[ts].csv    manifest
+ * </pre>
+ */
+class IncrementalBackup {
+    static final String MANIFEST_PREFIX = "ccrm_incr_";
+    static final String MANIFEST_SUFFIX = ".csv";
+    private static final String[] MANIFEST_HEADER = {"type", "path", "size", "modified", "sha256", "chunks"};
+    private static final String PARENT = "parent";
+    private static final String FILE = "file";
+    private static final String DELETED = "deleted";
+    private static final int MAX_CHAIN_LENGTH = 16; // Incremental manifests before a full one
+
+    // Content-defined chunking: cut where the top 16 bits of the gear hash are zero
+    private static final int MIN_CHUNK_BYTES = 16 * 1024;
+    private static final int MAX_CHUNK_BYTES = 256 * 1024;
+    private static final long CUT_MASK = 0xFFFFL << 48; // About 64 KB past the minimum on average
+    private static final long[] GEAR = new long[256];
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x43435242L); // Fixed, so chunk boundaries are stable
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final Path storeDirectory;
+    private final Path chunkDirectory;
+
+    /**
+     * Constructor
+     * @param storeDirectory directory holding chunks and manifests
+     */
+    IncrementalBackup(Path storeDirectory) {
+        this.storeDirectory = storeDirectory;
+        this.chunkDirectory = storeDirectory.resolve("chunks");
+    }
+
+    /**
+     * Back up the files below a source directory
+     * @param sourceDirectory directory to back up
+     * @param excluded directory below the source to skip, e.g. the backups themselves; may be null
+     * @param manifestName file name of the new manifest
+     * @return statistics of the backup
+     * @throws IOException if reading or writing fails
+     */
+    Result backup(Path sourceDirectory, Path excluded, String manifestName) throws IOException {
+        long startTime = System.nanoTime();
+        Files.createDirectories(chunkDirectory);
+
+        Path parent = latestManifest();
+        Map<String, FileEntry> previous = parent != null ? resolve(parent) : new HashMap<>();
+        boolean full = parent == null || chainLength(parent) >= MAX_CHAIN_LENGTH;
+
+        Result result = new Result();
+        List<FileEntry> changed = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Chunker chunker = new Chunker();
+
+        Files.walkFileTree(sourceDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (excluded != null && dir.toAbsolutePath().normalize().equals(excluded.toAbsolutePath().normalize())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || name.endsWith(".tmp") || !attrs.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String path = sourceDirectory.relativize(file).toString().replace('\\', '/');
+                seen.add(path);
+                result.filesScanned++;
+                result.bytesScanned += attrs.size();
+
+                long modified = attrs.lastModifiedTime().toMillis();
+                FileEntry known = previous.get(path);
+                if (known != null && known.size == attrs.size() && known.modified == modified) {
+                    if (full) {
+                        changed.add(known); // Unchanged, but a full manifest lists everything
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                changed.add(chunker.store(file, path, modified, result)); // Only new chunks are stored
+                result.filesChanged++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                System.err.println("Failed to backup file: " + file + " - " + exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        List<String> deleted = new ArrayList<>();
+        for (String path : previous.keySet()) {
+            if (!seen.contains(path)) {
+                deleted.add(path);
+            }
+        }
+        Collections.sort(deleted);
+        result.filesDeleted = deleted.size();
+
+        Path manifest = storeDirectory.resolve(manifestName);
+        if (full) {
+            writeManifest(manifest, null, changed, Collections.emptyList()); // Deletions are implied
+        } else {
+            writeManifest(manifest, parent.getFileName().toString(), changed, deleted);
+        }
+        result.manifest = manifest;
+        result.full = full;
+        result.elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Restore the files of a backup into a directory
+     * Every chunk and file is checked against its SHA-256
+     * @param manifest manifest of the backup
+     * @param targetDirectory directory to restore into
+     * @return number of files restored
+     * @throws IOException if a chunk is missing or damaged
+     */
+    int restore(Path manifest, Path targetDirectory) throws IOException {
+        Map<String, FileEntry> files = resolve(manifest);
+        Path target = targetDirectory.toAbsolutePath().normalize();
+        for (FileEntry entry : files.values()) {
+            Path file = target.resolve(entry.path).normalize();
+            if (!file.startsWith(target)) {
+                throw new IOException("Backup entry escapes the target directory: " + entry.path);
+            }
+            Files.createDirectories(file.getParent());
+            restoreFile(entry, file);
+        }
+        return files.size();
+    }
+
+    /**
+     * Find the most recent manifest
+     * @return manifest path, or null if there are no backups yet
+     */
+    Path latestManifest() throws IOException {
+        List<Path> manifests = listManifests();
+        return manifests.isEmpty() ? null : manifests.get(manifests.size() - 1);
+    }
+
+    /**
+     * List manifests, oldest first
+     */
+    List<Path> listManifests() throws IOException {
+        List<Path> manifests = new ArrayList<>();
+        if (!Files.isDirectory(storeDirectory)) {
+            return manifests;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(storeDirectory,
+                MANIFEST_PREFIX + "*" + MANIFEST_SUFFIX)) {
+            for (Path manifest : stream) {
+                manifests.add(manifest);
+            }
+        }
+        manifests.sort(Comparator.comparing(path -> path.getFileName().toString())); // Timestamped names
+        return manifests;
+    }
+
+    /**
+     * Rebuild the complete file list of a backup by walking its manifest chain
+     * Newer entries win over older ones; deletions hide older entries
+     * @return path -> entry
+     */
+    Map<String, FileEntry> resolve(Path manifest) throws IOException {
+        Map<String, FileEntry> files = new HashMap<>();
+        Set<String> decided = new HashSet<>(); // Paths already settled by a newer manifest
+        Set<String> visited = new HashSet<>();
+        for (Path current = manifest; current != null; ) {
+            if (!visited.add(current.getFileName().toString())) {
+                throw new IOException("Backup manifest chain has a cycle at " + current.getFileName());
+            }
+            Manifest contents = readManifest(current);
+            for (FileEntry entry : contents.files) {
+                if (decided.add(entry.path)) {
+                    files.put(entry.path, entry);
+                }
+            }
+            decided.addAll(contents.deleted);
+            current = contents.parent != null ? storeDirectory.resolve(contents.parent) : null;
+        }
+        return files;
+    }
+
+    private int chainLength(Path manifest) throws IOException {
+        int length = 0;
+        for (Path current = manifest; current != null && length <= MAX_CHAIN_LENGTH; length++) {
+            String parent = readManifest(current).parent;
+            current = parent != null ? storeDirectory.resolve(parent) : null;
+        }
+        return length;
+    }
+
+    private void restoreFile(FileEntry entry, Path file) throws IOException {
+        MessageDigest fileDigest = sha256();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".restore.tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            for (String chunk : entry.chunks) {
+                byte[] data = readChunk(chunk);
+                fileDigest.update(data);
+                out.write(data);
+            }
+        }
+        if (!toHex(fileDigest.digest()).equals(entry.sha256)) {
+            Files.deleteIfExists(tempFile);
+            throw new IOException("Restored content does not match the backup of " + entry.path);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(entry.modified));
+    }
+
+    /**
+     * Read and verify one chunk
+     */
+    byte[] readChunk(String hash) throws IOException {
+        Path chunk = chunkPath(hash);
+        if (!Files.exists(chunk)) {
+            throw new IOException("Backup chunk is missing: " + hash);
+        }
+        byte[] data;
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(chunk))) {
+            data = in.readAllBytes();
+        }
+        if (!toHex(sha256().digest(data)).equals(hash)) {
+            throw new IOException("Backup chunk is damaged: " + hash);
+        }
+        return data;
+    }
+
+    Path chunkPath(String hash) {
+        return chunkDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private void writeManifest(Path manifest, String parent, List<FileEntry> files, List<String> deleted)
+            throws IOException {
+        Path tempFile = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (CsvWriter csv = new CsvWriter(new OutputStreamWriter(Files.newOutputStream(tempFile),
+                StandardCharsets.UTF_8))) {
+            for (String column : MANIFEST_HEADER) {
+                csv.field(column);
+            }
+            csv.endRow();
+            if (parent != null) {
+                csv.field(PARENT).field(parent).endRow();
+            }
+            for (FileEntry entry : files) {
+                csv.field(FILE).field(entry.path).field(entry.size).field(entry.modified)
+                    .field(entry.sha256).field(String.join(" ", entry.chunks));
+                csv.endRow();
+            }
+            for (String path : deleted) {
+                csv.field(DELETED).field(path);
+                csv.endRow();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(tempFile, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Manifest readManifest(Path manifest) throws IOException {
+        Manifest contents = new Manifest();
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            CsvReader csv = new CsvReader(reader);
+            CsvRow row = new CsvRow();
+            boolean header = true;
+            while (csv.next(row)) {
+                if (header || row.isBlank()) {
+                    header = false;
+                    continue;
+                }
+                String type = row.getString(0);
+                if (PARENT.equals(type)) {
+                    contents.parent = row.getString(1);
+                } else if (DELETED.equals(type)) {
+                    contents.deleted.add(row.getString(1));
+                } else if (FILE.equals(type) && row.getFieldCount() == MANIFEST_HEADER.length) {
+                    String chunks = row.getString(5);
+                    contents.files.add(new FileEntry(row.getString(1), Long.parseLong(row.getString(2)),
+                        Long.parseLong(row.getString(3)), row.getString(4),
+                        chunks.isEmpty() ? Collections.emptyList() : Arrays.asList(chunks.split(" "))));
+                } else {
+                    throw new IOException("Malformed backup manifest row in " + manifest.getFileName()
+                        + ": " + row.getLine());
+                }
+            }
+        } catch (NumberFormatException | UncheckedIOException e) {
+            throw new IOException("Malformed backup manifest " + manifest.getFileName() + ": " + e.getMessage(), e);
+        }
+        return contents;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required on every Java platform
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Splits files into chunks and stores the chunks not yet in the store
+     * Reuses its buffers across files
+     */
+    private class Chunker {
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final byte[] chunk = new byte[MAX_CHUNK_BYTES];
+        private final MessageDigest fileDigest = sha256();
+        private final MessageDigest chunkDigest = sha256();
+
+        FileEntry store(Path file, String path, long modified, Result result) throws IOException {
+            List<String> chunks = new ArrayList<>();
+            long size = 0;
+            int length = 0;
+            long fingerprint = 0;
+            fileDigest.reset();
+
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer.clear();
+                while (in.read(buffer) > 0) {
+                    buffer.flip();
+                    byte[] data = buffer.array();
+                    int end = buffer.limit();
+                    for (int i = 0; i < end; i++) {
+                        byte b = data[i];
+                        chunk[length++] = b;
+                        fingerprint = (fingerprint << 1) + GEAR[b & 0xFF];
+                        if (length >= MIN_CHUNK_BYTES && ((fingerprint & CUT_MASK) == 0 || length == MAX_CHUNK_BYTES)) {
+                            chunks.add(storeChunk(length, result));
+                            size += length;
+                            length = 0;
+                            fingerprint = 0;
+                        }
+                    }
+                    buffer.clear();
+                }
+            }
+            if (length > 0) {
+                chunks.add(storeChunk(length, result));
+                size += length;
+            }
+            return new FileEntry(path, size, modified, toHex(fileDigest.digest()), chunks);
+        }
+
+        private String storeChunk(int length, Result result) throws IOException {
+            fileDigest.update(chunk, 0, length);
+            chunkDigest.reset();
+            chunkDigest.update(chunk, 0, length);
+            String hash = toHex(chunkDigest.digest());
+
+            Path target = chunkPath(hash);
+            if (Files.exists(target)) {
+                result.chunksReused++;
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            Path tempFile = target.resolveSibling(hash + ".tmp");
+            try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(tempFile))) {
+                out.write(chunk, 0, length);
+            }
+            result.bytesStored += Files.size(tempFile);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            result.chunksStored++;
+            return hash;
+        }
+    }
+
+    /**
+     * One file as recorded in a manifest
+     */
+    static class FileEntry {
+        final String path;
+        final long size;
+        final long modified;
+        final String sha256;
+        final List<String> chunks;
+
+        FileEntry(String path, long size, long modified, String sha256, List<String> chunks) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.sha256 = sha256;
+            this.chunks = chunks;
+        }
+    }
+
+    private static class Manifest {
+        private String parent;
+        private final List<FileEntry> files = new ArrayList<>();
+        private final List<String> deleted = new ArrayList<>();
+    }
+
+    /**
+     * Statistics of one incremental backup
+     */
+    static class Result {
+        private Path manifest;
+        private boolean full;
+        private long filesScanned;
+        private long filesChanged;
+        private long filesDeleted;
+        private long bytesScanned;
+        private long chunksStored;
+        private long chunksReused;
+        private long bytesStored;
+        private long elapsedMillis;
+
+        public Path getManifest() { return manifest; }
+        public boolean isFull() { return full; }
+        public long getFilesScanned() { return filesScanned; }
+        public long getFilesChanged() { return filesChanged; }
+        public long getFilesDeleted() { return filesDeleted; }
+        public long getBytesScanned() { return bytesScanned; }
+        public long getChunksStored() { return chunksStored; }
+        public long getChunksReused() { return chunksReused; }
+        public long getBytesStored() { return bytesStored; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+}
@@ -0,0 +1,262 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Parallel CSV parser for large imports
+ * Memory-maps the file, finds record boundaries with a parallel scan, and
+ * parses the chunks between them on a fork-join pool. Each worker runs a CsvReader over its mapped
+ * chunk into a reusable CsvRow, so per-record allocation is limited to what
+ * the row mapper builds.
+ * Results are merged in file order.
+ */
+public class ParallelCsvParser {
+    private static final long MIN_CHUNK_BYTES = 1L << 20; // 1 MB
+    private static final long MAX_CHUNK_BYTES = Integer.MAX_VALUE; // Limit of a single mapping
+    private static final int CHUNKS_PER_THREAD = 4; // Extra chunks let work-stealing even out skew
+    private static final int SCAN_BUFFER_BYTES = 1 << 16;
+
+    private final int parallelism;
+
+    /**
+     * Constructor using one worker per available processor
+     */
+    public ParallelCsvParser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with explicit parallelism
+     * @param parallelism number of worker threads
+     */
+    public ParallelCsvParser(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Parse a CSV file in parallel
+     * @param csvFilePath path to CSV file
+     * @param skipHeader true to skip the first record
+     * @param mapper maps a row to a record, or returns null to reject it
+     * @return parsed records in file order
+     * @throws IOException if the file cannot be read
+     */
+    public <T> ParseResult<T> parse(Path csvFilePath, boolean skipHeader,
+                                    Function<CsvRow, T> mapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFilePath, StandardOpenOption.READ)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                long[] boundaries = findChunkBoundaries(channel, skipHeader, pool);
+                if (boundaries.length < 2) {
+                    return new ParseResult<>(new ArrayList<>(), 0);
+                }
+                return pool.invoke(new ChunkTask<>(channel, boundaries, 0, boundaries.length - 1, mapper));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Split the file into chunks that start at a record boundary
+     * A newline ends a record only outside a quoted field, which depends on
+     * every quote before it. The file is cut into fixed-size segments that are
+     * scanned in parallel, each speculating on both possible quote states at
+     * its start; a pass over the segment summaries then picks the real state
+     * of each segment in file order. So no serial scan of the file is needed.
+     * @return ascending offsets; chunk i covers [boundaries[i], boundaries[i + 1])
+     */
+    private long[] findChunkBoundaries(FileChannel channel, boolean skipHeader, ForkJoinPool pool)
+            throws IOException {
+        long size = channel.size();
+        long chunkBytes = size / ((long) parallelism * CHUNKS_PER_THREAD);
+        chunkBytes = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, chunkBytes));
+
+        List<ForkJoinTask<SegmentScan>> scans = new ArrayList<>();
+        for (long start = 0; start < size; start += chunkBytes) {
+            long segmentStart = start;
+            long segmentEnd = Math.min(size, start + chunkBytes);
+            scans.add(pool.submit(() -> scanSegment(channel, segmentStart, segmentEnd)));
+        }
+
+        List<Long> boundaries = new ArrayList<>();
+        if (!skipHeader) {
+            boundaries.add(0L);
+        }
+        boolean inQuotes = false;
+        for (ForkJoinTask<SegmentScan> task : scans) {
+            SegmentScan scan = task.join();
+            long recordEnd = scan.firstRecordEnd(inQuotes);
+            if (recordEnd >= 0 && recordEnd < size) {
+                boundaries.add(recordEnd); // The first one ends the header when it is skipped
+            }
+            inQuotes ^= scan.oddQuotes;
+        }
+
+        if (boundaries.isEmpty()) {
+            return new long[0]; // Header only
+        }
+        boundaries.add(size);
+        for (int i = 1; i < boundaries.size(); i++) {
+            if (boundaries.get(i) - boundaries.get(i - 1) > MAX_CHUNK_BYTES) {
+                throw new IOException("CSV record longer than " + MAX_CHUNK_BYTES + " bytes near offset "
+                    + boundaries.get(i - 1));
+            }
+        }
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Count the quotes of a segment and find its first newline for either
+     * quote state at the segment start
+     */
+    private static SegmentScan scanSegment(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map bytes " + start + "-" + end, e);
+        }
+
+        byte[] block = new byte[SCAN_BUFFER_BYTES];
+        long[] firstNewline = {-1, -1}; // By parity of the quotes seen since the segment start
+        int parity = 0;
+        long position = start;
+        while (buffer.hasRemaining()) {
+            int length = Math.min(block.length, buffer.remaining());
+            buffer.get(block, 0, length);
+            for (int i = 0; i < length; i++) {
+                byte b = block[i];
+                if (b == '"') {
+                    parity ^= 1; // A doubled quote toggles twice
+                } else if (b == '\n' && firstNewline[parity] < 0) {
+                    firstNewline[parity] = position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return new SegmentScan(parity == 1, firstNewline[0], firstNewline[1]);
+    }
+
+    /**
+     * Quote parity and candidate record ends of one segment
+     */
+    private static final class SegmentScan {
+        private final boolean oddQuotes;
+        private final long endIfStartedOutside; // Offset after the first record-ending newline, or -1
+        private final long endIfStartedInside;
+
+        SegmentScan(boolean oddQuotes, long endIfStartedOutside, long endIfStartedInside) {
+            this.oddQuotes = oddQuotes;
+            this.endIfStartedOutside = endIfStartedOutside;
+            this.endIfStartedInside = endIfStartedInside;
+        }
+
+        long firstRecordEnd(boolean startsInQuotes) {
+            return startsInQuotes ? endIfStartedInside : endIfStartedOutside;
+        }
+    }
+
+    /**
+     * Parse one mapped chunk record by record
+     */
+    private static <T> ParseResult<T> parseChunk(FileChannel channel, long start, long end,
+                                                 Function<CsvRow, T> mapper) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map bytes " + start + "-" + end, e);
+        }
+
+        List<T> records = new ArrayList<>();
+        CsvReader reader = new CsvReader(buffer);
+        CsvRow row = new CsvRow();
+        long rowsRead = 0;
+        while (reader.next(row)) {
+            if (!row.isBlank()) {
+                rowsRead++;
+                T record = mapper.apply(row);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        return new ParseResult<>(records, rowsRead);
+    }
+
+    /**
+     * Fork-join task over a range of chunks; halves the range until one chunk is left
+     */
+    private static class ChunkTask<T> extends RecursiveTask<ParseResult<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int fromChunk;
+        private final int toChunk; // Exclusive
+        private final Function<CsvRow, T> mapper;
+
+        ChunkTask(FileChannel channel, long[] boundaries, int fromChunk, int toChunk,
+                  Function<CsvRow, T> mapper) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected ParseResult<T> compute() {
+            if (toChunk - fromChunk == 1) {
+                return parseChunk(channel, boundaries[fromChunk], boundaries[toChunk], mapper);
+            }
+
+            int middle = (fromChunk + toChunk) >>> 1;
+            ChunkTask<T> left = new ChunkTask<>(channel, boundaries, fromChunk, middle, mapper);
+            ChunkTask<T> right = new ChunkTask<>(channel, boundaries, middle, toChunk, mapper);
+            left.fork();
+            ParseResult<T> rightResult = right.compute();
+            ParseResult<T> leftResult = left.join();
+            return leftResult.append(rightResult); // Left first keeps file order
+        }
+    }
+
+    /**
+     * Records parsed from a file together with the number of non-blank rows read
+     */
+    public static class ParseResult<T> {
+        private final List<T> records;
+        private long rowsRead;
+
+        ParseResult(List<T> records, long rowsRead) {
+            this.records = records;
+            this.rowsRead = rowsRead;
+        }
+
+        private ParseResult<T> append(ParseResult<T> other) {
+            records.addAll(other.records);
+            rowsRead += other.rowsRead;
+            return this;
+        }
+
+        public List<T> getRecords() { return records; }
+        public long getRowsRead() { return rowsRead; }
+    }
+}
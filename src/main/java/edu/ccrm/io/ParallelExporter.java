@@ -0,0 +1,248 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Parallel export pipeline for several entity files
+ * All entity files are written at the same time. An entity with many records
+ * is split into row segments that are formatted concurrently into part files
+ * and then concatenated in order, so wall-clock time approaches that of
+ * formatting the largest file on all cores.
+ * Each file is reported with its row count, size and CRC32 checksum.
+ */
+class ParallelExporter {
+    private static final int MIN_SEGMENT_ROWS = 50_000; // Smaller segments cost more in part files than they save
+    private static final int COPY_BUFFER_BYTES = 1 << 20;
+
+    private final int threads;
+    private final List<EntityExport<?>> entities = new ArrayList<>();
+
+    /**
+     * Constructor using one thread per available processor
+     */
+    ParallelExporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with explicit thread count
+     * @param threads number of formatting threads
+     */
+    ParallelExporter(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Register an entity file to export
+     * @param fileName file name inside the export directory
+     * @param header column names
+     * @param records records in output order; must not change during the export
+     * @param rowWriter writes the fields of one record
+     */
+    <T> void addEntity(String fileName, String[] header, List<T> records, BiConsumer<CsvWriter, T> rowWriter) {
+        entities.add(new EntityExport<>(fileName, header, records, rowWriter));
+    }
+
+    /**
+     * Write all registered entity files
+     * @param exportDir target directory, which must exist
+     * @return one result per entity, in registration order
+     * @throws IOException if any file fails to write; part files are removed
+     */
+    List<ExportedFile> run(Path exportDir) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<ExportedFile>> files = new ArrayList<>();
+            for (EntityExport<?> entity : entities) {
+                files.add(entity.export(exportDir, pool));
+            }
+
+            List<ExportedFile> results = new ArrayList<>();
+            for (CompletableFuture<ExportedFile> file : files) {
+                results.add(file.join());
+            }
+            return results;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Number of rows per segment for an entity of the given size
+     */
+    private int segmentRows(int recordCount) {
+        int perThread = (recordCount + threads - 1) / threads;
+        return Math.max(MIN_SEGMENT_ROWS, perThread);
+    }
+
+    /**
+     * Write a slice of records to a file, with the header if given
+     * @return rows written and CRC32 of the file
+     */
+    private static <T> ExportedFile writeSegment(Path target, String[] header, List<T> records,
+                                                 BiConsumer<CsvWriter, T> rowWriter) {
+        CRC32 crc = new CRC32();
+        long rows;
+        try (CsvWriter csv = new CsvWriter(new OutputStreamWriter(
+                new CheckedOutputStream(Files.newOutputStream(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), crc),
+                StandardCharsets.UTF_8))) {
+            if (header != null) {
+                for (String column : header) {
+                    csv.field(column);
+                }
+                csv.endRow();
+            }
+            for (T record : records) {
+                rowWriter.accept(csv, record);
+                csv.endRow();
+            }
+            rows = csv.getRowsWritten() - (header != null ? 1 : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            return new ExportedFile(target.getFileName().toString(), rows, Files.size(target), crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Concatenate part files in order into the target, computing the checksum on the way
+     * Part files are deleted afterwards, including on failure
+     */
+    private static ExportedFile concatenate(Path target, List<Path> parts, long rows) {
+        CRC32 crc = new CRC32();
+        long bytes = 0;
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_BYTES);
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    while (in.read(buffer) > 0) {
+                        buffer.flip();
+                        crc.update(buffer.duplicate());
+                        bytes += buffer.remaining();
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteParts(parts);
+        }
+        return new ExportedFile(target.getFileName().toString(), rows, bytes, crc.getValue());
+    }
+
+    private static void deleteParts(List<Path> parts) {
+        for (Path part : parts) {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                System.err.println("Could not delete export part " + part + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One entity file and how to format its records
+     */
+    private class EntityExport<T> {
+        private final String fileName;
+        private final String[] header;
+        private final List<T> records;
+        private final BiConsumer<CsvWriter, T> rowWriter;
+
+        EntityExport(String fileName, String[] header, List<T> records, BiConsumer<CsvWriter, T> rowWriter) {
+            this.fileName = fileName;
+            this.header = header;
+            this.records = records;
+            this.rowWriter = rowWriter;
+        }
+
+        /**
+         * Schedule the segments of this entity, then their concatenation
+         */
+        CompletableFuture<ExportedFile> export(Path exportDir, ExecutorService pool) {
+            Path target = exportDir.resolve(fileName);
+            int segmentRows = segmentRows(records.size());
+            if (records.size() <= segmentRows) {
+                return CompletableFuture.supplyAsync(() -> writeSegment(target, header, records, rowWriter), pool);
+            }
+
+            List<Path> parts = new ArrayList<>();
+            List<CompletableFuture<ExportedFile>> segments = new ArrayList<>();
+            for (int from = 0; from < records.size(); from += segmentRows) {
+                List<T> slice = records.subList(from, Math.min(records.size(), from + segmentRows));
+                Path part = exportDir.resolve(fileName + ".part" + parts.size());
+                String[] segmentHeader = from == 0 ? header : null;
+                parts.add(part);
+                segments.add(CompletableFuture.supplyAsync(() -> writeSegment(part, segmentHeader, slice, rowWriter), pool));
+            }
+
+            return CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        deleteParts(parts);
+                    }
+                })
+                .thenApplyAsync(ignored -> {
+                    long rows = segments.stream().mapToLong(segment -> segment.join().getRows()).sum();
+                    return concatenate(target, parts, rows);
+                }, pool);
+        }
+    }
+
+    /**
+     * Result of exporting one file
+     */
+    static class ExportedFile {
+        private final String fileName;
+        private final long rows;
+        private final long bytes;
+        private final long crc32;
+
+        ExportedFile(String fileName, long rows, long bytes, long crc32) {
+            this.fileName = fileName;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.crc32 = crc32;
+        }
+
+        public String getFileName() { return fileName; }
+        public long getRows() { return rows; }
+        public long getBytes() { return bytes; }
+        public long getCrc32() { return crc32; }
+    }
+}
@@ -0,0 +1,526 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Parallel zip archive writer
+ * Files are cut into blocks that worker threads read and deflate
+ * independently. Each block is a raw deflate segment ended with a sync flush
+ * and primed with the previous 32 KB of its file as dictionary, so the blocks
+ * of a file concatenate into one ordinary deflate stream with almost the
+ * ratio of a sequential one. A single writer assembles the archive in order,
+ * combining the blocks' CRC32s, and patches each local header once the
+ * entry is complete. Zip64 records are used where sizes or offsets need them.
+ * In-flight blocks are bounded, so memory does not grow with file size.
+ */
+class ParallelZipArchiver {
+    private static final int BLOCK_BYTES = 1 << 20;
+    private static final int DICTIONARY_BYTES = 32 * 1024; // Deflate window
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+    private static final long ZIP64_ENTRY_THRESHOLD = 0xF0000000L; // Margin for incompressible data
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+    private static final short UTF8_NAMES = 0x0800;
+    private static final short DEFLATED = 8;
+    private static final int LOCAL_HEADER_BYTES = 30;
+    private static final int ZIP64_EXTRA_BYTES = 20; // Header id, length and two sizes
+
+    private final int threads;
+    private final int level;
+
+    /**
+     * Constructor
+     * @param threads number of compression threads
+     * @param level deflate level, 0-9 or Deflater.DEFAULT_COMPRESSION
+     */
+    ParallelZipArchiver(int threads, int level) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9)) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        this.threads = threads;
+        this.level = level;
+    }
+
+    /**
+     * Write files to a new zip archive
+     * @param files files in archive order
+     * @param zipPath archive to create; deleted again if writing fails
+     * @return archive statistics
+     * @throws IOException if a file cannot be read or the archive written
+     */
+    Result archive(List<SourceFile> files, Path zipPath) throws IOException {
+        long startTime = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "backup-deflate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Future<Block>> blocks = new ArrayBlockingQueue<>(threads * BLOCKS_IN_FLIGHT_PER_THREAD);
+        ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Deflater> deflater = ThreadLocal.withInitial(() -> {
+            Deflater created = new Deflater(level, true);
+            deflaters.add(created);
+            return created;
+        });
+
+        Thread reader = new Thread(() -> scheduleBlocks(files, pool, blocks, deflater), "backup-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        boolean completed = false;
+        try (FileChannel out = FileChannel.open(zipPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            Result result = new ArchiveWriter(out).write(blocks, files.size());
+            out.force(false);
+            result.elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+            completed = true;
+            return result;
+        } finally {
+            reader.interrupt();
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Deflater used : deflaters) {
+                used.end();
+            }
+            for (SourceFile file : files) {
+                file.closeQuietly();
+            }
+            if (!completed) {
+                Files.deleteIfExists(zipPath);
+            }
+        }
+    }
+
+    /**
+     * Submit the blocks of all files in archive order
+     * Blocks when too many blocks are in flight
+     */
+    private void scheduleBlocks(List<SourceFile> files, ExecutorService pool,
+                                BlockingQueue<Future<Block>> blocks, ThreadLocal<Deflater> deflater) {
+        try {
+            for (SourceFile file : files) {
+                try {
+                    file.open();
+                } catch (IOException e) {
+                    blocks.put(CompletableFuture.failedFuture(e));
+                    return;
+                }
+                long length = file.size;
+                long offset = 0;
+                do {
+                    long blockOffset = offset;
+                    int blockLength = (int) Math.min(BLOCK_BYTES, length - offset);
+                    boolean last = offset + blockLength >= length;
+                    blocks.put(pool.submit(() -> compress(file, blockOffset, blockLength, last, deflater.get())));
+                    offset += blockLength;
+                } while (offset < length);
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // The writer gave up; nothing more to schedule
+        }
+    }
+
+    /**
+     * Read and deflate one block
+     */
+    private static Block compress(SourceFile file, long offset, int length, boolean last, Deflater deflater)
+            throws IOException {
+        int dictionaryLength = (int) Math.min(DICTIONARY_BYTES, offset);
+        byte[] input = new byte[dictionaryLength + length];
+        ByteBuffer buffer = ByteBuffer.wrap(input);
+        long position = offset - dictionaryLength;
+        while (buffer.hasRemaining()) {
+            int read = file.channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("File shrank during backup: " + file.path);
+            }
+            position += read;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(input, dictionaryLength, length);
+
+        deflater.reset();
+        if (dictionaryLength > 0) {
+            deflater.setDictionary(input, 0, dictionaryLength);
+        }
+        deflater.setInput(input, dictionaryLength, length);
+        byte[] output = new byte[length / 2 + 64];
+        int outputLength = 0;
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (outputLength == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                outputLength += deflater.deflate(output, outputLength, output.length - outputLength);
+            }
+        } else {
+            while (true) { // A sync flush is complete once it leaves room in the output
+                outputLength += deflater.deflate(output, outputLength, output.length - outputLength,
+                    Deflater.SYNC_FLUSH);
+                if (outputLength < output.length) {
+                    break;
+                }
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+        }
+        return new Block(file, output, outputLength, length, crc.getValue(), offset == 0, last);
+    }
+
+    /**
+     * Writes blocks in order and the central directory at the end
+     */
+    private static class ArchiveWriter {
+        private final FileChannel out;
+        private final List<CentralEntry> entries = new ArrayList<>();
+        private final ByteBuffer header = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        private final Result result = new Result();
+
+        ArchiveWriter(FileChannel out) {
+            this.out = out;
+        }
+
+        Result write(BlockingQueue<Future<Block>> blocks, int fileCount) throws IOException {
+            CentralEntry current = null;
+            while (entries.size() < fileCount) {
+                Block block = next(blocks);
+                if (block.first) {
+                    current = beginEntry(block.file);
+                }
+                writeFully(ByteBuffer.wrap(block.data, 0, block.dataLength));
+                current.crc = block.first ? block.crc : crc32Combine(current.crc, block.crc, block.length);
+                current.compressedSize += block.dataLength;
+                current.size += block.length;
+                if (block.last) {
+                    endEntry(current);
+                    block.file.closeQuietly();
+                    result.bytesRead += current.size;
+                }
+            }
+            writeCentralDirectory();
+            result.files = entries.size();
+            result.bytesWritten = out.size();
+            return result;
+        }
+
+        private Block next(BlockingQueue<Future<Block>> blocks) throws IOException {
+            try {
+                return blocks.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Backup interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw new IOException("Backup compression failed: " + cause, cause);
+            }
+        }
+
+        private CentralEntry beginEntry(SourceFile file) throws IOException {
+            CentralEntry entry = new CentralEntry(file.entryName.getBytes(StandardCharsets.UTF_8),
+                dosTime(file.modifiedMillis), out.position(), file.size >= ZIP64_ENTRY_THRESHOLD);
+            header.clear();
+            header.putInt(0x04034b50)
+                .putShort((short) (entry.zip64 ? 45 : 20))
+                .putShort(UTF8_NAMES)
+                .putShort(DEFLATED)
+                .putInt(entry.dosTime)
+                .putInt(0) // CRC, patched in endEntry
+                .putInt(entry.zip64 ? -1 : 0) // Sizes, patched in endEntry
+                .putInt(entry.zip64 ? -1 : 0)
+                .putShort((short) entry.name.length)
+                .putShort((short) (entry.zip64 ? ZIP64_EXTRA_BYTES : 0));
+            putName(entry.name);
+            if (entry.zip64) {
+                header.putShort((short) 0x0001).putShort((short) 16).putLong(0).putLong(0);
+            }
+            header.flip();
+            writeFully(header);
+            return entry;
+        }
+
+        /**
+         * Patch the CRC and sizes into the entry's local header
+         */
+        private void endEntry(CentralEntry entry) throws IOException {
+            if (!entry.zip64 && (entry.size > MAX_32 || entry.compressedSize > MAX_32)) {
+                throw new IOException("File grew beyond 4 GB during backup: " + new String(entry.name,
+                    StandardCharsets.UTF_8));
+            }
+            header.clear();
+            header.putInt((int) entry.crc)
+                .putInt(entry.zip64 ? -1 : (int) entry.compressedSize)
+                .putInt(entry.zip64 ? -1 : (int) entry.size)
+                .flip();
+            patch(header, entry.localHeaderOffset + 14);
+            if (entry.zip64) {
+                header.clear();
+                header.putLong(entry.size).putLong(entry.compressedSize).flip();
+                patch(header, entry.localHeaderOffset + LOCAL_HEADER_BYTES + entry.name.length + 4);
+            }
+            entries.add(entry);
+        }
+
+        private void writeCentralDirectory() throws IOException {
+            long directoryOffset = out.position();
+            for (CentralEntry entry : entries) {
+                boolean largeSizes = entry.zip64;
+                boolean largeOffset = entry.localHeaderOffset >= MAX_32;
+                int extraLength = (largeSizes || largeOffset) ? 4 + (largeSizes ? 16 : 0) + (largeOffset ? 8 : 0) : 0;
+                header.clear();
+                header.putInt(0x02014b50)
+                    .putShort((short) 45) // Made by: zip 4.5
+                    .putShort((short) (extraLength > 0 ? 45 : 20))
+                    .putShort(UTF8_NAMES)
+                    .putShort(DEFLATED)
+                    .putInt(entry.dosTime)
+                    .putInt((int) entry.crc)
+                    .putInt(largeSizes ? -1 : (int) entry.compressedSize)
+                    .putInt(largeSizes ? -1 : (int) entry.size)
+                    .putShort((short) entry.name.length)
+                    .putShort((short) extraLength)
+                    .putShort((short) 0) // Comment
+                    .putShort((short) 0) // Disk
+                    .putShort((short) 0) // Internal attributes
+                    .putInt(0) // External attributes
+                    .putInt(largeOffset ? -1 : (int) entry.localHeaderOffset);
+                putName(entry.name);
+                if (extraLength > 0) {
+                    header.putShort((short) 0x0001).putShort((short) (extraLength - 4));
+                    if (largeSizes) {
+                        header.putLong(entry.size).putLong(entry.compressedSize);
+                    }
+                    if (largeOffset) {
+                        header.putLong(entry.localHeaderOffset);
+                    }
+                }
+                header.flip();
+                writeFully(header);
+            }
+
+            long directoryEnd = out.position();
+            long directorySize = directoryEnd - directoryOffset;
+            boolean zip64 = entries.size() >= MAX_16 || directorySize >= MAX_32 || directoryOffset >= MAX_32;
+            header.clear();
+            if (zip64) {
+                header.putInt(0x06064b50).putLong(44)
+                    .putShort((short) 45).putShort((short) 45)
+                    .putInt(0).putInt(0)
+                    .putLong(entries.size()).putLong(entries.size())
+                    .putLong(directorySize).putLong(directoryOffset);
+                header.putInt(0x07064b50).putInt(0).putLong(directoryEnd).putInt(1);
+            }
+            header.putInt(0x06054b50)
+                .putShort((short) 0).putShort((short) 0)
+                .putShort((short) Math.min(entries.size(), MAX_16))
+                .putShort((short) Math.min(entries.size(), MAX_16))
+                .putInt(zip64 ? -1 : (int) directorySize)
+                .putInt(zip64 ? -1 : (int) directoryOffset)
+                .putShort((short) 0);
+            header.flip();
+            writeFully(header);
+        }
+
+        private void putName(byte[] name) {
+            if (header.remaining() < name.length + 64) {
+                throw new IllegalArgumentException("File name too long for backup: " + name.length + " bytes");
+            }
+            header.put(name);
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+
+        private void patch(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += out.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * Convert a timestamp to MS-DOS date and time as stored in zip headers
+     */
+    private static int dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16); // 1980-01-01 00:00
+        }
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+            | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    /**
+     * CRC32 of the concatenation of two blocks, from their CRCs (as in zlib)
+     * @param crc1 CRC of the first block
+     * @param crc2 CRC of the second block
+     * @param length2 length of the second block
+     */
+    static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xEDB88320L; // CRC-32 polynomial
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // Two zero bits
+        gf2MatrixSquare(odd, even); // Four zero bits
+
+        // Apply length2 zero bytes to crc1
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * A file to archive
+     * Its size is fixed when it is listed; later growth is not archived
+     */
+    static class SourceFile {
+        private final Path path;
+        private final String entryName;
+        private final long size;
+        private final long modifiedMillis;
+        private volatile FileChannel channel; // Shared by the file's blocks; positional reads only
+
+        SourceFile(Path path, String entryName, long size, long modifiedMillis) {
+            this.path = path;
+            this.entryName = entryName;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+        }
+
+        private void open() throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        private void closeQuietly() {
+            FileChannel opened = channel;
+            if (opened != null) {
+                try {
+                    opened.close();
+                } catch (IOException e) {
+                    // Read-only channel; nothing was lost
+                }
+            }
+        }
+    }
+
+    private static class Block {
+        private final SourceFile file;
+        private final byte[] data;
+        private final int dataLength;
+        private final int length; // Uncompressed
+        private final long crc;
+        private final boolean first;
+        private final boolean last;
+
+        Block(SourceFile file, byte[] data, int dataLength, int length, long crc, boolean first, boolean last) {
+            this.file = file;
+            this.data = data;
+            this.dataLength = dataLength;
+            this.length = length;
+            this.crc = crc;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    private static class CentralEntry {
+        private final byte[] name;
+        private final int dosTime;
+        private final long localHeaderOffset;
+        private final boolean zip64;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        CentralEntry(byte[] name, int dosTime, long localHeaderOffset, boolean zip64) {
+            this.name = name;
+            this.dosTime = dosTime;
+            this.localHeaderOffset = localHeaderOffset;
+            this.zip64 = zip64;
+        }
+    }
+
+    /**
+     * Statistics of one archive
+     */
+    static class Result {
+        private long files;
+        private long bytesRead;
+        private long bytesWritten;
+        private long elapsedMillis;
+
+        public long getFiles() { return files; }
+        public long getBytesRead() { return bytesRead; }
+        public long getBytesWritten() { return bytesWritten; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+}
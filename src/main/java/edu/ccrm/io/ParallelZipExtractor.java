@@ -0,0 +1,204 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Parallel zip archive checker and extractor
+ * Entries are inflated concurrently from the archive's central directory;
+ * each worker streams its entry through a channel, computing the CRC32 as
+ * it goes, and compares CRC and size with the directory. Verification
+ * discards the data, extraction writes it below a target directory.
+ * Largest entries are scheduled first to keep the workers evenly loaded.
+ */
+class ParallelZipExtractor {
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final int threads;
+
+    /**
+     * Constructor
+     * @param threads number of inflating threads
+     */
+    ParallelZipExtractor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Check every entry without writing it
+     * @param zipPath archive to check
+     * @return check result
+     * @throws IOException if the archive cannot be opened
+     */
+    Result verify(Path zipPath) throws IOException {
+        return process(zipPath, null);
+    }
+
+    /**
+     * Extract and check every entry
+     * @param zipPath archive to extract
+     * @param targetDirectory directory to extract into
+     * @return check result; corrupt entries are left out of the target
+     * @throws IOException if the archive cannot be opened or a file not written
+     */
+    Result extract(Path zipPath, Path targetDirectory) throws IOException {
+        Files.createDirectories(targetDirectory);
+        return process(zipPath, targetDirectory.toAbsolutePath().normalize());
+    }
+
+    private Result process(Path zipPath, Path targetDirectory) throws IOException {
+        long startTime = System.nanoTime();
+        Result result = new Result();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "backup-inflate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            List<ZipEntry> entries = new ArrayList<>(Collections.list(zip.entries()));
+            entries.sort(Comparator.comparingLong(ZipEntry::getSize).reversed());
+
+            List<Future<?>> tasks = new ArrayList<>(entries.size());
+            for (ZipEntry entry : entries) {
+                tasks.add(pool.submit(() -> {
+                    processEntry(zip, entry, targetDirectory, result);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                await(task);
+            }
+            result.entries = entries.size();
+        } finally {
+            pool.shutdownNow();
+        }
+        result.elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        Collections.sort(result.corruptEntries);
+        return result;
+    }
+
+    /**
+     * Inflate one entry, check it and optionally write it
+     * Damaged data is recorded as corrupt; failures to write are thrown
+     */
+    private static void processEntry(ZipFile zip, ZipEntry entry, Path targetDirectory, Result result)
+            throws IOException {
+        Path target = null;
+        if (targetDirectory != null) {
+            target = targetDirectory.resolve(entry.getName()).normalize();
+            if (!target.startsWith(targetDirectory) || target.equals(targetDirectory)) {
+                result.corrupt(entry.getName() + " (path outside the backup)");
+                return;
+            }
+            if (entry.isDirectory()) {
+                Files.createDirectories(target);
+                return;
+            }
+            Files.createDirectories(target.getParent());
+        } else if (entry.isDirectory()) {
+            return;
+        }
+
+        CRC32 crc = new CRC32();
+        long size = 0;
+        String damage = null;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        try (InputStream in = zip.getInputStream(entry);
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = target == null ? null : FileChannel.open(target, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (true) {
+                int read;
+                try {
+                    read = source.read(buffer);
+                } catch (IOException e) { // ZipException and EOFException: damaged compressed data
+                    damage = e.getMessage();
+                    break;
+                }
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                size += buffer.limit();
+                if (out != null) {
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                buffer.clear();
+            }
+        }
+        result.bytes.addAndGet(size);
+
+        if (damage == null && (crc.getValue() != entry.getCrc()
+                || (entry.getSize() >= 0 && size != entry.getSize()))) {
+            damage = "CRC or size mismatch";
+        }
+        if (damage != null) {
+            result.corrupt(entry.getName() + " (" + damage + ")");
+            if (target != null) {
+                Files.deleteIfExists(target);
+            }
+            return;
+        }
+        if (target != null && entry.getLastModifiedTime() != null) {
+            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getLastModifiedTime().toMillis()));
+        }
+    }
+
+    private static void await(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Backup extraction interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Backup extraction failed: " + cause, cause);
+        }
+    }
+
+    /**
+     * Outcome of a check or extraction
+     */
+    static class Result {
+        private final List<String> corruptEntries = new ArrayList<>();
+        private final AtomicLong bytes = new AtomicLong();
+        private int entries;
+        private long elapsedMillis;
+
+        private synchronized void corrupt(String description) {
+            corruptEntries.add(description);
+        }
+
+        public int getEntries() { return entries; }
+        public long getBytes() { return bytes.get(); }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public List<String> getCorruptEntries() { return Collections.unmodifiableList(corruptEntries); }
+        public boolean isIntact() { return corruptEntries.isEmpty(); }
+    }
+}
@@ -0,0 +1,603 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Compact binary snapshots of students and courses for fast startup
+ * Records are written and read through a FileChannel. Each record is
+ * length-prefixed; department names and course codes are dictionary-encoded
+ * as varint ids, Grade and Semester are stored as ordinals and dates as epoch
+ * days. Loading restores objects directly, without CSV parsing or the audit
+ * work done by the public constructors.
+ * Each record carries the entity's unsaved-changes flag, so a delta export
+ * after a restart contains only what changed since the last export.
+ * Version 1 files have no such flag; their entities load as changed.
+ * Course records list their roster, since a student may be enrolled without
+ * holding a seat (enrollStudentInCourse only updates the student side).
+ * Rosters of version 1 and 2 files are rebuilt from the students' enrollments.
+ *
+ * Layout (version 3):
+ * <pre>
+ * header      magic, version, created millis, course count, student count, dictionary offset
+ * courses     [length][course record]...  (roster student IDs inline)
+ * students    [length][student record]...  (enrolled courses and grades inline)
+ * dictionary  count, then strings
+ * </pre>
+ * The dictionary is written last so the file can be produced in one pass;
+ * the header is patched once its offset is known.
+ */
+public class SnapshotService {
+    private static final int MAGIC = 0x43434D53; // "CCMS"
+    private static final short FORMAT_VERSION = 3;
+    private static final short OLDEST_READABLE_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 4 + 4 + 8;
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+    private static final int NO_VALUE = 0xFF; // Missing Grade or Semester ordinal
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_UNSAVED = 2; // Changed since the last export (version 2)
+
+    private final AppConfig config;
+
+    /**
+     * Constructor
+     */
+    public SnapshotService() {
+        this.config = AppConfig.getInstance();
+    }
+
+    /**
+     * Get the default snapshot location
+     * @return path of the snapshot file in the data directory
+     */
+    public Path getDefaultSnapshotPath() {
+        return config.getDataDirectory().resolve("ccrm.snapshot");
+    }
+
+    /**
+     * Write a snapshot, replacing any previous file atomically
+     * Each student is read under its own lock, so its courses and grades are consistent
+     * @param snapshotPath target file
+     * @param students students to save
+     * @param courses courses to save
+     * @return snapshot size in bytes
+     * @throws IOException if writing fails
+     */
+    public long writeSnapshot(Path snapshotPath, Collection<Student> students,
+                              Collection<Course> courses) throws IOException {
+        long startTime = System.nanoTime();
+        Path parentDir = snapshotPath.toAbsolutePath().getParent();
+        Files.createDirectories(parentDir);
+        Path tempFile = Files.createTempFile(parentDir, "ccrm", ".snapshot.tmp");
+
+        try {
+            long size;
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                SnapshotWriter writer = new SnapshotWriter(channel);
+                writer.skip(HEADER_BYTES); // Patched below
+
+                int courseCount = 0;
+                for (Course course : courses) {
+                    writer.writeCourse(course);
+                    courseCount++;
+                }
+                int studentCount = 0;
+                for (Student student : students) {
+                    synchronized (student) {
+                        writer.writeStudent(student);
+                    }
+                    studentCount++;
+                }
+                long dictionaryOffset = writer.writeDictionary();
+                writer.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putShort(FORMAT_VERSION).putLong(System.currentTimeMillis())
+                    .putInt(courseCount).putInt(studentCount).putLong(dictionaryOffset).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+                size = channel.size();
+            }
+
+            Files.move(tempFile, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println(String.format("Snapshot written: %d students, %d courses, %d bytes in %d ms",
+                students.size(), courses.size(), size, (System.nanoTime() - startTime) / 1_000_000));
+            return size;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Read a snapshot
+     * Course rosters are restored as saved, never checked against capacity
+     * @param snapshotPath snapshot file
+     * @return restored students and courses
+     * @throws IOException if the file is missing, corrupt or of an unknown version
+     */
+    public Snapshot readSnapshot(Path snapshotPath) throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            throw new IOException("Snapshot does not exist: " + snapshotPath);
+        }
+        long startTime = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Read until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a CCRM snapshot: " + snapshotPath);
+            }
+            short version = header.getShort();
+            if (version < OLDEST_READABLE_VERSION || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + snapshotPath);
+            }
+            long createdAt = header.getLong();
+            int courseCount = header.getInt();
+            int studentCount = header.getInt();
+            long dictionaryOffset = header.getLong();
+
+            SnapshotReader reader = new SnapshotReader(channel, dictionaryOffset, version);
+            List<String> dictionary = reader.readDictionary(dictionaryOffset);
+            reader.seek(HEADER_BYTES);
+
+            Map<String, Course> coursesByCode = new HashMap<>(courseCount * 2);
+            List<Course> courses = new ArrayList<>(courseCount);
+            for (int i = 0; i < courseCount; i++) {
+                Course course = reader.readCourse(dictionary);
+                courses.add(course);
+                coursesByCode.put(course.getId(), course);
+            }
+
+            List<Student> students = new ArrayList<>(studentCount);
+            for (int i = 0; i < studentCount; i++) {
+                students.add(reader.readStudent(dictionary, coursesByCode));
+            }
+
+            System.out.println(String.format("Snapshot loaded: %d students, %d courses in %d ms",
+                studentCount, courseCount, (System.nanoTime() - startTime) / 1_000_000));
+            return new Snapshot(students, courses, createdAt);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt snapshot " + snapshotPath + ": " + e, e);
+        }
+    }
+
+    /**
+     * Buffered record writer with a string dictionary
+     */
+    private static class SnapshotWriter {
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        private ByteBuffer record = ByteBuffer.allocate(256); // Current record, grown as needed
+        private final Map<String, Integer> dictionaryIds = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private long position;
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void skip(int bytes) {
+            position += bytes;
+        }
+
+        void writeCourse(Course course) throws IOException {
+            record.clear();
+            CourseCode code = course.getCourseCode();
+            putDictionary(code.getDepartment());
+            putVarInt(code.getNumber());
+            putString(code.getSection());
+            putString(course.getTitle());
+            putByte(course.getCredits());
+            putDictionary(course.getDepartment());
+            putByte(course.getSemester() != null ? course.getSemester().ordinal() : NO_VALUE);
+            putString(course.getInstructorId());
+            putString(course.getDescription());
+            putVarInt(course.getMaxCapacity());
+            putByte(flags(course.isActive(), course.hasUnsavedChanges()));
+            putDate(course.getCreationDate());
+            Set<String> prerequisites = course.getPrerequisites();
+            putVarInt(prerequisites.size());
+            for (String prerequisite : prerequisites) {
+                putDictionary(prerequisite);
+            }
+            Set<String> roster = course.getEnrolledStudents();
+            putVarInt(roster.size());
+            for (String studentId : roster) {
+                putString(studentId);
+            }
+            writeRecord();
+        }
+
+        void writeStudent(Student student) throws IOException {
+            record.clear();
+            Name name = student.getName();
+            putString(student.getId());
+            putString(student.getRegistrationNumber());
+            putString(name.getFirstName());
+            putString(name.getMiddleName());
+            putString(name.getLastName());
+            putString(student.getEmail());
+            putDate(student.getDateOfBirth());
+            putDate(student.getRegistrationDate());
+            putDate(student.getEnrollmentDate());
+            putLong(student.getCreationTime());
+            putDictionary(student.getDepartment());
+            putByte(student.getCurrentSemester());
+            putByte(flags(student.isActive(), student.hasUnsavedChanges()));
+
+            Set<String> enrolledCourses = student.getEnrolledCourses();
+            Map<String, Grade> grades = student.getCourseGrades();
+            putVarInt(enrolledCourses.size());
+            for (String courseCode : enrolledCourses) {
+                Grade grade = grades.get(courseCode);
+                putDictionary(courseCode);
+                putByte(student.getCourseCredits(courseCode));
+                putByte(grade != null ? grade.ordinal() : NO_VALUE);
+            }
+            writeRecord();
+        }
+
+        /**
+         * Append the dictionary
+         * @return file offset of the dictionary
+         */
+        long writeDictionary() throws IOException {
+            long offset = position;
+            record.clear();
+            putVarInt(dictionary.size());
+            writeRaw();
+            for (String value : dictionary) {
+                record.clear();
+                putString(value);
+                writeRaw();
+            }
+            return offset;
+        }
+
+        void flush() throws IOException {
+            out.flip();
+            long writePosition = position - out.remaining();
+            while (out.hasRemaining()) {
+                writePosition += channel.write(out, writePosition);
+            }
+            out.clear();
+        }
+
+        private void writeRecord() throws IOException {
+            record.flip();
+            ensureOut(4 + record.remaining());
+            out.putInt(record.remaining());
+            position += 4;
+            copyRecord();
+        }
+
+        private void writeRaw() throws IOException {
+            record.flip();
+            ensureOut(record.remaining());
+            copyRecord();
+        }
+
+        private void copyRecord() throws IOException {
+            position += record.remaining();
+            if (record.remaining() > out.remaining()) {
+                // Larger than the output buffer: write it directly
+                flush();
+                long writePosition = position - record.remaining();
+                while (record.hasRemaining()) {
+                    writePosition += channel.write(record, writePosition);
+                }
+                return;
+            }
+            out.put(record);
+        }
+
+        private void ensureOut(int bytes) throws IOException {
+            if (out.remaining() < Math.min(bytes, out.capacity())) {
+                flush();
+            }
+        }
+
+        private void ensureRecord(int bytes) {
+            if (record.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+                record.flip();
+                larger.put(record);
+                record = larger;
+            }
+        }
+
+        private static int flags(boolean active, boolean unsaved) {
+            return (active ? FLAG_ACTIVE : 0) | (unsaved ? FLAG_UNSAVED : 0);
+        }
+
+        private void putByte(int value) {
+            ensureRecord(1);
+            record.put((byte) value);
+        }
+
+        private void putLong(long value) {
+            ensureRecord(8);
+            record.putLong(value);
+        }
+
+        private void putVarInt(int value) {
+            ensureRecord(5);
+            while ((value & ~0x7F) != 0) {
+                record.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            record.put((byte) value);
+        }
+
+        private void putDate(LocalDate date) {
+            putVarInt(date != null ? (int) date.toEpochDay() + 1 : 0); // 0 = no date
+        }
+
+        /**
+         * Write a string as varint (UTF-8 length + 1) and bytes; 0 means null
+         */
+        private void putString(String value) {
+            if (value == null) {
+                putVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarInt(bytes.length + 1);
+            ensureRecord(bytes.length);
+            record.put(bytes);
+        }
+
+        private void putDictionary(String value) {
+            Integer id = dictionaryIds.get(value);
+            if (id == null) {
+                id = dictionary.size();
+                dictionaryIds.put(value, id);
+                dictionary.add(value);
+            }
+            putVarInt(id);
+        }
+    }
+
+    /**
+     * Buffered record reader
+     */
+    private static class SnapshotReader {
+        private final FileChannel channel;
+        private final long limit; // Records end where the dictionary starts
+        private final short version;
+        private ByteBuffer in = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        private long position; // File offset of the byte after the buffered data
+
+        SnapshotReader(FileChannel channel, long limit, short version) {
+            this.channel = channel;
+            this.limit = limit;
+            this.version = version;
+        }
+
+        void seek(long offset) {
+            position = offset;
+            in.clear().limit(0);
+        }
+
+        List<String> readDictionary(long offset) throws IOException {
+            seek(offset);
+            int count = readVarIntBuffered(Long.MAX_VALUE);
+            List<String> dictionary = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = readVarIntBuffered(Long.MAX_VALUE) - 1;
+                fill(length, Long.MAX_VALUE);
+                dictionary.add(length < 0 ? null : getUtf8(length));
+            }
+            return dictionary;
+        }
+
+        Course readCourse(List<String> dictionary) throws IOException {
+            nextRecord();
+            CourseCode code = CourseCode.of(dictionary.get(getVarInt()), getVarInt(), getString());
+            String title = getString();
+            int credits = in.get();
+            String department = dictionary.get(getVarInt());
+            int semester = in.get() & 0xFF;
+            String instructorId = getString();
+            String description = getString();
+            int maxCapacity = getVarInt();
+            int flags = in.get();
+            LocalDate creationDate = getDate();
+
+            Course.Builder builder = new Course.Builder(code, title)
+                .credits(credits)
+                .department(department)
+                .instructor(instructorId)
+                .description(description)
+                .maxCapacity(maxCapacity)
+                .creationDate(creationDate);
+            if (semester != NO_VALUE) {
+                builder.semester(Semester.values()[semester]);
+            }
+            int prerequisites = getVarInt();
+            for (int i = 0; i < prerequisites; i++) {
+                builder.prerequisite(dictionary.get(getVarInt()));
+            }
+
+            Course course = builder.build();
+            if (version >= 3) {
+                int rosterSize = getVarInt();
+                for (int i = 0; i < rosterSize; i++) {
+                    course.restoreStudent(getString());
+                }
+            }
+            course.setActive((flags & FLAG_ACTIVE) != 0);
+            if (!isUnsaved(flags)) {
+                course.markSaved();
+            }
+            return course;
+        }
+
+        Student readStudent(List<String> dictionary, Map<String, Course> coursesByCode) throws IOException {
+            nextRecord();
+            String id = getString();
+            String registrationNumber = getString();
+            Name name = new Name(getString(), getString(), getString());
+            String email = getString();
+            LocalDate dateOfBirth = getDate();
+            LocalDate registrationDate = getDate();
+            LocalDate enrollmentDate = getDate();
+            long creationTime = in.getLong();
+            String department = dictionary.get(getVarInt());
+            int semester = in.get();
+            int flags = in.get();
+
+            Student student = Student.restore(id, registrationNumber, name, email, dateOfBirth,
+                registrationDate, department, semester, enrollmentDate, (flags & FLAG_ACTIVE) != 0,
+                creationTime);
+
+            Grade[] grades = Grade.values();
+            int courseCount = getVarInt();
+            for (int i = 0; i < courseCount; i++) {
+                String courseCode = dictionary.get(getVarInt());
+                int credits = in.get();
+                int grade = in.get() & 0xFF;
+                student.restoreCourse(courseCode, credits, grade != NO_VALUE ? grades[grade] : null);
+
+                Course course = coursesByCode.get(courseCode);
+                if (course != null && version < 3) { // Older files have no rosters
+                    course.restoreStudent(id);
+                }
+            }
+            if (!isUnsaved(flags)) {
+                student.markSaved();
+            }
+            return student;
+        }
+
+        private boolean isUnsaved(int flags) {
+            return version < 2 || (flags & FLAG_UNSAVED) != 0;
+        }
+
+        /**
+         * Buffer the next length-prefixed record completely
+         */
+        private void nextRecord() throws IOException {
+            fill(4, limit);
+            int length = in.getInt();
+            if (length < 0) {
+                throw new IOException("Negative record length " + length);
+            }
+            fill(length, limit);
+        }
+
+        /**
+         * Make sure at least the given number of bytes is buffered
+         */
+        private void fill(int bytes, long end) throws IOException {
+            if (in.remaining() >= bytes) {
+                return;
+            }
+            if (bytes > in.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(bytes);
+                larger.put(in);
+                larger.flip();
+                in = larger;
+            }
+            in.compact();
+            while (in.position() < bytes) {
+                int maxRead = (int) Math.min(in.remaining(), end - position);
+                if (maxRead <= 0) {
+                    throw new IOException("Snapshot truncated at offset " + position);
+                }
+                ByteBuffer window = in.duplicate();
+                window.limit(window.position() + maxRead);
+                int read = channel.read(window, position);
+                if (read < 0) {
+                    throw new IOException("Snapshot truncated at offset " + position);
+                }
+                in.position(in.position() + read);
+                position += read;
+            }
+            in.flip();
+        }
+
+        private int readVarIntBuffered(long end) throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                fill(1, end);
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in snapshot");
+        }
+
+        private int getVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private LocalDate getDate() {
+            int value = getVarInt();
+            return value == 0 ? null : LocalDate.ofEpochDay(value - 1);
+        }
+
+        private String getString() {
+            int length = getVarInt() - 1;
+            return length < 0 ? null : getUtf8(length);
+        }
+
+        private String getUtf8(int length) {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Contents of a loaded snapshot
+     */
+    public static class Snapshot {
+        private final List<Student> students;
+        private final List<Course> courses;
+        private final long createdAt;
+
+        Snapshot(List<Student> students, List<Course> courses, long createdAt) {
+            this.students = students;
+            this.courses = courses;
+            this.createdAt = createdAt;
+        }
+
+        public List<Student> getStudents() { return students; }
+        public List<Course> getCourses() { return courses; }
+
+        /**
+         * Get the time the snapshot was written
+         * @return epoch milliseconds
+         */
+        public long getCreatedAt() { return createdAt; }
+    }
+}
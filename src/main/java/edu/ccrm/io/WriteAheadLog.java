@@ -0,0 +1,868 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.MutationListener;
+import edu.ccrm.service.StudentService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of service mutations
+ * Attached to the services as their MutationListener, it encodes every
+ * mutation as a compact binary entry. Entries are appended to an in-memory
+ * buffer in the order they are applied; writing and fsync happen in batches:
+ * <ul>
+ *   <li>SYNC: callers wait until their entries are forced to disk. Threads
+ *       that arrive while an fsync is running are committed together by the
+ *       next one (group commit)</li>
+ *   <li>BATCHED: a background thread writes and forces every flush interval;
+ *       a crash loses at most one interval of mutations</li>
+ *   <li>ASYNC: a background thread hands entries to the operating system
+ *       every flush interval, forcing only on roll and close</li>
+ * </ul>
+ * The log is a directory of numbered segments. Entries are
+ * [length][CRC32][payload], so a torn write at the end of the last segment is
+ * detected and cut off when the log is opened.
+ * Replay is idempotent: after a snapshot, segments before the checkpoint are
+ * deleted and anything replayed twice has no further effect.
+ */
+public class WriteAheadLog implements MutationListener, Closeable {
+    private static final int SEGMENT_MAGIC = 0x4343574C; // "CCWL"
+    private static final short FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int ENTRY_HEADER_BYTES = 8;
+    private static final int MAX_ENTRY_BYTES = 1 << 20;
+    private static final int MAX_PENDING_BYTES = 8 << 20; // Appenders flush themselves beyond this
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    // Entry types
+    private static final byte ADD_STUDENT = 1;
+    private static final byte ENROLL = 2;
+    private static final byte GRADE = 3;
+    private static final byte ASSIGN_INSTRUCTOR = 4;
+    private static final byte DEACTIVATE_COURSE = 5;
+    private static final byte ADD_COURSE = 6;
+    private static final byte UPDATE_COURSE = 7;
+    private static final byte ACTIVATE_COURSE = 8;
+    private static final byte UNENROLL = 9;
+    private static final byte UPDATE_STUDENT = 10;
+    private static final byte SET_STUDENT_ACTIVE = 11;
+
+    /**
+     * How long a caller waits for its mutation to reach the disk
+     */
+    public enum Durability {
+        SYNC, BATCHED, ASYNC
+    }
+
+    private final Path logDirectory;
+    private final Durability durability;
+    private final ScheduledExecutorService flusher; // null in SYNC mode
+    private final CRC32 crc = new CRC32(); // Guarded by this
+    private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[1]);
+    private final Object flushLock = new Object(); // Held while writing; taken before this
+
+    // Guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private long appendedSequence;
+    private long writtenSequence;
+    private long durableSequence;
+    private volatile IOException failure; // First write failure; the log rejects appends afterwards
+    private boolean closed;
+    private boolean flushRequested; // An early background flush is queued
+
+    // Guarded by flushLock
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private FileChannel channel;
+    private long segment;
+
+    /**
+     * Constructor using the data directory and write-ahead log settings of AppConfig
+     * @throws IOException if the log cannot be opened
+     */
+    public WriteAheadLog() throws IOException {
+        this(AppConfig.getInstance().getDataDirectory().resolve("wal"),
+            Durability.valueOf(AppConfig.getInstance().getWalDurability()),
+            AppConfig.getInstance().getWalFlushIntervalMillis());
+    }
+
+    /**
+     * Constructor
+     * Opens the latest segment, cutting off a torn entry at its end
+     * @param logDirectory directory holding the segments
+     * @param durability durability of appended mutations
+     * @param flushIntervalMillis background flush interval for BATCHED and ASYNC
+     * @throws IOException if the log cannot be opened
+     */
+    public WriteAheadLog(Path logDirectory, Durability durability, long flushIntervalMillis) throws IOException {
+        if (durability != Durability.SYNC && flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.logDirectory = logDirectory;
+        this.durability = durability;
+        Files.createDirectories(logDirectory);
+
+        List<Long> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            segment = segments.get(segments.size() - 1);
+            Path last = segmentPath(segment);
+            long validEnd = scanSegment(last, null);
+            if (validEnd < SEGMENT_HEADER_BYTES) {
+                openSegment(segment); // Crashed while creating the segment
+            } else {
+                channel = FileChannel.open(last, StandardOpenOption.WRITE);
+            }
+            if (validEnd >= SEGMENT_HEADER_BYTES && validEnd < channel.size()) {
+                System.err.println("Write-ahead log: discarding " + (channel.size() - validEnd)
+                    + " bytes of incomplete entries at the end of " + last.getFileName());
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+            channel.position(Math.max(validEnd, SEGMENT_HEADER_BYTES));
+        }
+
+        if (durability == Durability.SYNC) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::backgroundFlush, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // MutationListener implementation: each mutation becomes one entry
+
+    @Override
+    public void studentAdded(Student student) {
+        Name name = student.getName();
+        append(ADD_STUDENT, () -> {
+            putString(student.getId());
+            putString(student.getRegistrationNumber());
+            putString(name.getFirstName());
+            putString(name.getMiddleName());
+            putString(name.getLastName());
+            putString(student.getEmail());
+            putDate(student.getDateOfBirth());
+            putDate(student.getRegistrationDate());
+            putDate(student.getEnrollmentDate());
+            putString(student.getDepartment());
+            ensure(10);
+            pending.put((byte) student.getCurrentSemester())
+                .put((byte) (student.isActive() ? 1 : 0))
+                .putLong(student.getCreationTime());
+        });
+    }
+
+    @Override
+    public void studentEnrolled(String studentId, String courseCode, int credits, boolean courseUpdated) {
+        append(ENROLL, () -> {
+            putString(studentId);
+            putString(courseCode);
+            ensure(2);
+            pending.put((byte) credits).put((byte) (courseUpdated ? 1 : 0));
+        });
+    }
+
+    @Override
+    public void studentUnenrolled(String studentId, String courseCode) {
+        append(UNENROLL, () -> {
+            putString(studentId);
+            putString(courseCode);
+        });
+    }
+
+    @Override
+    public void studentUpdated(Student student) {
+        Name name = student.getName();
+        append(UPDATE_STUDENT, () -> {
+            putString(student.getId());
+            putString(name.getFirstName());
+            putString(name.getMiddleName());
+            putString(name.getLastName());
+            putString(student.getEmail());
+            putDate(student.getDateOfBirth());
+            putString(student.getDepartment());
+            ensure(1);
+            pending.put((byte) student.getCurrentSemester());
+        });
+    }
+
+    @Override
+    public void studentActiveChanged(String studentId, boolean active) {
+        append(SET_STUDENT_ACTIVE, () -> {
+            putString(studentId);
+            ensure(1);
+            pending.put((byte) (active ? 1 : 0));
+        });
+    }
+
+    @Override
+    public void gradeRecorded(String studentId, String courseCode, Grade grade) {
+        append(GRADE, () -> {
+            putString(studentId);
+            putString(courseCode);
+            ensure(1);
+            pending.put((byte) grade.ordinal());
+        });
+    }
+
+    @Override
+    public void courseAdded(Course course) {
+        CourseCode code = course.getCourseCode();
+        append(ADD_COURSE, () -> {
+            putString(code.getDepartment());
+            ensure(4);
+            pending.putInt(code.getNumber());
+            putString(code.getSection());
+            putCourseDetails(course);
+            ensure(1);
+            pending.put((byte) (course.isActive() ? 1 : 0));
+            putDate(course.getCreationDate());
+        });
+    }
+
+    @Override
+    public void courseUpdated(Course course) {
+        append(UPDATE_COURSE, () -> {
+            putString(course.getId());
+            putCourseDetails(course);
+        });
+    }
+
+    @Override
+    public void instructorAssigned(String courseCode, String instructorId) {
+        append(ASSIGN_INSTRUCTOR, () -> {
+            putString(courseCode);
+            putString(instructorId);
+        });
+    }
+
+    @Override
+    public void courseDeactivated(String courseCode) {
+        append(DEACTIVATE_COURSE, () -> putString(courseCode));
+    }
+
+    @Override
+    public void courseActivated(String courseCode) {
+        append(ACTIVATE_COURSE, () -> putString(courseCode));
+    }
+
+    /**
+     * Wait until this thread's entries are durable; only SYNC mode waits
+     * @throws UncheckedIOException if the log could not be written
+     */
+    @Override
+    public void sync() {
+        awaitDurable(lastAppended.get()[0]);
+    }
+
+    /**
+     * Wait until every entry appended so far is durable; only SYNC mode waits
+     * @throws UncheckedIOException if the log could not be written
+     */
+    @Override
+    public void syncAll() {
+        long sequence;
+        synchronized (this) {
+            sequence = appendedSequence;
+        }
+        awaitDurable(sequence);
+    }
+
+    private void awaitDurable(long sequence) {
+        checkFailure();
+        if (durability != Durability.SYNC || sequence == 0) {
+            return;
+        }
+        try {
+            flush(sequence, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replay all logged mutations into the services
+     * Call before attaching this log to the services
+     * @param studentService service to restore students and grades into
+     * @param courseService service holding the courses
+     * @return number of entries applied and skipped
+     * @throws IOException if a segment is unreadable or corrupt before its end
+     */
+    public ReplayResult replay(StudentService studentService, CourseService courseService) throws IOException {
+        long startTime = System.nanoTime();
+        ReplayResult result = new ReplayResult();
+        synchronized (flushLock) {
+            flush(Long.MAX_VALUE, false);
+            List<Long> segments = listSegments();
+            for (long number : segments) {
+                Path path = segmentPath(number);
+                long validEnd = scanSegment(path, payload -> {
+                    if (apply(payload, studentService, courseService)) {
+                        result.applied++;
+                    } else {
+                        result.skipped++;
+                    }
+                });
+                if (validEnd < Files.size(path) && number != segment) {
+                    throw new IOException("Corrupt write-ahead log segment " + path.getFileName()
+                        + " at offset " + validEnd);
+                }
+            }
+        }
+        result.elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Start a checkpoint: force the current segment and continue in a new one
+     * Take the snapshot after this returns, then call completeCheckpoint()
+     * @return number of the new segment
+     * @throws IOException if the segments cannot be written
+     */
+    public long beginCheckpoint() throws IOException {
+        synchronized (flushLock) {
+            flush(Long.MAX_VALUE, true);
+            channel.close();
+            openSegment(segment + 1);
+            return segment;
+        }
+    }
+
+    /**
+     * Finish a checkpoint once the snapshot is durable
+     * Deletes the segments that the snapshot now covers
+     * @param checkpointSegment number returned by beginCheckpoint()
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void completeCheckpoint(long checkpointSegment) throws IOException {
+        for (long number : listSegments()) {
+            if (number < checkpointSegment) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    /**
+     * Flush, force and close the log
+     * @throws IOException if the final write fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            try {
+                flush(Long.MAX_VALUE, true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Get the directory holding the segments
+     * @return log directory
+     */
+    public Path getLogDirectory() {
+        return logDirectory;
+    }
+
+    /**
+     * Get the durability of appended mutations
+     * @return durability mode
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Write buffered entries to the current segment
+     * Whoever holds flushLock writes everything appended so far, so threads
+     * queued behind an fsync are committed together by the next one
+     * @param sequence entry that must be written (and forced) before returning
+     * @param force true to force the segment to disk
+     */
+    private void flush(long sequence, boolean force) throws IOException {
+        synchronized (flushLock) {
+            ByteBuffer batch;
+            long upTo;
+            synchronized (this) {
+                checkFailure();
+                if ((force ? durableSequence : writtenSequence) >= Math.min(sequence, appendedSequence)) {
+                    return; // Committed by an earlier flush
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                upTo = appendedSequence;
+                flushRequested = false;
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                batch.clear();
+                if (force) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+
+            synchronized (this) {
+                writtenSequence = upTo;
+                if (force) {
+                    durableSequence = upTo;
+                }
+            }
+        }
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush(Long.MAX_VALUE, durability == Durability.BATCHED);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Write-ahead log flush failed: " + e.getMessage());
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log is unusable after a write failure", failure);
+        }
+    }
+
+    /**
+     * Encode one entry into the pending buffer and give it the next sequence number
+     * @param type entry type
+     * @param body writes the payload after the type byte
+     */
+    private synchronized void append(byte type, Runnable body) {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        ensure(ENTRY_HEADER_BYTES + 1);
+        int start = pending.position();
+        pending.position(start + ENTRY_HEADER_BYTES);
+        pending.put(type);
+        try {
+            body.run();
+        } catch (RuntimeException e) {
+            pending.position(start); // Drop the partial entry
+            throw e;
+        }
+
+        int end = pending.position();
+        ByteBuffer payload = pending.duplicate();
+        payload.position(start + ENTRY_HEADER_BYTES).limit(end);
+        crc.reset();
+        crc.update(payload);
+        pending.putInt(start, end - start - ENTRY_HEADER_BYTES).putInt(start + 4, (int) crc.getValue());
+
+        lastAppended.get()[0] = ++appendedSequence;
+        if (end > MAX_PENDING_BYTES && durability != Durability.SYNC && !flushRequested) {
+            flushRequested = true;
+            flusher.execute(this::backgroundFlush); // Bound memory if the disk falls behind
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensure(2);
+            pending.putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("Value too long to log: " + bytes.length + " bytes");
+        }
+        ensure(2 + bytes.length);
+        pending.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void putDate(LocalDate date) {
+        ensure(4);
+        pending.putInt(date != null ? (int) date.toEpochDay() : NO_DATE);
+    }
+
+    /**
+     * Encode the editable fields of a course, shared by additions and updates
+     */
+    private void putCourseDetails(Course course) {
+        putString(course.getTitle());
+        putString(course.getDepartment());
+        putString(course.getInstructorId());
+        putString(course.getDescription());
+        Set<String> prerequisites = course.getPrerequisites();
+        ensure(8);
+        pending.put((byte) course.getCredits())
+            .put((byte) (course.getSemester() != null ? course.getSemester().ordinal() : -1))
+            .putInt(course.getMaxCapacity())
+            .putShort((short) prerequisites.size());
+        for (String prerequisite : prerequisites) {
+            putString(prerequisite);
+        }
+    }
+
+    /**
+     * Apply one logged mutation
+     * @return false if it refers to a missing student or course, or was already applied
+     */
+    private static boolean apply(ByteBuffer payload, StudentService studentService, CourseService courseService) {
+        byte type = payload.get();
+        switch (type) {
+            case ADD_STUDENT: {
+                String id = getString(payload);
+                String registrationNumber = getString(payload);
+                Name name = new Name(getString(payload), getString(payload), getString(payload));
+                String email = getString(payload);
+                LocalDate dateOfBirth = getDate(payload);
+                LocalDate registrationDate = getDate(payload);
+                LocalDate enrollmentDate = getDate(payload);
+                String department = getString(payload);
+                int semester = payload.get();
+                boolean active = payload.get() == 1;
+                long creationTime = payload.getLong();
+                Student student = Student.restore(id, registrationNumber, name, email, dateOfBirth,
+                    registrationDate, department, semester, enrollmentDate, active, creationTime);
+                return studentService.addStudents(Collections.singletonList(student)) == 1;
+            }
+            case ADD_COURSE: {
+                CourseCode code = CourseCode.of(getString(payload), payload.getInt(), getString(payload));
+                CourseDetails details = new CourseDetails(payload);
+                boolean active = payload.get() == 1;
+                Course course = details.toBuilder(code)
+                    .creationDate(getDate(payload))
+                    .build();
+                course.setActive(active);
+                return courseService.addCourses(Collections.singletonList(course)) == 1;
+            }
+            case UPDATE_COURSE: {
+                Course course = courseService.findById(getString(payload));
+                CourseDetails details = new CourseDetails(payload);
+                if (course == null) {
+                    return false;
+                }
+                synchronized (course) {
+                    details.applyTo(course);
+                }
+                return true;
+            }
+            case ACTIVATE_COURSE: {
+                Course course = courseService.findById(getString(payload));
+                if (course == null) {
+                    return false;
+                }
+                course.setActive(true);
+                return true;
+            }
+            case ENROLL: {
+                String studentId = getString(payload);
+                String courseCode = getString(payload);
+                int credits = payload.get();
+                boolean courseUpdated = payload.get() == 1;
+                if (!studentService.restoreEnrollment(studentId, courseCode, credits)) {
+                    return false;
+                }
+                Course course = courseService.findById(courseCode);
+                if (courseUpdated && course != null) {
+                    course.restoreStudent(studentId);
+                }
+                return true;
+            }
+            case UNENROLL: {
+                String studentId = getString(payload);
+                String courseCode = getString(payload);
+                boolean removed = studentService.restoreUnenrollment(studentId, courseCode);
+                Course course = courseService.findById(courseCode);
+                if (course != null) {
+                    course.unenrollStudent(studentId); // No effect if already removed
+                }
+                return removed;
+            }
+            case UPDATE_STUDENT: {
+                String id = getString(payload);
+                Name name = new Name(getString(payload), getString(payload), getString(payload));
+                String email = getString(payload);
+                LocalDate dateOfBirth = getDate(payload);
+                String department = getString(payload);
+                int semester = payload.get();
+                return studentService.restoreDetails(id, name, email, dateOfBirth, department, semester);
+            }
+            case SET_STUDENT_ACTIVE: {
+                String studentId = getString(payload);
+                return studentService.restoreActive(studentId, payload.get() == 1);
+            }
+            case GRADE: {
+                String studentId = getString(payload);
+                String courseCode = getString(payload);
+                Grade grade = Grade.values()[payload.get()];
+                return studentService.restoreGrade(studentId, courseCode, grade);
+            }
+            case ASSIGN_INSTRUCTOR: {
+                Course course = courseService.findById(getString(payload));
+                if (course == null) {
+                    return false;
+                }
+                course.setInstructorId(getString(payload));
+                return true;
+            }
+            case DEACTIVATE_COURSE: {
+                Course course = courseService.findById(getString(payload));
+                if (course == null) {
+                    return false;
+                }
+                course.setActive(false);
+                return true;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown write-ahead log entry type " + type);
+        }
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length,
+            StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static LocalDate getDate(ByteBuffer payload) {
+        int epochDay = payload.getInt();
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    /**
+     * Editable fields of a logged course addition or update
+     */
+    private static final class CourseDetails {
+        private final String title;
+        private final String department;
+        private final String instructorId;
+        private final String description;
+        private final int credits;
+        private final Semester semester; // Null if none was set
+        private final int maxCapacity;
+        private final List<String> prerequisites;
+
+        CourseDetails(ByteBuffer payload) {
+            title = getString(payload);
+            department = getString(payload);
+            instructorId = getString(payload);
+            description = getString(payload);
+            credits = payload.get();
+            int semesterOrdinal = payload.get();
+            semester = semesterOrdinal >= 0 ? Semester.values()[semesterOrdinal] : null;
+            maxCapacity = payload.getInt();
+            int count = payload.getShort() & 0xFFFF;
+            prerequisites = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                prerequisites.add(getString(payload));
+            }
+        }
+
+        Course.Builder toBuilder(CourseCode code) {
+            Course.Builder builder = new Course.Builder(code, title)
+                .credits(credits)
+                .department(department)
+                .instructor(instructorId)
+                .description(description)
+                .maxCapacity(maxCapacity)
+                .prerequisites(prerequisites);
+            if (semester != null) {
+                builder.semester(semester);
+            }
+            return builder;
+        }
+
+        /**
+         * Overwrite the course's editable fields; applying twice has no further effect
+         */
+        void applyTo(Course course) {
+            course.setTitle(title);
+            course.setDepartment(department);
+            course.setInstructorId(instructorId);
+            course.setDescription(description);
+            course.setCredits(credits);
+            if (semester != null) {
+                course.setSemester(semester);
+            }
+            course.setMaxCapacity(maxCapacity);
+            for (String prerequisite : new ArrayList<>(course.getPrerequisites())) {
+                if (!prerequisites.contains(prerequisite)) {
+                    course.removePrerequisite(prerequisite);
+                }
+            }
+            prerequisites.forEach(course::addPrerequisite);
+        }
+    }
+
+    /**
+     * Read the entries of a segment, stopping at the first incomplete or corrupt one
+     * @param consumer receives each entry payload, or null to only validate
+     * @return offset just after the last valid entry
+     */
+    private static long scanSegment(Path path, Consumer<ByteBuffer> consumer) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            readFully(in, header, 0);
+            if (header.position() < SEGMENT_HEADER_BYTES) {
+                return 0; // Torn segment header
+            }
+            header.flip();
+            if (header.getInt() != SEGMENT_MAGIC || header.getShort() != FORMAT_VERSION) {
+                throw new IOException("Not a CCRM write-ahead log segment: " + path);
+            }
+
+            long size = in.size();
+            long position = SEGMENT_HEADER_BYTES;
+            ByteBuffer entryHeader = ByteBuffer.allocate(ENTRY_HEADER_BYTES);
+            ByteBuffer payload = ByteBuffer.allocate(4096);
+            CRC32 checksum = new CRC32();
+            while (position + ENTRY_HEADER_BYTES <= size) {
+                entryHeader.clear();
+                readFully(in, entryHeader, position);
+                int length = entryHeader.getInt(0);
+                if (length <= 0 || length > MAX_ENTRY_BYTES || position + ENTRY_HEADER_BYTES + length > size) {
+                    break;
+                }
+                if (payload.capacity() < length) {
+                    payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+                }
+                payload.clear().limit(length);
+                readFully(in, payload, position + ENTRY_HEADER_BYTES);
+                payload.flip();
+                checksum.reset();
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != entryHeader.getInt(4)) {
+                    break;
+                }
+                if (consumer != null) {
+                    consumer.accept(payload);
+                }
+                position += ENTRY_HEADER_BYTES + length;
+            }
+            return position;
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = number;
+        channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        header.putInt(SEGMENT_MAGIC).putShort(FORMAT_VERSION).putShort((short) 0).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDirectory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private Path segmentPath(long number) {
+        return logDirectory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Outcome of a replay
+     */
+    public static class ReplayResult {
+        private long applied;
+        private long skipped;
+        private long elapsedMillis;
+
+        public long getApplied() { return applied; }
+        public long getSkipped() { return skipped; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("Replayed %d write-ahead log entries (%d skipped) in %d ms",
+                applied, skipped, elapsedMillis);
+        }
+    }
+}
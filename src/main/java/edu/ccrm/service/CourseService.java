@@ -4,24 +4,44 @@ import edu.ccrm.domain.*;
 import edu.ccrm.config.AppConfig;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Service class for managing courses
  * Demonstrates Stream API filtering, lambdas, and functional programming
+ * Thread-safe: courses live in a concurrent map and their insertion order in a
+ * copy-on-write list, which suits a catalog that is read far more than written;
+ * additions are serialized so each is reported before the course is visible
  */
 public class CourseService implements Searchable<Course> {
     
     private final Map<String, Course> courses; // Course code -> Course mapping
+    private final List<String> courseOrder; // Course codes in insertion order
+    private final StudentKeys studentKeys; // Roster keys shared by this service's courses
     private final AppConfig config;
+    private volatile MutationListener mutationListener; // Told about every course mutation
     
     /**
      * Constructor
      */
     public CourseService() {
-        this.courses = new LinkedHashMap<>();
+        this.courses = new ConcurrentHashMap<>();
+        this.courseOrder = new CopyOnWriteArrayList<>();
+        this.studentKeys = new StudentKeys();
         this.config = AppConfig.getInstance();
+        this.mutationListener = MutationListener.NONE;
+    }
+    
+    /**
+     * Set the listener told about course additions, updates, instructors and status
+     * Attach it after replaying any logged mutations, so they are not logged twice
+     * @param listener mutation listener, or null for none
+     */
+    public void setMutationListener(MutationListener listener) {
+        this.mutationListener = listener != null ? listener : MutationListener.NONE;
     }
     
     /**
@@ -33,14 +53,54 @@ public class CourseService implements Searchable<Course> {
         assert course != null : "Course cannot be null";
         
         String courseCode = course.getCourseCode().getFullCode();
-        if (courses.containsKey(courseCode)) {
+        if (!register(course)) {
             throw new IllegalArgumentException("Course with code " + courseCode + " already exists");
         }
         
-        courses.put(courseCode, course);
+        AuditLog.getDefault().record(courseCode, AuditEvent.COURSE_CREATED, course.getTitle());
+        mutationListener.sync();
         System.out.println("Course added successfully: " + course.getTitle());
     }
     
+    /**
+     * Add a batch of courses, e.g. from a streaming import
+     * Courses whose code already exists are skipped instead of failing the batch
+     * @param batch courses to add
+     * @return number of courses added
+     */
+    public int addCourses(Collection<Course> batch) {
+        int added = 0;
+        for (Course course : batch) {
+            if (register(course)) {
+                AuditLog.getDefault().record(course.getId(), AuditEvent.COURSE_CREATED, course.getTitle());
+                added++;
+            }
+        }
+        if (added > 0) {
+            mutationListener.sync(); // One wait for the whole batch
+        }
+        return added;
+    }
+    
+    /**
+     * Publish a new course unless its code is taken
+     * Additions are rare, so they are serialized: the listener hears of the
+     * course before other threads can find it and mutate it
+     * @param course course to add
+     * @return false if a course with the same code exists
+     */
+    private synchronized boolean register(Course course) {
+        String courseCode = course.getCourseCode().getFullCode();
+        if (courses.containsKey(courseCode)) {
+            return false;
+        }
+        course.useStudentKeys(studentKeys);
+        mutationListener.courseAdded(course);
+        courses.put(courseCode, course);
+        courseOrder.add(courseCode);
+        return true;
+    }
+    
     /**
      * Update an existing course
      * @param course course to update
@@ -50,11 +110,15 @@ public class CourseService implements Searchable<Course> {
         assert course != null : "Course cannot be null";
         
         String courseCode = course.getCourseCode().getFullCode();
-        if (!courses.containsKey(courseCode)) {
-            throw new IllegalArgumentException("Course with code " + courseCode + " not found");
+        synchronized (course) {
+            course.useStudentKeys(studentKeys);
+            if (courses.replace(courseCode, course) == null) {
+                throw new IllegalArgumentException("Course with code " + courseCode + " not found");
+            }
+            mutationListener.courseUpdated(course);
+            AuditLog.getDefault().record(courseCode, AuditEvent.COURSE_UPDATED);
         }
-        
-        courses.put(courseCode, course);
+        mutationListener.sync();
         System.out.println("Course updated successfully: " + course.getTitle());
     }
     
@@ -66,7 +130,12 @@ public class CourseService implements Searchable<Course> {
     public boolean deactivateCourse(String courseCode) {
         Course course = findById(courseCode);
         if (course != null) {
-            course.setActive(false);
+            synchronized (course) { // Keeps the reported order equal to the applied order
+                course.setActive(false);
+                mutationListener.courseDeactivated(course.getId());
+                AuditLog.getDefault().record(course.getId(), AuditEvent.COURSE_DEACTIVATED);
+            }
+            mutationListener.sync();
             return true;
         }
         return false;
@@ -80,7 +149,12 @@ public class CourseService implements Searchable<Course> {
     public boolean activateCourse(String courseCode) {
         Course course = findById(courseCode);
         if (course != null) {
-            course.setActive(true);
+            synchronized (course) {
+                course.setActive(true);
+                mutationListener.courseActivated(course.getId());
+                AuditLog.getDefault().record(course.getId(), AuditEvent.COURSE_ACTIVATED);
+            }
+            mutationListener.sync();
             return true;
         }
         return false;
@@ -95,7 +169,12 @@ public class CourseService implements Searchable<Course> {
     public boolean assignInstructor(String courseCode, String instructorId) {
         Course course = findById(courseCode);
         if (course != null) {
-            course.setInstructorId(instructorId);
+            synchronized (course) {
+                course.setInstructorId(instructorId);
+                mutationListener.instructorAssigned(course.getId(), instructorId);
+                AuditLog.getDefault().record(course.getId(), AuditEvent.INSTRUCTOR_ASSIGNED, instructorId);
+            }
+            mutationListener.sync();
             System.out.println("Instructor " + instructorId + " assigned to course " + courseCode);
             return true;
         }
@@ -105,19 +184,31 @@ public class CourseService implements Searchable<Course> {
     // Searchable interface implementation
     @Override
     public List<Course> search(Predicate<Course> predicate) {
-        return courses.values().stream()
+        return orderedCourses().stream()
             .filter(predicate)
             .collect(Collectors.toList());
     }
     
     @Override
     public Course findById(String courseCode) {
-        return courses.get(courseCode.toUpperCase());
+        return courses.get(SymbolTable.normalizeCode(courseCode));
     }
     
     @Override
     public List<Course> getAll() {
-        return new ArrayList<>(courses.values());
+        return orderedCourses();
+    }
+    
+    /**
+     * Get courses in insertion order
+     * @return snapshot list of courses
+     */
+    private List<Course> orderedCourses() {
+        List<Course> ordered = new ArrayList<>(courseOrder.size());
+        for (String courseCode : courseOrder) {
+            ordered.add(courses.get(courseCode));
+        }
+        return ordered;
     }
     
     /**
@@ -409,6 +500,6 @@ public class CourseService implements Searchable<Course> {
      * @return true if course exists
      */
     public boolean courseExists(String courseCode) {
-        return courses.containsKey(courseCode.toUpperCase());
+        return courses.containsKey(SymbolTable.normalizeCode(courseCode));
     }
 }
\ No newline at end of file
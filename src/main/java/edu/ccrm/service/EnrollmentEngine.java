@@ -0,0 +1,227 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+import edu.ccrm.domain.SymbolTable;
+
+import java.util.*;
+
+/**
+ * Enrollment engine that updates the student and course sides together
+ * A seat is claimed on the course with a lock-free CAS before the student is
+ * locked, so a popular course fills exactly to capacity under contention
+ * without any global lock; failed attempts hand their seat back
+ */
+public class EnrollmentEngine {
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+
+    /**
+     * Constructor
+     * @param studentService service holding the students
+     * @param courseService service holding the courses
+     */
+    public EnrollmentEngine(StudentService studentService, CourseService courseService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+    }
+
+    /**
+     * Enroll a student in a course, enforcing capacity and credit limits
+     * @param studentId student ID
+     * @param courseCode course code
+     * @return enrollment outcome
+     */
+    public EnrollmentResult enroll(String studentId, String courseCode) {
+        Student student = studentService.findById(studentId);
+        if (student == null) {
+            return EnrollmentResult.STUDENT_NOT_FOUND;
+        }
+
+        Course course = courseService.findById(courseCode);
+        if (course == null) {
+            return EnrollmentResult.COURSE_NOT_FOUND;
+        }
+
+        return enroll(student, course);
+    }
+
+    /**
+     * Enroll an already resolved student in an already resolved course
+     * @param student student to enroll
+     * @param course course to enroll in
+     * @return enrollment outcome
+     */
+    EnrollmentResult enroll(Student student, Course course) {
+        if (!course.isActive()) {
+            return EnrollmentResult.COURSE_INACTIVE;
+        }
+        if (!course.tryReserveSeat()) {
+            return EnrollmentResult.COURSE_FULL;
+        }
+
+        return studentService.tryEnroll(student, course.getCourseCode().getFullCode(),
+            course.getCredits(), course);
+    }
+
+    /**
+     * Enroll many (student, course) pairs in one call
+     * Requests are grouped by course so each course is resolved and its seats
+     * reserved once, and courses are processed in parallel; failures are
+     * reported per item instead of being thrown. The mutation listener is
+     * waited for once, after the last item, instead of once per enrollment
+     * @param requests enrollment requests
+     * @return batch result with one outcome per request, in request order
+     */
+    public BatchResult enrollAll(List<EnrollmentRequest> requests) {
+        EnrollmentResult[] results = new EnrollmentResult[requests.size()];
+
+        // Group request positions by normalized course code
+        Map<String, List<Integer>> positionsByCourse = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String courseCode = SymbolTable.normalizeCode(requests.get(i).getCourseCode()); // Unknown codes fail below
+            positionsByCourse.computeIfAbsent(courseCode, code -> new ArrayList<>()).add(i);
+        }
+
+        // Each course writes only its own positions, so no coordination is needed
+        positionsByCourse.entrySet().parallelStream()
+            .forEach(entry -> enrollCourseGroup(entry.getKey(), entry.getValue(), requests, results));
+        studentService.syncAll(); // One wait for the whole batch
+
+        return new BatchResult(results);
+    }
+
+    /**
+     * Process all requests for a single course
+     */
+    private void enrollCourseGroup(String courseCode, List<Integer> positions,
+                                   List<EnrollmentRequest> requests, EnrollmentResult[] results) {
+        Course course = courseService.findById(courseCode);
+        EnrollmentResult groupFailure = null;
+        if (course == null) {
+            groupFailure = EnrollmentResult.COURSE_NOT_FOUND;
+        } else if (!course.isActive()) {
+            groupFailure = EnrollmentResult.COURSE_INACTIVE;
+        }
+        if (groupFailure != null) {
+            for (int position : positions) {
+                results[position] = groupFailure;
+            }
+            return;
+        }
+
+        // One capacity check for the whole group
+        int heldSeats = course.reserveSeats(positions.size());
+        String normalizedCode = course.getCourseCode().getFullCode();
+        int credits = course.getCredits();
+
+        for (int position : positions) {
+            Student student = studentService.findById(requests.get(position).getStudentId());
+            if (student == null) {
+                results[position] = EnrollmentResult.STUDENT_NOT_FOUND;
+                continue;
+            }
+
+            // Seats released by failed items go back to the course, so try to reclaim one
+            if (heldSeats > 0) {
+                heldSeats--;
+            } else if (!course.tryReserveSeat()) {
+                results[position] = EnrollmentResult.COURSE_FULL;
+                continue;
+            }
+
+            results[position] = studentService.enrollLocked(student, normalizedCode, credits, course);
+        }
+
+        course.releaseSeats(heldSeats);
+    }
+
+    /**
+     * Remove a student from a course on both sides
+     * @param studentId student ID
+     * @param courseCode course code
+     * @return true if the student was enrolled and has been removed
+     */
+    public boolean unenroll(String studentId, String courseCode) {
+        Student student = studentService.findById(studentId);
+        Course course = courseService.findById(courseCode);
+        if (student == null || course == null) {
+            return false;
+        }
+
+        return studentService.tryUnenroll(student, course);
+    }
+
+    /**
+     * A single (student, course) pair for batch enrollment
+     */
+    public static final class EnrollmentRequest {
+        private final String studentId;
+        private final String courseCode;
+
+        public EnrollmentRequest(String studentId, String courseCode) {
+            assert studentId != null && courseCode != null : "Student ID and course code are required";
+            this.studentId = studentId;
+            this.courseCode = courseCode;
+        }
+
+        public String getStudentId() { return studentId; }
+        public String getCourseCode() { return courseCode; }
+    }
+
+    /**
+     * Per-item outcomes of a batch enrollment
+     */
+    public static final class BatchResult {
+        private final EnrollmentResult[] results;
+
+        private BatchResult(EnrollmentResult[] results) {
+            this.results = results;
+        }
+
+        /**
+         * Get the outcome of one request
+         * @param index position of the request in the submitted list
+         * @return enrollment outcome
+         */
+        public EnrollmentResult get(int index) {
+            return results[index];
+        }
+
+        public int size() {
+            return results.length;
+        }
+
+        /**
+         * Count successful enrollments
+         */
+        public int getSuccessCount() {
+            int count = 0;
+            for (EnrollmentResult result : results) {
+                if (result.isSuccess()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Count outcomes per result type
+         * @return map of outcome -> count
+         */
+        public Map<EnrollmentResult, Integer> getCountsByResult() {
+            Map<EnrollmentResult, Integer> counts = new EnumMap<>(EnrollmentResult.class);
+            for (EnrollmentResult result : results) {
+                counts.merge(result, 1, Integer::sum);
+            }
+            return counts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BatchResult{total=%d, enrolled=%d, outcomes=%s}",
+                results.length, getSuccessCount(), getCountsByResult());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package edu.ccrm.service;
+
+/**
+ * Outcome of an enrollment attempt
+ * Lets bulk and concurrent paths report failures without throwing exceptions
+ */
+public enum EnrollmentResult {
+    ENROLLED("Enrolled successfully"),
+    STUDENT_NOT_FOUND("Student not found"),
+    COURSE_NOT_FOUND("Course not found"),
+    COURSE_INACTIVE("Course is not active"),
+    COURSE_FULL("Course capacity exceeded"),
+    ALREADY_ENROLLED("Student is already enrolled in this course"),
+    CREDIT_LIMIT_EXCEEDED("Credit limit would be exceeded");
+
+    private final String description;
+
+    /**
+     * Enum constructor
+     * @param description human-readable reason
+     */
+    EnrollmentResult(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() { return description; }
+
+    /**
+     * Check if the attempt succeeded
+     * @return true if the student was enrolled
+     */
+    public boolean isSuccess() {
+        return this == ENROLLED;
+    }
+}
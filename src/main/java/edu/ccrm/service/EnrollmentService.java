@@ -0,0 +1,436 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.util.IntList;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Service class for managing enrollment records
+ * Stores enrollments column by column in primitive arrays (one row per
+ * enrollment) with student and course ids dictionary-encoded to ints, and
+ * keeps student -> rows and course -> rows indexes, so schedules and rosters
+ * cost O(result) however many historical rows exist
+ * Enrollment objects are only built when a caller asks for them
+ */
+public class EnrollmentService implements Searchable<Enrollment> {
+
+    private static final String ID_PREFIX = "ENR";
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte NO_GRADE = -1;
+
+    // Status codes stored in the status column
+    private static final byte STATUS_ENROLLED = 0;
+    private static final byte STATUS_COMPLETED = 1;
+    private static final byte STATUS_WITHDRAWN = 2;
+    private static final byte STATUS_FAILED = 3;
+    private static final String[] STATUS_NAMES = {"ENROLLED", "COMPLETED", "WITHDRAWN", "FAILED"};
+    private static final Grade[] GRADES = Grade.values();
+
+    // Columns, indexed by row number
+    private int[] studentKeys;
+    private int[] courseKeys;
+    private int[] enrollmentDays; // Epoch days
+    private int[] completionDays; // Epoch days or NO_DATE
+    private float[] marks; // -1 when not assigned
+    private byte[] statuses;
+    private byte[] grades; // Grade ordinal or NO_GRADE
+    private int rowCount;
+
+    private final KeyDictionary studentDictionary;
+    private final KeyDictionary courseDictionary;
+    private final List<IntList> rowsByStudent; // Student key -> rows
+    private final List<IntList> rowsByCourse; // Course key -> rows
+    private final NavigableMap<Integer, IntList> rowsByEnrollmentDay;
+    private final ReadWriteLock lock;
+
+    /**
+     * Constructor
+     */
+    public EnrollmentService() {
+        this(1024);
+    }
+
+    /**
+     * Constructor with expected number of enrollments
+     * @param initialCapacity initial row capacity
+     */
+    public EnrollmentService(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        this.studentKeys = new int[capacity];
+        this.courseKeys = new int[capacity];
+        this.enrollmentDays = new int[capacity];
+        this.completionDays = new int[capacity];
+        this.marks = new float[capacity];
+        this.statuses = new byte[capacity];
+        this.grades = new byte[capacity];
+        this.studentDictionary = new KeyDictionary();
+        this.courseDictionary = new KeyDictionary();
+        this.rowsByStudent = new ArrayList<>();
+        this.rowsByCourse = new ArrayList<>();
+        this.rowsByEnrollmentDay = new TreeMap<>();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Record a new enrollment dated today
+     * @param studentId student ID
+     * @param courseCode course code
+     * @return the new enrollment
+     */
+    public Enrollment enroll(String studentId, String courseCode) {
+        return enroll(studentId, courseCode, LocalDate.now());
+    }
+
+    /**
+     * Record a new enrollment with an explicit date (e.g. when loading history)
+     * @param studentId student ID
+     * @param courseCode course code
+     * @param enrollmentDate date of enrollment
+     * @return the new enrollment
+     */
+    public Enrollment enroll(String studentId, String courseCode, LocalDate enrollmentDate) {
+        assert studentId != null && !studentId.trim().isEmpty() : "Student ID is required";
+        assert courseCode != null && !courseCode.trim().isEmpty() : "Course code is required";
+        assert enrollmentDate != null : "Enrollment date is required";
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(rowCount + 1);
+            int row = rowCount++;
+            int studentKey = studentDictionary.keyOf(studentId);
+            int courseKey = courseDictionary.keyOf(SymbolTable.internCode(courseCode));
+            int day = (int) enrollmentDate.toEpochDay();
+
+            studentKeys[row] = studentKey;
+            courseKeys[row] = courseKey;
+            enrollmentDays[row] = day;
+            completionDays[row] = NO_DATE;
+            marks[row] = -1;
+            statuses[row] = STATUS_ENROLLED;
+            grades[row] = NO_GRADE;
+
+            rowsFor(rowsByStudent, studentKey).add(row);
+            rowsFor(rowsByCourse, courseKey).add(row);
+            rowsByEnrollmentDay.computeIfAbsent(day, d -> new IntList()).add(row);
+
+            return toEnrollment(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Withdraw an enrollment
+     * @param enrollmentId enrollment ID
+     * @return true if the enrollment was active and is now withdrawn
+     */
+    public boolean withdraw(String enrollmentId) {
+        int row = rowOf(enrollmentId);
+        lock.writeLock().lock();
+        try {
+            if (row < 0 || row >= rowCount || statuses[row] == STATUS_WITHDRAWN) {
+                return false;
+            }
+            statuses[row] = STATUS_WITHDRAWN;
+            completionDays[row] = (int) LocalDate.now().toEpochDay();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record marks for an enrollment and derive its grade and status
+     * @param enrollmentId enrollment ID
+     * @param marksObtained marks obtained (0-100)
+     * @return updated enrollment
+     * @throws IllegalArgumentException if the enrollment does not exist or was withdrawn
+     */
+    public Enrollment recordMarks(String enrollmentId, double marksObtained) {
+        assert marksObtained >= 0 && marksObtained <= 100 : "Marks must be between 0 and 100";
+
+        int row = rowOf(enrollmentId);
+        lock.writeLock().lock();
+        try {
+            if (row < 0 || row >= rowCount) {
+                throw new IllegalArgumentException("Enrollment not found: " + enrollmentId);
+            }
+            if (statuses[row] == STATUS_WITHDRAWN) {
+                throw new IllegalArgumentException("Cannot record marks for withdrawn enrollment: " + enrollmentId);
+            }
+
+            Grade grade = Grade.fromMarks(marksObtained);
+            marks[row] = (float) marksObtained;
+            grades[row] = (byte) grade.ordinal();
+            statuses[row] = grade.isPassing() ? STATUS_COMPLETED : STATUS_FAILED;
+            completionDays[row] = (int) LocalDate.now().toEpochDay();
+            return toEnrollment(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get all enrollments of a student (full history)
+     * @param studentId student ID
+     * @return enrollments in creation order
+     */
+    public List<Enrollment> getStudentEnrollments(String studentId) {
+        lock.readLock().lock();
+        try {
+            return toEnrollments(rowsAt(rowsByStudent, studentDictionary.find(studentId)), row -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get current schedule of a student (enrollments still in progress)
+     * @param studentId student ID
+     * @return enrollments with status ENROLLED
+     */
+    public List<Enrollment> getStudentSchedule(String studentId) {
+        lock.readLock().lock();
+        try {
+            return toEnrollments(rowsAt(rowsByStudent, studentDictionary.find(studentId)),
+                row -> statuses[row] == STATUS_ENROLLED);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get class roster of a course (enrollments still in progress)
+     * @param courseCode course code
+     * @return enrollments with status ENROLLED
+     */
+    public List<Enrollment> getCourseRoster(String courseCode) {
+        lock.readLock().lock();
+        try {
+            return toEnrollments(rowsAt(rowsByCourse, courseDictionary.find(SymbolTable.normalizeCode(courseCode))),
+                row -> statuses[row] == STATUS_ENROLLED);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get all enrollments of a course (full history)
+     * @param courseCode course code
+     * @return enrollments in creation order
+     */
+    public List<Enrollment> getCourseEnrollments(String courseCode) {
+        lock.readLock().lock();
+        try {
+            return toEnrollments(rowsAt(rowsByCourse, courseDictionary.find(SymbolTable.normalizeCode(courseCode))),
+                row -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find enrollments made within a date range
+     * @param from first date (inclusive)
+     * @param to last date (inclusive)
+     * @return enrollments ordered by enrollment date
+     */
+    public List<Enrollment> findByEnrollmentDateRange(LocalDate from, LocalDate to) {
+        assert from != null && to != null : "Date range is required";
+
+        lock.readLock().lock();
+        try {
+            List<Enrollment> result = new ArrayList<>();
+            if (from.isAfter(to)) {
+                return result;
+            }
+            for (IntList rows : rowsByEnrollmentDay.subMap((int) from.toEpochDay(), true,
+                    (int) to.toEpochDay(), true).values()) {
+                for (int i = 0; i < rows.size(); i++) {
+                    result.add(toEnrollment(rows.get(i)));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Searchable interface implementation
+    @Override
+    public List<Enrollment> search(Predicate<Enrollment> predicate) {
+        List<Enrollment> result = new ArrayList<>();
+        for (Enrollment enrollment : getAll()) {
+            if (predicate.test(enrollment)) {
+                result.add(enrollment);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Enrollment findById(String enrollmentId) {
+        int row = rowOf(enrollmentId);
+        lock.readLock().lock();
+        try {
+            return row >= 0 && row < rowCount ? toEnrollment(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Enrollment> getAll() {
+        lock.readLock().lock();
+        try {
+            List<Enrollment> result = new ArrayList<>(rowCount);
+            for (int row = 0; row < rowCount; row++) {
+                result.add(toEnrollment(row));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count a course's in-progress enrollments without building objects
+     * @param courseCode course code
+     * @return number of rows with status ENROLLED
+     */
+    public int countActiveInCourse(String courseCode) {
+        lock.readLock().lock();
+        try {
+            IntList rows = rowsAt(rowsByCourse, courseDictionary.find(SymbolTable.normalizeCode(courseCode)));
+            int count = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                if (statuses[rows.get(i)] == STATUS_ENROLLED) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get total number of enrollment rows
+     * @return enrollment count
+     */
+    public int getTotalCount() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build an Enrollment view of a row (caller holds a lock)
+     */
+    private Enrollment toEnrollment(int row) {
+        byte status = statuses[row];
+        return Enrollment.restore(
+            ID_PREFIX + (row + 1),
+            studentDictionary.valueOf(studentKeys[row]),
+            courseDictionary.valueOf(courseKeys[row]),
+            LocalDate.ofEpochDay(enrollmentDays[row]),
+            completionDays[row] == NO_DATE ? null : LocalDate.ofEpochDay(completionDays[row]),
+            grades[row] == NO_GRADE ? null : GRADES[grades[row]],
+            marks[row],
+            status != STATUS_WITHDRAWN,
+            STATUS_NAMES[status]);
+    }
+
+    private List<Enrollment> toEnrollments(IntList rows, IntPredicate filter) {
+        List<Enrollment> result = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            if (filter.test(row)) {
+                result.add(toEnrollment(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the rows of a key, creating the entry if needed (caller holds the write lock)
+     */
+    private static IntList rowsFor(List<IntList> index, int key) {
+        while (index.size() <= key) {
+            index.add(new IntList(4));
+        }
+        return index.get(key);
+    }
+
+    /**
+     * Get the rows of a key without modifying the index
+     */
+    private static IntList rowsAt(List<IntList> index, int key) {
+        return key >= 0 && key < index.size() ? index.get(key) : new IntList(1);
+    }
+
+    /**
+     * Parse the row number out of an enrollment ID such as "ENR42"
+     * @return row number, or -1 if the ID is malformed
+     */
+    private static int rowOf(String enrollmentId) {
+        if (enrollmentId == null || !enrollmentId.startsWith(ID_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(enrollmentId.substring(ID_PREFIX.length())) - 1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= studentKeys.length) {
+            return;
+        }
+        int capacity = Math.max(required, studentKeys.length * 2);
+        studentKeys = Arrays.copyOf(studentKeys, capacity);
+        courseKeys = Arrays.copyOf(courseKeys, capacity);
+        enrollmentDays = Arrays.copyOf(enrollmentDays, capacity);
+        completionDays = Arrays.copyOf(completionDays, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        grades = Arrays.copyOf(grades, capacity);
+    }
+
+    /**
+     * Dictionary encoding of repeated strings to dense int keys
+     */
+    private static class KeyDictionary {
+        private final Map<String, Integer> keys = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int keyOf(String value) {
+            Integer key = keys.get(value);
+            if (key == null) {
+                key = values.size();
+                keys.put(value, key);
+                values.add(value);
+            }
+            return key;
+        }
+
+        int find(String value) {
+            Integer key = keys.get(value);
+            return key != null ? key : -1;
+        }
+
+        String valueOf(int key) {
+            return values.get(key);
+        }
+    }
+}
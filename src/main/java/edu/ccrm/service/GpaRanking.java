@@ -0,0 +1,124 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Student;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Live GPA leaderboard of active students
+ * Keeps students ordered by GPA (descending) then ID in a skip list, so the
+ * top K can be read in O(K) without sorting the whole population
+ * Demonstrates NavigableMap ordering and a bounded heap for top-K selection
+ * Thread-safe for readers; callers serialize updates of the same student
+ * by holding that student's lock
+ */
+class GpaRanking {
+
+    private final ConcurrentSkipListMap<RankKey, Student> ranking;
+    private final Map<String, RankKey> keysById; // ID -> key currently in the ranking
+
+    /**
+     * Constructor
+     */
+    GpaRanking() {
+        this.ranking = new ConcurrentSkipListMap<>();
+        this.keysById = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Insert, move or remove a student according to its current GPA and status
+     * @param student student whose GPA or active flag may have changed
+     */
+    void update(Student student) {
+        RankKey oldKey = keysById.remove(student.getId());
+        if (oldKey != null) {
+            ranking.remove(oldKey);
+        }
+
+        if (student.isActive()) {
+            RankKey newKey = new RankKey(student.calculateGPA(), student.getId());
+            keysById.put(student.getId(), newKey);
+            ranking.put(newKey, student);
+        }
+    }
+
+    /**
+     * Get the top students by GPA
+     * @param limit number of students to return
+     * @return students sorted by GPA descending
+     */
+    List<Student> top(int limit) {
+        List<Student> result = new ArrayList<>(Math.max(0, Math.min(limit, ranking.size())));
+        for (Student student : ranking.values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(student);
+        }
+        return result;
+    }
+
+    /**
+     * Select the top elements of a collection with a bounded min-heap
+     * Runs in O(n log k) instead of sorting all n elements
+     * @param items candidate elements
+     * @param limit number of elements to keep
+     * @param comparator ordering, highest first in the result
+     * @return top elements sorted according to the comparator, highest first
+     */
+    static <T> List<T> selectTop(Iterable<T> items, int limit, Comparator<? super T> comparator) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Min-heap: the root is the weakest element currently kept
+        PriorityQueue<T> heap = new PriorityQueue<>(limit, comparator);
+        for (T item : items) {
+            if (heap.size() < limit) {
+                heap.add(item);
+            } else if (comparator.compare(item, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+
+        List<T> result = new ArrayList<>(heap);
+        result.sort(comparator.reversed());
+        return result;
+    }
+
+    /**
+     * Ranking key: GPA descending, then student ID ascending
+     */
+    private static final class RankKey implements Comparable<RankKey> {
+        private final double gpa;
+        private final String id;
+
+        RankKey(double gpa, String id) {
+            this.gpa = gpa;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(RankKey other) {
+            int byGpa = Double.compare(other.gpa, gpa);
+            return byGpa != 0 ? byGpa : id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+
+            RankKey that = (RankKey) obj;
+            return Double.compare(gpa, that.gpa) == 0 && id.equals(that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gpa, id);
+        }
+    }
+}
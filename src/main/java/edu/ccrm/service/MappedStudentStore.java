@@ -0,0 +1,724 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Read-only, memory-mapped student store for very large populations
+ * Cold fields (ID, registration number, name, email, dates, courses and grades)
+ * stay in a file that is mapped, not loaded: every student has a fixed-stride
+ * record pointing at its variable-length data. Hot fields used by the finders
+ * (active flag, semester, department and GPA) are kept in primitive arrays,
+ * and IDs are found through an open-addressing table of slot numbers.
+ * This keeps the heap cost at about 30 bytes per student.
+ * Students are materialized on demand as detached views; changing a view
+ * does not change the store.
+ * Thread-safe: the store is immutable once opened.
+ *
+ * File layout (version 1):
+ * <pre>
+ * header      magic, version, student count, record stride, data offset, dictionary offset
+ * records     count x STRIDE bytes, in slot order
+ * data        per student: strings, then enrolled courses with credits and grades
+ * dictionary  department names and course codes
+ * </pre>
+ */
+public final class MappedStudentStore implements Searchable<Student> {
+    private static final int MAGIC = 0x43434D54; // "CCMT"
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 4 + 4 + 8 + 8;
+    private static final int STRIDE = 48;
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int NO_GRADE = 0xFF;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    // Record field offsets
+    private static final int DATA_OFFSET = 0;       // long, relative to the data region
+    private static final int DATE_OF_BIRTH = 8;     // int epoch day
+    private static final int REGISTRATION_DATE = 12; // int epoch day
+    private static final int ENROLLMENT_DATE = 16;  // int epoch day
+    private static final int CREATION_TIME = 24;    // long
+    private static final int GPA = 32;              // double
+    private static final int DEPARTMENT = 40;       // unsigned short dictionary id
+    private static final int SEMESTER = 42;         // byte
+    private static final int ACTIVE = 43;           // byte
+    private static final int COURSE_COUNT = 44;     // unsigned short
+
+    private final ByteBuffer records; // Mapped, read with absolute gets only
+    private final ByteBuffer data;
+    private final List<String> dictionary;
+    private final int size;
+
+    // Hot fields, indexed by slot
+    private final BitSet active;
+    private final byte[] semesters;
+    private final short[] departments;
+    private final double[] gpas;
+
+    // ID lookup: open addressing over slot + 1, 0 marks an empty bucket
+    private final int[] idHashes;
+    private final int[] idTable;
+
+    private MappedStudentStore(ByteBuffer records, ByteBuffer data, List<String> dictionary, int size) {
+        this.records = records;
+        this.data = data;
+        this.dictionary = dictionary;
+        this.size = size;
+        this.active = new BitSet(size);
+        this.semesters = new byte[size];
+        this.departments = new short[size];
+        this.gpas = new double[size];
+        this.idHashes = new int[size];
+        this.idTable = new int[Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1];
+
+        for (int slot = 0; slot < size; slot++) {
+            int record = slot * STRIDE;
+            active.set(slot, records.get(record + ACTIVE) != 0);
+            semesters[slot] = records.get(record + SEMESTER);
+            departments[slot] = records.getShort(record + DEPARTMENT);
+            gpas[slot] = records.getDouble(record + GPA);
+
+            String id = readString(dataPosition(slot));
+            int hash = spread(id.hashCode());
+            idHashes[slot] = hash;
+            int bucket = hash & (idTable.length - 1);
+            while (idTable[bucket] != 0) {
+                bucket = (bucket + 1) & (idTable.length - 1);
+            }
+            idTable[bucket] = slot + 1;
+        }
+    }
+
+    /**
+     * Write students to a store file, replacing any previous file atomically
+     * Each student is read under its own lock
+     * @param storePath target file
+     * @param students students in slot order; IDs must be unique
+     * @return the opened store
+     * @throws IOException if writing fails
+     */
+    public static MappedStudentStore write(Path storePath, Collection<Student> students) throws IOException {
+        try (Writer writer = new Writer(storePath)) {
+            for (Student student : students) {
+                boolean added;
+                synchronized (student) {
+                    added = writer.add(student);
+                }
+                if (!added) {
+                    throw new IllegalArgumentException("Duplicate student ID " + student.getId());
+                }
+            }
+            return writer.finish();
+        }
+    }
+
+    /**
+     * Open a store file
+     * The mapping stays valid after this returns; the file must not be modified while in use
+     * @param storePath store file
+     * @return the opened store
+     * @throws IOException if the file is missing, corrupt or of an unknown version
+     */
+    public static MappedStudentStore open(Path storePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(storePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a CCRM student store: " + storePath);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a CCRM student store: " + storePath);
+            }
+            short version = header.getShort();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported student store version " + version + " in " + storePath);
+            }
+            header.getShort();
+            int count = header.getInt();
+            int stride = header.getInt();
+            long dataStart = header.getLong();
+            long dictionaryOffset = header.getLong();
+            if (stride != STRIDE || count < 0 || dataStart != HEADER_BYTES + (long) count * STRIDE
+                    || dictionaryOffset < dataStart || dictionaryOffset > fileSize) {
+                throw new IOException("Corrupt student store header in " + storePath);
+            }
+
+            MappedByteBuffer records = map(channel, HEADER_BYTES, dataStart - HEADER_BYTES);
+            MappedByteBuffer data = map(channel, dataStart, dictionaryOffset - dataStart);
+            List<String> dictionary = readDictionary(map(channel, dictionaryOffset, fileSize - dictionaryOffset));
+            return new MappedStudentStore(records, data, dictionary, count);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt student store " + storePath + ": " + e, e);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Student store region larger than " + Integer.MAX_VALUE + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    private static List<String> readDictionary(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<String> dictionary = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return dictionary;
+    }
+
+    /**
+     * Get number of students in the store
+     * @return student count
+     */
+    public int size() {
+        return size;
+    }
+
+    // Searchable interface implementation; these materialize every student they test
+    @Override
+    public List<Student> search(Predicate<Student> predicate) {
+        List<Student> result = new ArrayList<>();
+        for (int slot = 0; slot < size; slot++) {
+            Student student = materialize(slot);
+            if (predicate.test(student)) {
+                result.add(student);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Student findById(String id) {
+        int slot = slotOf(id);
+        return slot >= 0 ? materialize(slot) : null;
+    }
+
+    @Override
+    public List<Student> getAll() {
+        return search(student -> true);
+    }
+
+    /**
+     * Check if a student exists, without materializing it
+     * @param studentId student ID
+     * @return true if the store holds the student
+     */
+    public boolean contains(String studentId) {
+        return slotOf(studentId) >= 0;
+    }
+
+    /**
+     * Find students by department, case-insensitively
+     * Scans the department array; only matches are materialized
+     * @param department department name
+     * @return list of students in the department
+     */
+    public List<Student> findByDepartment(String department) {
+        String wanted = department.trim();
+        BitSet departmentIds = new BitSet();
+        for (int id = 0; id < dictionary.size(); id++) {
+            if (dictionary.get(id).trim().equalsIgnoreCase(wanted)) {
+                departmentIds.set(id);
+            }
+        }
+
+        List<Student> result = new ArrayList<>();
+        if (departmentIds.isEmpty()) {
+            return result;
+        }
+        for (int slot = 0; slot < size; slot++) {
+            if (departmentIds.get(departments[slot] & 0xFFFF)) {
+                result.add(materialize(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find active students
+     * @return list of active students
+     */
+    public List<Student> findActiveStudents() {
+        List<Student> result = new ArrayList<>(active.cardinality());
+        for (int slot = active.nextSetBit(0); slot >= 0; slot = active.nextSetBit(slot + 1)) {
+            result.add(materialize(slot));
+        }
+        return result;
+    }
+
+    /**
+     * Count active students without materializing any
+     * @return active student count
+     */
+    public int countActive() {
+        return active.cardinality();
+    }
+
+    /**
+     * Find students in a semester
+     * @param semester semester number
+     * @return list of students in the semester
+     */
+    public List<Student> findBySemester(int semester) {
+        List<Student> result = new ArrayList<>();
+        for (int slot = 0; slot < size; slot++) {
+            if (semesters[slot] == semester) {
+                result.add(materialize(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find students by GPA range
+     * @param minGPA minimum GPA
+     * @param maxGPA maximum GPA
+     * @return list of students in GPA range
+     */
+    public List<Student> findByGPARange(double minGPA, double maxGPA) {
+        List<Student> result = new ArrayList<>();
+        for (int slot = 0; slot < size; slot++) {
+            if (gpas[slot] >= minGPA && gpas[slot] <= maxGPA) {
+                result.add(materialize(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get top active students by GPA
+     * Ranked on the GPA array with a bounded heap of slots; ties are ordered by
+     * student ID like the live ranking, and only ties read IDs from the mapping
+     * @param limit number of top students to return
+     * @return list of top students sorted by GPA descending
+     */
+    public List<Student> getTopStudentsByGPA(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Integer> byRank = (left, right) -> {
+            int byGpa = Double.compare(gpas[left], gpas[right]);
+            return byGpa != 0 ? byGpa : readString(dataPosition(right)).compareTo(readString(dataPosition(left)));
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit, byRank); // Root is the weakest kept
+        for (int slot = active.nextSetBit(0); slot >= 0; slot = active.nextSetBit(slot + 1)) {
+            if (heap.size() < limit) {
+                heap.add(slot);
+            } else if (gpas[slot] >= gpas[heap.peek()] && byRank.compare(slot, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(slot);
+            }
+        }
+
+        List<Integer> slots = new ArrayList<>(heap);
+        slots.sort(byRank.reversed());
+        List<Student> result = new ArrayList<>(slots.size());
+        for (int slot : slots) {
+            result.add(materialize(slot));
+        }
+        return result;
+    }
+
+    /**
+     * Calculate average GPA across active students
+     * @return average GPA
+     */
+    public double calculateAverageGPA() {
+        double total = 0;
+        for (int slot = active.nextSetBit(0); slot >= 0; slot = active.nextSetBit(slot + 1)) {
+            total += gpas[slot];
+        }
+        int count = active.cardinality();
+        return count > 0 ? total / count : 0.0;
+    }
+
+    /**
+     * Get department-wise count of active students
+     * @return map of department -> student count
+     */
+    public Map<String, Long> getDepartmentWiseCount() {
+        long[] counts = new long[dictionary.size()];
+        for (int slot = active.nextSetBit(0); slot >= 0; slot = active.nextSetBit(slot + 1)) {
+            counts[departments[slot] & 0xFFFF]++;
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                result.merge(dictionary.get(id), counts[id], Long::sum);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the slot of a student ID
+     * @return slot, or -1 if absent
+     */
+    private int slotOf(String id) {
+        if (id == null) {
+            return -1;
+        }
+        int hash = spread(id.hashCode());
+        int bucket = hash & (idTable.length - 1);
+        for (int entry = idTable[bucket]; entry != 0; entry = idTable[bucket]) {
+            int slot = entry - 1;
+            if (idHashes[slot] == hash && id.equals(readString(dataPosition(slot)))) {
+                return slot;
+            }
+            bucket = (bucket + 1) & (idTable.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Build a detached Student from the mapped record of a slot
+     */
+    private Student materialize(int slot) {
+        int record = slot * STRIDE;
+        int position = dataPosition(slot);
+
+        String id = readString(position);
+        position += stringBytes(position);
+        String registrationNumber = readString(position);
+        position += stringBytes(position);
+        String firstName = readString(position);
+        position += stringBytes(position);
+        String middleName = readString(position);
+        position += stringBytes(position);
+        String lastName = readString(position);
+        position += stringBytes(position);
+        String email = readString(position);
+        position += stringBytes(position);
+
+        Student student = Student.restore(id, registrationNumber, new Name(firstName, middleName, lastName), email,
+            readDate(record + DATE_OF_BIRTH), readDate(record + REGISTRATION_DATE),
+            dictionary.get(departments[slot] & 0xFFFF), semesters[slot],
+            readDate(record + ENROLLMENT_DATE), active.get(slot), records.getLong(record + CREATION_TIME));
+
+        Grade[] grades = Grade.values();
+        int courseCount = records.getShort(record + COURSE_COUNT) & 0xFFFF;
+        for (int i = 0; i < courseCount; i++, position += 6) {
+            String courseCode = dictionary.get(data.getInt(position));
+            int grade = data.get(position + 5) & 0xFF;
+            student.restoreCourse(courseCode, data.get(position + 4), grade != NO_GRADE ? grades[grade] : null);
+        }
+        student.markSaved(); // A view has nothing to save
+        return student;
+    }
+
+    private int dataPosition(int slot) {
+        return (int) records.getLong(slot * STRIDE + DATA_OFFSET);
+    }
+
+    private LocalDate readDate(int position) {
+        int epochDay = records.getInt(position);
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    /**
+     * Read a string stored as unsigned short length and UTF-8 bytes
+     */
+    private String readString(int position) {
+        int length = data.getShort(position) & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(position + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int stringBytes(int position) {
+        int length = data.getShort(position) & 0xFFFF;
+        return 2 + (length == NULL_STRING ? 0 : length);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Streaming store writer, e.g. for loading a CSV file straight into a store
+     * Students are written as they are added, so the caller needs to hold only
+     * the current one. Records and data go to two temporary files until the
+     * count is known; finish() joins them behind the header. Only the IDs seen
+     * so far stay on the heap, to skip duplicates, and only while writing.
+     * Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+        private final Path storePath;
+        private final Path recordFile;
+        private final Path dataFile;
+        private final FileChannel recordChannel;
+        private final FileChannel dataChannel;
+        private final StoreWriter writer;
+        private final Set<String> ids = new HashSet<>();
+        private boolean finished;
+
+        /**
+         * Start a store; the file is replaced only when finish() succeeds
+         * @param storePath target file
+         * @throws IOException if the temporary files cannot be created
+         */
+        public Writer(Path storePath) throws IOException {
+            Path parentDir = storePath.toAbsolutePath().getParent();
+            Files.createDirectories(parentDir);
+            this.storePath = storePath;
+            this.recordFile = Files.createTempFile(parentDir, "ccrm", ".records.tmp");
+            this.dataFile = Files.createTempFile(parentDir, "ccrm", ".data.tmp");
+            this.recordChannel = FileChannel.open(recordFile, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            this.dataChannel = FileChannel.open(dataFile, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            this.writer = new StoreWriter(recordChannel, dataChannel);
+        }
+
+        /**
+         * Append a student in the next slot
+         * @param student student to write; the caller locks it if it is shared
+         * @return false if a student with the same ID was already added
+         * @throws IOException if writing fails
+         */
+        public boolean add(Student student) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("Student store already finished");
+            }
+            if (!ids.add(student.getId())) {
+                return false;
+            }
+            writer.writeStudent(student);
+            return true;
+        }
+
+        /**
+         * Get the number of students added so far
+         * @return student count
+         */
+        public int size() {
+            return ids.size();
+        }
+
+        /**
+         * Write the store file, replacing any previous file atomically, and open it
+         * @return the opened store
+         * @throws IOException if writing fails
+         */
+        public MappedStudentStore finish() throws IOException {
+            if (finished) {
+                throw new IllegalStateException("Student store already finished");
+            }
+            finished = true;
+            ids.clear(); // The store has its own ID table
+            long dictionaryStart = writer.finish();
+            int count = writer.count;
+            long recordBytes = (long) count * STRIDE;
+            long dataStart = HEADER_BYTES + recordBytes;
+
+            Path tempFile = Files.createTempFile(storePath.toAbsolutePath().getParent(), "ccrm", ".store.tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                    header.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0)
+                        .putInt(count).putInt(STRIDE).putLong(dataStart).putLong(dataStart + dictionaryStart).flip();
+                    while (header.hasRemaining()) {
+                        channel.write(header);
+                    }
+                    transfer(recordChannel, recordBytes, channel);
+                    transfer(dataChannel, dataChannel.size(), channel);
+                    channel.force(true);
+                }
+                Files.move(tempFile, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            close();
+            return open(storePath);
+        }
+
+        /**
+         * Discard the temporary files; the store file is left as it was unless finished
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                recordChannel.close();
+                dataChannel.close();
+            } finally {
+                Files.deleteIfExists(recordFile);
+                Files.deleteIfExists(dataFile);
+            }
+        }
+
+        private static void transfer(FileChannel source, long length, FileChannel target) throws IOException {
+            for (long position = 0; position < length; ) {
+                position += source.transferTo(position, length - position, target);
+            }
+        }
+    }
+
+    /**
+     * Writes fixed-stride records and their data in one pass
+     * Records and data are streamed to separate channels; the dictionary
+     * follows the data
+     */
+    private static class StoreWriter {
+        private final FileChannel recordChannel;
+        private final FileChannel dataChannel;
+        private final ByteBuffer records = ByteBuffer.allocateDirect(IO_BUFFER_BYTES - IO_BUFFER_BYTES % STRIDE);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        private long dataPosition; // Data bytes written so far, including buffered ones
+        private int count;
+        private final Map<String, Integer> dictionaryIds = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+
+        StoreWriter(FileChannel recordChannel, FileChannel dataChannel) {
+            this.recordChannel = recordChannel;
+            this.dataChannel = dataChannel;
+        }
+
+        void writeStudent(Student student) throws IOException {
+            Name name = student.getName();
+            Set<String> courses = student.getEnrolledCourses();
+            if (courses.size() > 0xFFFF) {
+                throw new IllegalArgumentException("Too many courses for student " + student.getId());
+            }
+
+            if (!records.hasRemaining()) {
+                flushRecords();
+            }
+            int record = records.position();
+            records.putLong(record + DATA_OFFSET, dataPosition)
+                .putInt(record + DATE_OF_BIRTH, epochDay(student.getDateOfBirth()))
+                .putInt(record + REGISTRATION_DATE, epochDay(student.getRegistrationDate()))
+                .putInt(record + ENROLLMENT_DATE, epochDay(student.getEnrollmentDate()))
+                .putLong(record + CREATION_TIME, student.getCreationTime())
+                .putDouble(record + GPA, student.calculateGPA())
+                .putShort(record + DEPARTMENT, (short) dictionaryId(student.getDepartment()))
+                .put(record + SEMESTER, (byte) student.getCurrentSemester())
+                .put(record + ACTIVE, (byte) (student.isActive() ? 1 : 0))
+                .putShort(record + COURSE_COUNT, (short) courses.size());
+            records.position(record + STRIDE);
+            count++;
+
+            putString(student.getId());
+            putString(student.getRegistrationNumber());
+            putString(name.getFirstName());
+            putString(name.getMiddleName());
+            putString(name.getLastName());
+            putString(student.getEmail());
+
+            Map<String, Grade> grades = student.getCourseGrades();
+            for (String courseCode : courses) {
+                Grade grade = grades.get(courseCode);
+                ensure(6);
+                out.putInt(dictionaryId(courseCode))
+                    .put((byte) student.getCourseCredits(courseCode))
+                    .put((byte) (grade != null ? grade.ordinal() : NO_GRADE));
+                dataPosition += 6;
+            }
+            if (dataPosition > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Student data exceeds " + Integer.MAX_VALUE + " bytes");
+            }
+        }
+
+        /**
+         * Write the dictionary after the data and flush both channels
+         * @return offset of the dictionary from the start of the data
+         */
+        long finish() throws IOException {
+            long dictionaryOffset = dataPosition;
+            ensure(4);
+            out.putInt(dictionary.size());
+            dataPosition += 4;
+            for (String value : dictionary) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length >= NULL_STRING) {
+                    throw new IllegalArgumentException("Dictionary entry too long: " + value);
+                }
+                ensure(2 + bytes.length);
+                out.putShort((short) bytes.length).put(bytes);
+                dataPosition += 2 + bytes.length;
+            }
+            flush();
+            flushRecords();
+            return dictionaryOffset;
+        }
+
+        private int dictionaryId(String value) {
+            Integer id = dictionaryIds.get(value);
+            if (id == null) {
+                if (dictionary.size() > 0xFFFF) {
+                    throw new IllegalArgumentException("Too many distinct departments and course codes");
+                }
+                id = dictionary.size();
+                dictionaryIds.put(value, id);
+                dictionary.add(value);
+            }
+            return id;
+        }
+
+        private void putString(String value) throws IOException {
+            if (value == null) {
+                ensure(2);
+                out.putShort((short) NULL_STRING);
+                dataPosition += 2;
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= NULL_STRING) {
+                throw new IllegalArgumentException("Field longer than " + (NULL_STRING - 1) + " bytes: " + value);
+            }
+            ensure(2 + bytes.length);
+            out.putShort((short) bytes.length).put(bytes);
+            dataPosition += 2 + bytes.length;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (out.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Write buffered data, which ends at the current data position
+         */
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                dataChannel.write(out);
+            }
+            out.clear();
+        }
+
+        private void flushRecords() throws IOException {
+            records.flip();
+            while (records.hasRemaining()) {
+                recordChannel.write(records);
+            }
+            records.clear();
+        }
+
+        private static int epochDay(LocalDate date) {
+            return date != null ? (int) date.toEpochDay() : NO_DATE;
+        }
+    }
+}
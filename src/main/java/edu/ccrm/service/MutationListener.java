@@ -0,0 +1,109 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+
+/**
+ * Receives the mutations applied by the services, e.g. to make them durable
+ * Mutations are reported in the order they are applied to each entity: a
+ * student's or course's mutations are reported while the service holds its
+ * lock, so the callbacks must not block. Before returning to its caller, a service calls
+ * sync() outside any lock; a listener that offers durability waits there.
+ * All callbacks default to no-ops.
+ */
+public interface MutationListener {
+
+    /**
+     * Listener that ignores all mutations
+     */
+    MutationListener NONE = new MutationListener() { };
+
+    /**
+     * A student was added
+     * @param student the new student; its lock is held
+     */
+    default void studentAdded(Student student) { }
+
+    /**
+     * A student was enrolled in a course
+     * @param studentId student ID
+     * @param courseCode normalized course code
+     * @param credits credits of the course
+     * @param courseUpdated true if the course roster was updated as well
+     */
+    default void studentEnrolled(String studentId, String courseCode, int credits, boolean courseUpdated) { }
+
+    /**
+     * A student was removed from a course, on both the student and the roster
+     * @param studentId student ID
+     * @param courseCode normalized course code
+     */
+    default void studentUnenrolled(String studentId, String courseCode) { }
+
+    /**
+     * The details of a student were updated
+     * @param student the updated student; its lock is held
+     */
+    default void studentUpdated(Student student) { }
+
+    /**
+     * A student was activated or deactivated
+     * @param studentId student ID
+     * @param active new status
+     */
+    default void studentActiveChanged(String studentId, boolean active) { }
+
+    /**
+     * A grade was recorded
+     * @param studentId student ID
+     * @param courseCode normalized course code
+     * @param grade recorded grade
+     */
+    default void gradeRecorded(String studentId, String courseCode, Grade grade) { }
+
+    /**
+     * A course was added
+     * Reported before the course becomes visible, so it precedes every
+     * mutation that refers to the course
+     * @param course the new course
+     */
+    default void courseAdded(Course course) { }
+
+    /**
+     * The details of a course were updated
+     * @param course the updated course; its lock is held
+     */
+    default void courseUpdated(Course course) { }
+
+    /**
+     * An instructor was assigned to a course
+     * @param courseCode course code
+     * @param instructorId instructor ID
+     */
+    default void instructorAssigned(String courseCode, String instructorId) { }
+
+    /**
+     * A course was deactivated
+     * @param courseCode course code
+     */
+    default void courseDeactivated(String courseCode) { }
+
+    /**
+     * A course was activated
+     * @param courseCode course code
+     */
+    default void courseActivated(String courseCode) { }
+
+    /**
+     * Wait until the mutations reported so far by the calling thread are as
+     * durable as this listener promises
+     */
+    default void sync() { }
+
+    /**
+     * Wait until the mutations reported so far by all threads are as durable
+     * as this listener promises, e.g. after a batch spread over worker threads
+     */
+    default void syncAll() { }
+}
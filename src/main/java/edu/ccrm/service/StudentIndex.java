@@ -0,0 +1,551 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Student;
+import edu.ccrm.domain.SymbolTable;
+import edu.ccrm.util.IntList;
+import edu.ccrm.util.RoaringBitmap;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Secondary indexes over the students held by StudentService
+ * Every student gets a dense slot number in insertion order, so index lookups
+ * return students in the same order as a scan of the primary map would
+ * Departments, semesters, courses, the active flag and good standing each map
+ * to a compressed bitmap of slots, which StudentQuery combines with bitmap
+ * algebra; registration numbers are kept in a prefix trie
+ * Thread-safe: lookups share a read lock, updates take a short write lock
+ * Student fields are read before the lock is taken, so no Student monitor
+ * is ever acquired while holding the index lock
+ */
+class StudentIndex {
+
+    private final List<Student> studentsBySlot; // Slot -> Student
+    private final Map<String, Integer> slotsById; // ID -> Slot
+    private final List<IndexedState> indexedStates; // Slot -> values currently indexed
+    private final RoaringBitmap allSlots;
+    private final RoaringBitmap activeSlots;
+    private final RoaringBitmap goodStandingSlots;
+    private final Map<String, RoaringBitmap> slotsByDepartment; // Lower-cased department -> slots
+    private final Map<Integer, RoaringBitmap> slotsBySemester; // Current semester -> slots
+    private final Map<String, RoaringBitmap> slotsByCourse; // Course code -> slots
+    private final RegistrationTrie registrationTrie;
+    private final ReadWriteLock lock;
+
+    /**
+     * Constructor
+     */
+    StudentIndex() {
+        this.studentsBySlot = new ArrayList<>();
+        this.slotsById = new HashMap<>();
+        this.indexedStates = new ArrayList<>();
+        this.allSlots = new RoaringBitmap();
+        this.activeSlots = new RoaringBitmap();
+        this.goodStandingSlots = new RoaringBitmap();
+        this.slotsByDepartment = new HashMap<>();
+        this.slotsBySemester = new HashMap<>();
+        this.slotsByCourse = new HashMap<>();
+        this.registrationTrie = new RegistrationTrie();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Index a newly added student
+     * @param student student to index
+     */
+    void add(Student student) {
+        IndexedState state = IndexedState.of(student);
+        lock.writeLock().lock();
+        try {
+            addLocked(student, state);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-index a student after its fields may have changed
+     * Handles both a mutated instance and a replacement instance with the same ID
+     * @param student current version of the student
+     */
+    void reindex(Student student) {
+        IndexedState state = IndexedState.of(student);
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(student.getId());
+            if (slot == null) {
+                addLocked(student, state);
+                return;
+            }
+
+            unindexAll(slot);
+            studentsBySlot.set(slot, student);
+            indexAll(slot, state);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Refresh the active flag of a student
+     * @param student student whose status changed
+     */
+    void updateActive(Student student) {
+        boolean active = student.isActive();
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(student.getId());
+            if (slot != null) {
+                indexedStates.get(slot).active = active;
+                setMember(activeSlots, slot, active);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Refresh the department and semester of a student edited in place
+     * Ignored for an object that is no longer the indexed version of its ID
+     * @param student student whose department or semester changed
+     */
+    void updatePlacement(Student student) {
+        String department = normalizeDepartment(student.getDepartment());
+        int semester = student.getCurrentSemester();
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(student.getId());
+            if (slot == null || studentsBySlot.get(slot) != student) {
+                return;
+            }
+            IndexedState state = indexedStates.get(slot);
+            if (!state.department.equals(department)) {
+                removeFromIndex(slotsByDepartment, state.department, slot);
+                slotsByDepartment.computeIfAbsent(department, dept -> new RoaringBitmap()).add(slot);
+                state.department = department;
+            }
+            if (state.semester != semester) {
+                removeFromIndex(slotsBySemester, state.semester, slot);
+                slotsBySemester.computeIfAbsent(semester, sem -> new RoaringBitmap()).add(slot);
+                state.semester = semester;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Refresh the good standing flag of a student after its grades changed
+     * @param student student whose grades changed
+     */
+    void updateStanding(Student student) {
+        boolean goodStanding = student.isInGoodStanding();
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(student.getId());
+            if (slot != null) {
+                indexedStates.get(slot).goodStanding = goodStanding;
+                setMember(goodStandingSlots, slot, goodStanding);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record a new course enrollment for a student
+     * @param student enrolled student
+     * @param courseCode normalized course code
+     */
+    void addCourse(Student student, String courseCode) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(student.getId());
+            if (slot != null && indexedStates.get(slot).courses.add(courseCode)) {
+                slotsByCourse.computeIfAbsent(courseCode, code -> new RoaringBitmap()).add(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a course enrollment for a student
+     * @param student unenrolled student
+     * @param courseCode normalized course code
+     */
+    void removeCourse(Student student, String courseCode) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(student.getId());
+            if (slot != null && indexedStates.get(slot).courses.remove(courseCode)) {
+                removeFromIndex(slotsByCourse, courseCode, slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find students by department (case-insensitive)
+     */
+    List<Student> findByDepartment(String department) {
+        String key = normalizeDepartment(department);
+        lock.readLock().lock();
+        try {
+            return toStudents(slotsByDepartment.get(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find students enrolled in a course
+     */
+    List<Student> findByCourse(String courseCode) {
+        String key = SymbolTable.normalizeCode(courseCode);
+        lock.readLock().lock();
+        try {
+            return toStudents(slotsByCourse.get(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find students whose registration number starts with a prefix
+     */
+    List<Student> findByRegistrationPrefix(String prefix) {
+        lock.readLock().lock();
+        try {
+            List<Integer> slots = registrationTrie.slotsWithPrefix(prefix);
+            Collections.sort(slots); // Restore insertion order
+            return toStudents(slots);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find active students
+     */
+    List<Student> findActive() {
+        lock.readLock().lock();
+        try {
+            return toStudents(activeSlots);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find students matching a query, in insertion order
+     */
+    List<Student> find(StudentQuery query) {
+        lock.readLock().lock();
+        try {
+            return toStudents(query.evaluate(this));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count students matching a query without materializing them
+     */
+    int count(StudentQuery query) {
+        lock.readLock().lock();
+        try {
+            return query.count(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get all students in insertion order
+     */
+    List<Student> findAll() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(studentsBySlot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count active students without materializing them
+     */
+    int countActive() {
+        lock.readLock().lock();
+        try {
+            return activeSlots.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bitmaps read by StudentQuery while the read lock is held; never modified by it
+
+    RoaringBitmap allSlots() {
+        return allSlots;
+    }
+
+    RoaringBitmap activeSlots() {
+        return activeSlots;
+    }
+
+    RoaringBitmap goodStandingSlots() {
+        return goodStandingSlots;
+    }
+
+    RoaringBitmap departmentSlots(String department) {
+        return orEmpty(slotsByDepartment.get(normalizeDepartment(department)));
+    }
+
+    RoaringBitmap semesterSlots(int semester) {
+        return orEmpty(slotsBySemester.get(semester));
+    }
+
+    RoaringBitmap courseSlots(String courseCode) {
+        return orEmpty(slotsByCourse.get(SymbolTable.normalizeCode(courseCode)));
+    }
+
+    private static RoaringBitmap orEmpty(RoaringBitmap slots) {
+        return slots != null ? slots : new RoaringBitmap();
+    }
+
+    private void addLocked(Student student, IndexedState state) {
+        int slot = studentsBySlot.size();
+        studentsBySlot.add(student);
+        slotsById.put(student.getId(), slot);
+        indexedStates.add(null);
+        allSlots.add(slot);
+        indexAll(slot, state);
+    }
+
+    private void indexAll(int slot, IndexedState state) {
+        indexedStates.set(slot, state);
+
+        setMember(activeSlots, slot, state.active);
+        setMember(goodStandingSlots, slot, state.goodStanding);
+        slotsByDepartment.computeIfAbsent(state.department, dept -> new RoaringBitmap()).add(slot);
+        slotsBySemester.computeIfAbsent(state.semester, semester -> new RoaringBitmap()).add(slot);
+        registrationTrie.insert(state.registrationNumber, slot);
+
+        for (String courseCode : state.courses) {
+            slotsByCourse.computeIfAbsent(courseCode, code -> new RoaringBitmap()).add(slot);
+        }
+    }
+
+    private void unindexAll(int slot) {
+        IndexedState state = indexedStates.get(slot);
+        activeSlots.remove(slot);
+        goodStandingSlots.remove(slot);
+        removeFromIndex(slotsByDepartment, state.department, slot);
+        removeFromIndex(slotsBySemester, state.semester, slot);
+        registrationTrie.remove(state.registrationNumber, slot);
+        for (String courseCode : state.courses) {
+            removeFromIndex(slotsByCourse, courseCode, slot);
+        }
+    }
+
+    private static void setMember(RoaringBitmap slots, int slot, boolean member) {
+        if (member) {
+            slots.add(slot);
+        } else {
+            slots.remove(slot);
+        }
+    }
+
+    private <K> void removeFromIndex(Map<K, RoaringBitmap> index, K key, int slot) {
+        RoaringBitmap slots = index.get(key);
+        if (slots != null) {
+            slots.remove(slot);
+            if (slots.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private List<Student> toStudents(Collection<Integer> slots) {
+        if (slots == null) {
+            return new ArrayList<>();
+        }
+        List<Student> result = new ArrayList<>(slots.size());
+        for (int slot : slots) {
+            result.add(studentsBySlot.get(slot));
+        }
+        return result;
+    }
+
+    private List<Student> toStudents(RoaringBitmap slots) {
+        if (slots == null) {
+            return new ArrayList<>();
+        }
+        List<Student> result = new ArrayList<>(slots.cardinality());
+        slots.forEach(slot -> result.add(studentsBySlot.get(slot)));
+        return result;
+    }
+
+    static String normalizeDepartment(String department) {
+        return department.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Values of a student as they were last indexed
+     * Needed to unindex a student that was mutated in place
+     */
+    private static class IndexedState {
+        private String department;
+        private int semester;
+        private final String registrationNumber;
+        private final Set<String> courses;
+        private boolean active;
+        private boolean goodStanding;
+
+        private IndexedState(String department, int semester, String registrationNumber, Set<String> courses,
+                             boolean active, boolean goodStanding) {
+            this.department = department;
+            this.semester = semester;
+            this.registrationNumber = registrationNumber;
+            this.courses = courses;
+            this.active = active;
+            this.goodStanding = goodStanding;
+        }
+
+        /**
+         * Snapshot the indexed fields of a student (called outside the index lock)
+         */
+        static IndexedState of(Student student) {
+            return new IndexedState(normalizeDepartment(student.getDepartment()),
+                student.getCurrentSemester(),
+                student.getRegistrationNumber(),
+                new HashSet<>(student.getEnrolledCourses()),
+                student.isActive(),
+                student.isInGoodStanding());
+        }
+    }
+
+    /**
+     * Character trie over registration numbers
+     * Slots are stored only at the node where a number ends, so memory grows
+     * with the number of distinct characters rather than with every prefix;
+     * a prefix lookup walks the prefix and then collects the subtree below it
+     * Removal prunes nodes left without slots or children, so every node in
+     * that subtree leads to at least one live registration number
+     */
+    static class RegistrationTrie {
+        private final Node root = new Node();
+
+        void insert(String registrationNumber, int slot) {
+            Node node = root;
+            for (int i = 0; i < registrationNumber.length(); i++) {
+                node = node.childFor(registrationNumber.charAt(i));
+            }
+            if (node.slots == null) {
+                node.slots = new IntList(1);
+            }
+            node.slots.add(slot);
+        }
+
+        void remove(String registrationNumber, int slot) {
+            int length = registrationNumber.length();
+            Node[] path = new Node[length + 1];
+            path[0] = root;
+            for (int i = 0; i < length; i++) {
+                path[i + 1] = path[i].child(registrationNumber.charAt(i));
+                if (path[i + 1] == null) {
+                    return;
+                }
+            }
+            Node node = path[length];
+            if (node.slots == null || !node.slots.removeValue(slot)) {
+                return;
+            }
+            if (node.slots.isEmpty()) {
+                node.slots = null;
+            }
+            // Prune the nodes that no longer lead to any number, bottom up
+            for (int i = length; i > 0 && path[i].slots == null && path[i].childCount == 0; i--) {
+                path[i - 1].removeChild(registrationNumber.charAt(i - 1));
+            }
+        }
+
+        List<Integer> slotsWithPrefix(String prefix) {
+            List<Integer> result = new ArrayList<>();
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node == null) {
+                return result;
+            }
+
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(node);
+            while (!pending.isEmpty()) {
+                Node current = pending.pop();
+                if (current.slots != null) {
+                    for (int i = 0; i < current.slots.size(); i++) {
+                        result.add(current.slots.get(i));
+                    }
+                }
+                for (int i = 0; i < current.childCount; i++) {
+                    pending.push(current.children[i]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Trie node with children kept in small parallel arrays instead of a map
+         */
+        private static class Node {
+            private char[] labels = new char[0];
+            private Node[] children = new Node[0];
+            private int childCount;
+            private IntList slots; // Null unless a registration number ends here
+
+            Node child(char label) {
+                for (int i = 0; i < childCount; i++) {
+                    if (labels[i] == label) {
+                        return children[i];
+                    }
+                }
+                return null;
+            }
+
+            void removeChild(char label) {
+                for (int i = 0; i < childCount; i++) {
+                    if (labels[i] == label) {
+                        childCount--;
+                        labels[i] = labels[childCount]; // Order of children does not matter
+                        children[i] = children[childCount];
+                        children[childCount] = null;
+                        return;
+                    }
+                }
+            }
+
+            Node childFor(char label) {
+                Node existing = child(label);
+                if (existing != null) {
+                    return existing;
+                }
+                if (childCount == labels.length) {
+                    int capacity = Math.max(2, childCount * 2);
+                    labels = Arrays.copyOf(labels, capacity);
+                    children = Arrays.copyOf(children, capacity);
+                }
+                Node created = new Node();
+                labels[childCount] = label;
+                children[childCount++] = created;
+                return created;
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Student;
+import edu.ccrm.domain.SymbolTable;
+import edu.ccrm.util.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Combinable student filter answered from the bitmap indexes of StudentService
+ * Each condition is a compressed bitmap of index slots, so AND, OR and NOT
+ * combinations are bitmap algebra and counts never touch a Student object.
+ * Queries are immutable and may be reused, e.g. for dashboard counts:
+ * <pre>
+ * StudentQuery atRisk = StudentQuery.department("CS")
+ *     .and(StudentQuery.semester(5))
+ *     .and(StudentQuery.active())
+ *     .and(StudentQuery.enrolledIn("MATH201-A"))
+ *     .andNot(StudentQuery.inGoodStanding());
+ * int count = studentService.count(atRisk);
+ * </pre>
+ * State changes made through StudentService are visible to the next query.
+ * A query can also test single students, which is how a StudentService
+ * backed by a MappedStudentStore answers it without bitmap indexes.
+ */
+public abstract class StudentQuery {
+
+    private StudentQuery() {
+    }
+
+    /**
+     * Match every student
+     * @return query
+     */
+    public static StudentQuery all() {
+        return new Leaf(StudentIndex::allSlots, student -> true);
+    }
+
+    /**
+     * Match students of a department (case-insensitive)
+     * @param department department name
+     * @return query
+     */
+    public static StudentQuery department(String department) {
+        assert department != null : "Department cannot be null";
+        String key = StudentIndex.normalizeDepartment(department);
+        return new Leaf(index -> index.departmentSlots(department),
+            student -> StudentIndex.normalizeDepartment(student.getDepartment()).equals(key));
+    }
+
+    /**
+     * Match students in their n-th semester
+     * @param semester current semester
+     * @return query
+     */
+    public static StudentQuery semester(int semester) {
+        return new Leaf(index -> index.semesterSlots(semester), student -> student.getCurrentSemester() == semester);
+    }
+
+    /**
+     * Match active students
+     * @return query
+     */
+    public static StudentQuery active() {
+        return new Leaf(StudentIndex::activeSlots, Student::isActive);
+    }
+
+    /**
+     * Match students without a failing grade
+     * @return query
+     */
+    public static StudentQuery inGoodStanding() {
+        return new Leaf(StudentIndex::goodStandingSlots, Student::isInGoodStanding);
+    }
+
+    /**
+     * Match students enrolled in a course
+     * @param courseCode course code, normalized before lookup
+     * @return query
+     */
+    public static StudentQuery enrolledIn(String courseCode) {
+        assert courseCode != null : "Course code cannot be null";
+        String normalizedCode = SymbolTable.normalizeCode(courseCode);
+        return new Leaf(index -> index.courseSlots(courseCode), student -> student.isEnrolledIn(normalizedCode));
+    }
+
+    /**
+     * Match students matching both queries
+     * @param other other query
+     * @return combined query
+     */
+    public StudentQuery and(StudentQuery other) {
+        return new Combined(this, other, Operator.AND);
+    }
+
+    /**
+     * Match students matching either query
+     * @param other other query
+     * @return combined query
+     */
+    public StudentQuery or(StudentQuery other) {
+        return new Combined(this, other, Operator.OR);
+    }
+
+    /**
+     * Match students matching this query but not the other
+     * @param other query to exclude
+     * @return combined query
+     */
+    public StudentQuery andNot(StudentQuery other) {
+        return new Combined(this, other, Operator.AND_NOT);
+    }
+
+    /**
+     * Match students not matching this query
+     * @return negated query
+     */
+    public StudentQuery not() {
+        return new Combined(all(), this, Operator.AND_NOT);
+    }
+
+    /**
+     * Compute the matching slots; called with the index's read lock held
+     * The result may be an index bitmap itself and must not be modified
+     */
+    abstract RoaringBitmap evaluate(StudentIndex index);
+
+    /**
+     * Test one student against the query, without an index
+     */
+    abstract boolean matches(Student student);
+
+    /**
+     * Count the matching slots; called with the index's read lock held
+     */
+    int count(StudentIndex index) {
+        return evaluate(index).cardinality();
+    }
+
+    private enum Operator { AND, OR, AND_NOT }
+
+    /**
+     * Single indexed condition
+     */
+    private static final class Leaf extends StudentQuery {
+        private final Function<StudentIndex, RoaringBitmap> lookup;
+        private final Predicate<Student> test;
+
+        Leaf(Function<StudentIndex, RoaringBitmap> lookup, Predicate<Student> test) {
+            this.lookup = lookup;
+            this.test = test;
+        }
+
+        @Override
+        RoaringBitmap evaluate(StudentIndex index) {
+            return lookup.apply(index);
+        }
+
+        @Override
+        boolean matches(Student student) {
+            return test.test(student);
+        }
+    }
+
+    /**
+     * Two queries joined by a bitmap operation
+     */
+    private static final class Combined extends StudentQuery {
+        private final StudentQuery left;
+        private final StudentQuery right;
+        private final Operator operator;
+
+        Combined(StudentQuery left, StudentQuery right, Operator operator) {
+            assert right != null : "Query cannot be null";
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        RoaringBitmap evaluate(StudentIndex index) {
+            if (operator == Operator.OR) {
+                return left.evaluate(index).or(right.evaluate(index));
+            }
+            List<RoaringBitmap> included = new ArrayList<>();
+            List<RoaringBitmap> excluded = new ArrayList<>();
+            collect(index, included, excluded);
+            RoaringBitmap result = included.get(0);
+            for (int i = 1; i < included.size(); i++) {
+                result = result.and(included.get(i));
+            }
+            for (RoaringBitmap slots : excluded) {
+                result = result.andNot(slots);
+            }
+            return result;
+        }
+
+        @Override
+        boolean matches(Student student) {
+            switch (operator) {
+                case AND:
+                    return left.matches(student) && right.matches(student);
+                case OR:
+                    return left.matches(student) || right.matches(student);
+                default:
+                    return left.matches(student) && !right.matches(student);
+            }
+        }
+
+        @Override
+        int count(StudentIndex index) {
+            if (operator == Operator.AND && !(left instanceof Combined) && !(right instanceof Combined)) {
+                return left.evaluate(index).andCardinality(right.evaluate(index)); // No result bitmap
+            }
+            return super.count(index);
+        }
+
+        /**
+         * Flatten a chain of AND and AND NOT into the bitmaps to intersect and
+         * to subtract, smallest first, so later steps work on a small result
+         */
+        private void collect(StudentIndex index, List<RoaringBitmap> included, List<RoaringBitmap> excluded) {
+            addTerms(this, index, included, excluded);
+            included.sort(Comparator.comparingInt(RoaringBitmap::cardinality));
+        }
+
+        private static void addTerms(StudentQuery query, StudentIndex index,
+                                     List<RoaringBitmap> included, List<RoaringBitmap> excluded) {
+            if (query instanceof Combined && ((Combined) query).operator != Operator.OR) {
+                Combined combined = (Combined) query;
+                addTerms(combined.left, index, included, excluded);
+                if (combined.operator == Operator.AND) {
+                    addTerms(combined.right, index, included, excluded);
+                } else {
+                    excluded.add(combined.right.evaluate(index));
+                }
+            } else {
+                included.add(query.evaluate(index));
+            }
+        }
+    }
+}
@@ -5,25 +5,88 @@ import edu.ccrm.util.DuplicateEnrollmentException;
 import edu.ccrm.util.MaxCreditLimitExceededException;
 import edu.ccrm.config.AppConfig;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing students
  * Demonstrates service layer, Stream API, lambdas, and functional interfaces
+ * Thread-safe: the student map is concurrent, indexes guard themselves, and
+ * per-student operations lock the Student so check-then-act steps are atomic
+ * Indexed students report department and semester edits back to the index
+ * A service built over a MappedStudentStore serves reads from the store
+ * instead, with no students on the heap, and rejects mutations
  */
 public class StudentService implements Searchable<Student> {
     
     private final Map<String, Student> students; // ID -> Student mapping
+    private final StudentIndex index; // Secondary indexes for the finders
+    private final GpaRanking gpaRanking; // Live GPA leaderboard of active students
     private final AppConfig config;
+    private volatile MutationListener mutationListener; // Told about every mutation, e.g. a write-ahead log
+    private final Object updateLock = new Object(); // Serializes replacements, the only place two students are locked
+    private final MappedStudentStore store; // Serves all reads when set; the heap holds no students then
     
     /**
      * Constructor
      */
     public StudentService() {
-        this.students = new LinkedHashMap<>(); // Preserve insertion order
+        this.students = new ConcurrentHashMap<>(); // Insertion order is kept by the index
+        this.index = new StudentIndex();
+        this.gpaRanking = new GpaRanking();
         this.config = AppConfig.getInstance();
+        this.mutationListener = MutationListener.NONE;
+        this.store = null;
+    }
+    
+    /**
+     * Constructor for a read-only service over a mapped store
+     * For populations too large for the heap, e.g. loaded with
+     * ImportExportService.importStudentsToStore(); finders return detached
+     * views, mutations throw UnsupportedOperationException and enrollments
+     * through an EnrollmentEngine are rejected as student not found
+     * @param store store to serve reads from
+     */
+    public StudentService(MappedStudentStore store) {
+        assert store != null : "Store cannot be null";
+        this.students = Collections.emptyMap();
+        this.index = new StudentIndex();
+        this.gpaRanking = new GpaRanking();
+        this.config = AppConfig.getInstance();
+        this.mutationListener = MutationListener.NONE;
+        this.store = store;
+    }
+    
+    /**
+     * Check if reads are served from a mapped store
+     * @return true if the service is read-only
+     */
+    public boolean isStoreBacked() {
+        return store != null;
+    }
+    
+    /**
+     * Reject mutations of a store-backed service
+     */
+    private void requireWritable() {
+        if (store != null) {
+            throw new UnsupportedOperationException("Students are served read-only from a mapped store");
+        }
+    }
+    
+    /**
+     * Set the listener told about every student mutation
+     * Attach it after replaying any logged mutations, so they are not logged twice
+     * @param listener mutation listener, or null for none
+     */
+    public void setMutationListener(MutationListener listener) {
+        this.mutationListener = listener != null ? listener : MutationListener.NONE;
     }
     
     /**
@@ -32,32 +95,91 @@ public class StudentService implements Searchable<Student> {
      * @throws IllegalArgumentException if student already exists
      */
     public void addStudent(Student student) {
+        requireWritable();
         assert student != null : "Student cannot be null";
         assert student.isValid() : "Student must be valid";
         
-        if (students.containsKey(student.getId())) {
-            throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+        synchronized (student) { // Locked before it is visible, so its addition is reported first
+            if (students.putIfAbsent(student.getId(), student) != null) {
+                throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+            }
+            student.internDepartment();
+            student.recordCreation();
+            index.add(student);
+            student.setIndexListener(index::updatePlacement);
+            gpaRanking.update(student);
+            mutationListener.studentAdded(student);
         }
-        
-        students.put(student.getId(), student);
+        mutationListener.sync();
         System.out.println("Student added successfully: " + student.getName().getFullName());
     }
     
+    /**
+     * Add a batch of students, e.g. from a streaming import
+     * Students whose ID already exists are skipped instead of failing the batch
+     * @param batch students to add
+     * @return number of students added
+     */
+    public int addStudents(Collection<Student> batch) {
+        requireWritable();
+        int added = 0;
+        for (Student student : batch) {
+            if (!student.isValid()) {
+                continue;
+            }
+            synchronized (student) { // Locked before it is visible, as in addStudent
+                if (students.putIfAbsent(student.getId(), student) != null) {
+                    continue;
+                }
+                student.internDepartment();
+                student.recordCreation(); // No-op for restored students
+                index.add(student);
+                student.setIndexListener(index::updatePlacement);
+                gpaRanking.update(student);
+                mutationListener.studentAdded(student);
+            }
+            added++;
+        }
+        if (added > 0) {
+            mutationListener.sync(); // One wait for the whole batch
+        }
+        return added;
+    }
+    
     /**
      * Update an existing student
      * @param student student to update
      * @throws IllegalArgumentException if student doesn't exist
      */
     public void updateStudent(Student student) {
+        requireWritable();
         assert student != null : "Student cannot be null";
         assert student.isValid() : "Student must be valid";
         
-        if (!students.containsKey(student.getId())) {
-            throw new IllegalArgumentException("Student with ID " + student.getId() + " not found");
+        synchronized (updateLock) {
+            Student replaced = students.get(student.getId());
+            if (replaced == null) {
+                throw new IllegalArgumentException("Student with ID " + student.getId() + " not found");
+            }
+            
+            // Both locked, so no enrollment can land on the replaced instance in between
+            synchronized (replaced) {
+                synchronized (student) {
+                    students.replace(student.getId(), student);
+                    student.internDepartment();
+                    student.continueAuditTrail(replaced); // Keep the history of the ID
+                    index.reindex(student);
+                    student.setIndexListener(index::updatePlacement);
+                    if (replaced != student) {
+                        replaced.setIndexListener(null); // No longer indexed
+                    }
+                    gpaRanking.update(student);
+                    mutationListener.studentUpdated(student);
+                    student.addAuditEvent(AuditEvent.INFORMATION_UPDATED);
+                }
+            }
         }
-        
-        students.put(student.getId(), student);
-        student.addAuditEntry("Student information updated");
+        mutationListener.sync();
         System.out.println("Student updated successfully: " + student.getName().getFullName());
     }
     
@@ -67,10 +189,17 @@ public class StudentService implements Searchable<Student> {
      * @return true if deactivated successfully
      */
     public boolean deactivateStudent(String studentId) {
+        requireWritable();
         Student student = findById(studentId);
         if (student != null) {
-            student.deactivate();
-            student.addAuditEntry("Student deactivated");
+            synchronized (student) {
+                student.deactivate();
+                index.updateActive(student);
+                gpaRanking.update(student);
+                mutationListener.studentActiveChanged(student.getId(), false);
+                student.addAuditEvent(AuditEvent.DEACTIVATED);
+            }
+            mutationListener.sync();
             return true;
         }
         return false;
@@ -82,10 +211,17 @@ public class StudentService implements Searchable<Student> {
      * @return true if activated successfully
      */
     public boolean activateStudent(String studentId) {
+        requireWritable();
         Student student = findById(studentId);
         if (student != null) {
-            student.activate();
-            student.addAuditEntry("Student activated");
+            synchronized (student) {
+                student.activate();
+                index.updateActive(student);
+                gpaRanking.update(student);
+                mutationListener.studentActiveChanged(student.getId(), true);
+                student.addAuditEvent(AuditEvent.ACTIVATED);
+            }
+            mutationListener.sync();
             return true;
         }
         return false;
@@ -101,41 +237,138 @@ public class StudentService implements Searchable<Student> {
      */
     public void enrollStudentInCourse(String studentId, String courseCode, int courseCredits) 
             throws DuplicateEnrollmentException, MaxCreditLimitExceededException {
+        requireWritable();
         
         Student student = findById(studentId);
         if (student == null) {
             throw new IllegalArgumentException("Student not found: " + studentId);
         }
         
-        // Check if already enrolled
-        if (student.getEnrolledCourses().contains(courseCode.toUpperCase())) {
+        EnrollmentResult result = tryEnroll(student, SymbolTable.normalizeCode(courseCode), courseCredits, null);
+        
+        if (result == EnrollmentResult.STUDENT_NOT_FOUND) {
+            throw new IllegalArgumentException("Student not found: " + studentId);
+        }
+        if (result == EnrollmentResult.ALREADY_ENROLLED) {
             throw new DuplicateEnrollmentException(studentId, courseCode, 
                 "Student is already enrolled in this course");
         }
-        
-        // Check credit limits
-        int currentCredits = calculateCurrentCredits(student);
-        int maxCredits = config.getMaxCoursesPerStudent() * 3; // Assuming 3 credits per course avg
-        
-        if (currentCredits + courseCredits > maxCredits) {
-            throw new MaxCreditLimitExceededException(studentId, currentCredits, 
-                maxCredits, courseCredits);
+        if (result == EnrollmentResult.CREDIT_LIMIT_EXCEEDED) {
+            throw new MaxCreditLimitExceededException(studentId, calculateCurrentCredits(student), 
+                getMaxCredits(), courseCredits);
         }
         
-        // Enroll the student
-        student.enrollInCourse(courseCode);
         System.out.println("Student " + student.getName().getFullName() + 
             " enrolled in course " + courseCode);
     }
     
+    /**
+     * Validate and enroll without exceptions or console output
+     * Checks and enrollment happen under the student's lock, so two concurrent
+     * requests cannot both pass the duplicate or credit checks
+     * @param student student to enroll
+     * @param normalizedCode upper-case course code
+     * @param courseCredits course credits
+     * @param course course whose seat was already reserved by the caller, or null;
+     *               the seat is released again if the enrollment fails
+     * @return enrollment outcome
+     */
+    EnrollmentResult tryEnroll(Student student, String normalizedCode, int courseCredits, Course course) {
+        EnrollmentResult result = enrollLocked(student, normalizedCode, courseCredits, course);
+        if (result == EnrollmentResult.ENROLLED) {
+            mutationListener.sync(); // Outside the student's lock
+        }
+        return result;
+    }
+    
+    /**
+     * Like tryEnroll(), but without waiting for the mutation listener
+     * For batches: the caller calls syncAll() once after the last item
+     */
+    EnrollmentResult enrollLocked(Student student, String normalizedCode, int courseCredits, Course course) {
+        synchronized (student) {
+            EnrollmentResult failure = null;
+            
+            // Check the instance is still registered, then if already enrolled
+            if (!isCurrent(student)) {
+                failure = EnrollmentResult.STUDENT_NOT_FOUND; // Replaced by updateStudent() meanwhile
+            } else if (student.isEnrolledIn(normalizedCode)) {
+                failure = EnrollmentResult.ALREADY_ENROLLED;
+            } else if (calculateCurrentCredits(student) + courseCredits > getMaxCredits()) {
+                // Check credit limits
+                failure = EnrollmentResult.CREDIT_LIMIT_EXCEEDED;
+            }
+            
+            if (failure != null) {
+                if (course != null) {
+                    course.releaseSeat();
+                }
+                return failure;
+            }
+            
+            // Both sides are updated while the student is locked
+            if (course != null && !course.addReservedStudent(student.getId())) {
+                return EnrollmentResult.ALREADY_ENROLLED; // Seat already released by the course
+            }
+            student.enrollInCourse(normalizedCode, courseCredits);
+            index.addCourse(student, normalizedCode);
+            mutationListener.studentEnrolled(student.getId(), normalizedCode, courseCredits, course != null);
+            return EnrollmentResult.ENROLLED;
+        }
+    }
+    
+    /**
+     * Check that an instance is still the one registered under its ID
+     * Call with the student locked; updateStudent() swaps instances under both locks
+     */
+    private boolean isCurrent(Student student) {
+        return students.get(student.getId()) == student;
+    }
+    
+    /**
+     * Wait until all mutations reported so far are durable
+     */
+    void syncAll() {
+        mutationListener.syncAll();
+    }
+    
+    /**
+     * Remove a student from a course on both sides under the student's lock
+     * @param student enrolled student
+     * @param course course to leave
+     * @return true if the student was enrolled
+     */
+    boolean tryUnenroll(Student student, Course course) {
+        String normalizedCode = course.getCourseCode().getFullCode();
+        synchronized (student) {
+            if (!isCurrent(student) || !student.unenrollFromCourse(normalizedCode)) {
+                return false;
+            }
+            course.unenrollStudent(student.getId());
+            index.removeCourse(student, normalizedCode);
+            index.updateStanding(student);
+            gpaRanking.update(student); // A removed grade changes the GPA
+            mutationListener.studentUnenrolled(student.getId(), normalizedCode);
+        }
+        mutationListener.sync(); // Outside the student's lock
+        return true;
+    }
+    
+    /**
+     * Get the maximum credits a student may carry
+     * @return credit limit
+     */
+    private int getMaxCredits() {
+        return config.getMaxCoursesPerStudent() * CreditLedger.DEFAULT_COURSE_CREDITS; // Average-course credit budget
+    }
+    
     /**
      * Calculate current credits for a student
      * @param student student object
      * @return current credits
      */
     private int calculateCurrentCredits(Student student) {
-        // Simplified: assume each course is 3 credits
-        return student.getEnrolledCourses().size() * 3;
+        return student.getCurrentCredits(); // Maintained incrementally by the student's credit ledger
     }
     
     /**
@@ -145,34 +378,190 @@ public class StudentService implements Searchable<Student> {
      * @param marks marks obtained
      */
     public void recordStudentGrade(String studentId, String courseCode, double marks) {
+        requireWritable();
         Student student = findById(studentId);
         if (student == null) {
             throw new IllegalArgumentException("Student not found: " + studentId);
         }
         
         Grade grade = Grade.fromMarks(marks);
-        student.recordGrade(courseCode, grade);
+        synchronized (student) {
+            student.recordGrade(courseCode, grade);
+            index.updateStanding(student);
+            gpaRanking.update(student);
+            mutationListener.gradeRecorded(studentId, SymbolTable.normalizeCode(courseCode), grade);
+        }
+        mutationListener.sync();
         
         System.out.println(String.format("Grade recorded: %s - %s: %.2f (%s)", 
             student.getName().getFullName(), courseCode, marks, grade.getLetter()));
     }
     
+    /**
+     * Reapply a logged enrollment, without validation or console output
+     * Enrolling twice has no effect, so a mutation may be replayed more than once
+     * @param studentId student ID
+     * @param courseCode normalized course code
+     * @param courseCredits course credits
+     * @return false if the student does not exist
+     */
+    public boolean restoreEnrollment(String studentId, String courseCode, int courseCredits) {
+        requireWritable();
+        Student student = findById(studentId);
+        if (student == null) {
+            return false;
+        }
+        synchronized (student) {
+            student.enrollInCourse(courseCode, courseCredits);
+            index.addCourse(student, courseCode);
+        }
+        return true;
+    }
+    
+    /**
+     * Reapply a logged grade, without console output
+     * @param studentId student ID
+     * @param courseCode normalized course code
+     * @param grade recorded grade
+     * @return false if the student does not exist or is not enrolled in the course
+     */
+    public boolean restoreGrade(String studentId, String courseCode, Grade grade) {
+        requireWritable();
+        Student student = findById(studentId);
+        if (student == null) {
+            return false;
+        }
+        synchronized (student) {
+            if (!student.isEnrolledIn(courseCode)) {
+                return false;
+            }
+            student.recordGrade(courseCode, grade);
+            index.updateStanding(student);
+            gpaRanking.update(student);
+        }
+        return true;
+    }
+    
+    /**
+     * Reapply a logged unenrollment to the student, without console output
+     * @param studentId student ID
+     * @param courseCode normalized course code
+     * @return false if the student does not exist or is no longer enrolled
+     */
+    public boolean restoreUnenrollment(String studentId, String courseCode) {
+        requireWritable();
+        Student student = findById(studentId);
+        if (student == null) {
+            return false;
+        }
+        synchronized (student) {
+            if (!student.unenrollFromCourse(courseCode)) {
+                return false;
+            }
+            index.removeCourse(student, courseCode);
+            index.updateStanding(student);
+            gpaRanking.update(student);
+        }
+        return true;
+    }
+    
+    /**
+     * Reapply logged student details, without console output
+     * Overwrites the fields, so applying them twice has no further effect
+     * @param studentId student ID
+     * @param name student name
+     * @param email email address
+     * @param dateOfBirth date of birth
+     * @param department department name
+     * @param currentSemester current semester
+     * @return false if the student does not exist
+     */
+    public boolean restoreDetails(String studentId, Name name, String email, LocalDate dateOfBirth,
+                                  String department, int currentSemester) {
+        requireWritable();
+        Student student = findById(studentId);
+        if (student == null) {
+            return false;
+        }
+        synchronized (student) {
+            student.setName(name);
+            student.setEmail(email);
+            student.setDateOfBirth(dateOfBirth);
+            student.setDepartment(department); // Moves the student in the index
+            student.setCurrentSemester(currentSemester);
+        }
+        return true;
+    }
+    
+    /**
+     * Reapply a logged activation or deactivation, without auditing
+     * @param studentId student ID
+     * @param active new status
+     * @return false if the student does not exist
+     */
+    public boolean restoreActive(String studentId, boolean active) {
+        requireWritable();
+        Student student = findById(studentId);
+        if (student == null) {
+            return false;
+        }
+        synchronized (student) {
+            student.setActive(active);
+            index.updateActive(student);
+            gpaRanking.update(student);
+        }
+        return true;
+    }
+    
     // Searchable interface implementation
     @Override
     public List<Student> search(Predicate<Student> predicate) {
-        return students.values().stream()
+        if (store != null) {
+            return store.search(predicate);
+        }
+        return index.findAll().stream()
             .filter(predicate)
             .collect(Collectors.toList());
     }
     
+    /**
+     * Find students matching a bitmap query, in insertion order
+     * @param query combination of indexed conditions
+     * @return list of matching students
+     */
+    public List<Student> query(StudentQuery query) {
+        if (store != null) {
+            return store.search(query::matches); // No bitmap indexes over a store
+        }
+        return index.find(query);
+    }
+    
+    /**
+     * Count students matching a bitmap query without materializing them
+     * @param query combination of indexed conditions
+     * @return number of matching students
+     */
+    public int count(StudentQuery query) {
+        if (store != null) {
+            return store.search(query::matches).size();
+        }
+        return index.count(query);
+    }
+    
     @Override
     public Student findById(String id) {
+        if (store != null) {
+            return store.findById(id);
+        }
         return students.get(id);
     }
     
     @Override
     public List<Student> getAll() {
-        return new ArrayList<>(students.values());
+        if (store != null) {
+            return store.getAll();
+        }
+        return index.findAll();
     }
     
     /**
@@ -181,7 +570,10 @@ public class StudentService implements Searchable<Student> {
      * @return list of students in the department
      */
     public List<Student> findByDepartment(String department) {
-        return search(student -> student.getDepartment().equalsIgnoreCase(department));
+        if (store != null) {
+            return store.findByDepartment(department);
+        }
+        return index.findByDepartment(department);
     }
     
     /**
@@ -193,6 +585,19 @@ public class StudentService implements Searchable<Student> {
         return search(student -> student.getRegistrationNumber().contains(pattern));
     }
     
+    /**
+     * Find students whose registration number starts with a prefix
+     * Answered from the registration number trie instead of a full scan
+     * @param prefix registration number prefix (e.g., "2023CS")
+     * @return list of matching students
+     */
+    public List<Student> findByRegistrationPrefix(String prefix) {
+        if (store != null) {
+            return store.search(student -> student.getRegistrationNumber().startsWith(prefix));
+        }
+        return index.findByRegistrationPrefix(prefix);
+    }
+    
     /**
      * Find students by GPA range
      * @param minGPA minimum GPA
@@ -200,6 +605,9 @@ public class StudentService implements Searchable<Student> {
      * @return list of students in GPA range
      */
     public List<Student> findByGPARange(double minGPA, double maxGPA) {
+        if (store != null) {
+            return store.findByGPARange(minGPA, maxGPA);
+        }
         return search(student -> {
             double gpa = student.calculateGPA();
             return gpa >= minGPA && gpa <= maxGPA;
@@ -211,7 +619,7 @@ public class StudentService implements Searchable<Student> {
      * @return list of students in good standing
      */
     public List<Student> findStudentsInGoodStanding() {
-        return search(Student::isInGoodStanding);
+        return query(StudentQuery.inGoodStanding());
     }
     
     /**
@@ -219,7 +627,10 @@ public class StudentService implements Searchable<Student> {
      * @return list of active students
      */
     public List<Student> findActiveStudents() {
-        return search(Student::isActive);
+        if (store != null) {
+            return store.findActiveStudents();
+        }
+        return index.findActive();
     }
     
     /**
@@ -228,11 +639,22 @@ public class StudentService implements Searchable<Student> {
      * @return list of top students sorted by GPA descending
      */
     public List<Student> getTopStudentsByGPA(int limit) {
-        return students.values().stream()
-            .filter(Student::isActive)
-            .sorted((s1, s2) -> Double.compare(s2.calculateGPA(), s1.calculateGPA()))
-            .limit(limit)
-            .collect(Collectors.toList());
+        if (store != null) {
+            return store.getTopStudentsByGPA(limit);
+        }
+        return gpaRanking.top(limit);
+    }
+    
+    /**
+     * Get top students by GPA among those matching a filter
+     * Uses a bounded heap, so only the top entries are ever kept in order
+     * @param limit number of top students to return
+     * @param filter condition students must satisfy
+     * @return list of matching students sorted by GPA descending
+     */
+    public List<Student> getTopStudentsByGPA(int limit, Predicate<Student> filter) {
+        return GpaRanking.selectTop(search(filter), limit, 
+            Comparator.comparingDouble(Student::calculateGPA));
     }
     
     /**
@@ -241,7 +663,10 @@ public class StudentService implements Searchable<Student> {
      * @return list of students enrolled in the course
      */
     public List<Student> getStudentsInCourse(String courseCode) {
-        return search(student -> student.getEnrolledCourses().contains(courseCode.toUpperCase()));
+        if (store != null) {
+            return query(StudentQuery.enrolledIn(courseCode));
+        }
+        return index.findByCourse(courseCode);
     }
     
     /**
@@ -249,6 +674,9 @@ public class StudentService implements Searchable<Student> {
      * @return map of department -> student count
      */
     public Map<String, Long> getDepartmentWiseCount() {
+        if (store != null) {
+            return store.getDepartmentWiseCount();
+        }
         return students.values().stream()
             .filter(Student::isActive)
             .collect(Collectors.groupingBy(
@@ -262,8 +690,9 @@ public class StudentService implements Searchable<Student> {
      * @return map of GPA ranges -> student count
      */
     public Map<String, Long> getGPADistribution() {
-        return students.values().stream()
-            .filter(Student::isActive)
+        Stream<Student> active = store != null ? store.findActiveStudents().stream()
+            : students.values().stream().filter(Student::isActive);
+        return active
             .collect(Collectors.groupingBy(
                 student -> {
                     double gpa = student.calculateGPA();
@@ -283,6 +712,9 @@ public class StudentService implements Searchable<Student> {
      * @return average GPA
      */
     public double calculateAverageGPA() {
+        if (store != null) {
+            return store.calculateAverageGPA();
+        }
         return students.values().stream()
             .filter(Student::isActive)
             .mapToDouble(Student::calculateGPA)
@@ -299,9 +731,9 @@ public class StudentService implements Searchable<Student> {
         summary.append("Student Statistics Summary\n");
         summary.append("=".repeat(40)).append("\n");
         
-        long totalStudents = students.size();
-        long activeStudents = count(Student::isActive);
-        long studentsInGoodStanding = count(Student::isInGoodStanding);
+        long totalStudents = getTotalCount();
+        long activeStudents = store != null ? store.countActive() : index.countActive();
+        long studentsInGoodStanding = count(StudentQuery.inGoodStanding());
         double avgGPA = calculateAverageGPA();
         
         summary.append(String.format("Total Students: %d\n", totalStudents));
@@ -345,22 +777,43 @@ public class StudentService implements Searchable<Student> {
      * @return number of students affected
      */
     public int bulkUpdateStudentStatus(String department, boolean active) {
+        requireWritable();
         List<Student> departmentStudents = findByDepartment(department);
         
         departmentStudents.forEach(student -> {
-            student.setActive(active);
-            student.addAuditEntry(active ? "Bulk activated" : "Bulk deactivated");
+            synchronized (student) {
+                student.setActive(active);
+                index.updateActive(student);
+                gpaRanking.update(student);
+                mutationListener.studentActiveChanged(student.getId(), active);
+                student.addAuditEvent(active ? AuditEvent.BULK_ACTIVATED : AuditEvent.BULK_DEACTIVATED);
+            }
         });
         
+        if (!departmentStudents.isEmpty()) {
+            mutationListener.sync(); // One wait for the whole department
+        }
         return departmentStudents.size();
     }
     
+    /**
+     * Write all students to a memory-mapped, read-only store
+     * For read-mostly workloads over very large populations: the store keeps
+     * only hot fields on the heap and materializes students on demand
+     * @param storePath store file
+     * @return the opened store
+     * @throws IOException if writing fails
+     */
+    public MappedStudentStore createMappedStore(Path storePath) throws IOException {
+        return MappedStudentStore.write(storePath, getAll());
+    }
+
     /**
      * Get total number of students
      * @return total student count
      */
     public int getTotalCount() {
-        return students.size();
+        return store != null ? store.size() : students.size();
     }
     
     /**
@@ -369,6 +822,6 @@ public class StudentService implements Searchable<Student> {
      * @return true if student exists
      */
     public boolean studentExists(String studentId) {
-        return students.containsKey(studentId);
+        return store != null ? store.contains(studentId) : students.containsKey(studentId);
     }
 }
\ No newline at end of file
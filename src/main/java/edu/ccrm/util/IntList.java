@@ -0,0 +1,82 @@
+package edu.ccrm.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints
+ * Avoids the boxing and per-entry overhead of List&lt;Integer&gt; for large indexes
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructor with default capacity
+     */
+    public IntList() {
+        this(8);
+    }
+
+    /**
+     * Constructor with initial capacity
+     * @param initialCapacity initial number of slots
+     */
+    public IntList(int initialCapacity) {
+        this.values = new int[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Append a value
+     * @param value value to append
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Get value at position
+     * @param index position
+     * @return value
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Remove the first occurrence of a value, shifting later values left
+     * @param value value to remove
+     * @return true if the value was found
+     */
+    public boolean removeValue(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                System.arraycopy(values, i + 1, values, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy the values into a new array
+     * @return array of exactly size() elements
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
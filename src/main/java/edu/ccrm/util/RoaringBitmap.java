@@ -0,0 +1,634 @@
+package edu.ccrm.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitmap of non-negative ints, in the style of Roaring bitmaps
+ * Values are split by their upper 16 bits into chunks of 65536. A chunk
+ * with at most 4096 values is a sorted char array (2 bytes per value), a
+ * denser one is a plain 8 KB bit array. AND, OR and AND NOT work chunk by
+ * chunk, so sparse and dense sets both combine in time proportional to
+ * their compressed size, and counts need no result bitmap at all
+ * Not thread-safe: owners guard mutation with their own lock; the results
+ * of and(), or() and andNot() are new bitmaps that share nothing
+ */
+public final class RoaringBitmap {
+    private static final int ARRAY_LIMIT = 4096; // Largest array chunk; a bit array is smaller beyond it
+    private static final int WORDS = 1024; // 65536 bits per bit array chunk
+
+    private char[] keys; // Upper 16 bits of each chunk, ascending
+    private Chunk[] chunks;
+    private int size; // Number of chunks
+
+    /**
+     * Constructor for an empty bitmap
+     */
+    public RoaringBitmap() {
+        this(0);
+    }
+
+    private RoaringBitmap(int capacity) {
+        this.keys = new char[capacity];
+        this.chunks = new Chunk[capacity];
+    }
+
+    /**
+     * Add a value
+     * @param value non-negative value
+     * @return true if the value was not present
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new ArrayChunk());
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunks[index] = chunk.add((char) value);
+        return chunks[index].cardinality() > before;
+    }
+
+    /**
+     * Remove a value
+     * @param value value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        int index = value >= 0 ? indexOf((char) (value >>> 16)) : -1;
+        if (index < 0) {
+            return false;
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunk = chunk.remove((char) value);
+        if (chunk.cardinality() == 0) {
+            removeChunk(index);
+        } else {
+            chunks[index] = chunk;
+        }
+        return chunk.cardinality() < before;
+    }
+
+    /**
+     * Check for a value
+     * @param value value to look for
+     * @return true if present
+     */
+    public boolean contains(int value) {
+        int index = value >= 0 ? indexOf((char) (value >>> 16)) : -1;
+        return index >= 0 && chunks[index].contains((char) value);
+    }
+
+    /**
+     * Count the values
+     * @return number of values
+     */
+    public int cardinality() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += chunks[i].cardinality();
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Intersect with another bitmap
+     * @param other other bitmap
+     * @return new bitmap of values in both
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendChunk(keys[i], chunks[i].and(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the intersection with another bitmap without building it
+     * @param other other bitmap
+     * @return number of values in both
+     */
+    public int andCardinality(RoaringBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += chunks[i].andCardinality(other.chunks[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Unite with another bitmap
+     * @param other other bitmap
+     * @return new bitmap of values in either
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || i < size && keys[i] < other.keys[j]) {
+                result.appendChunk(keys[i], chunks[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], other.chunks[j].copy());
+                j++;
+            } else {
+                result.appendChunk(keys[i], chunks[i].or(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove the values of another bitmap
+     * @param other values to exclude
+     * @return new bitmap of values in this one but not in other
+     */
+    public RoaringBitmap andNot(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendChunk(keys[i], chunks[i].andNot(other.chunks[j]));
+            } else {
+                result.appendChunk(keys[i], chunks[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visit the values in ascending order
+     * @param action called with each value
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Copy the values
+     * @return values in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] next = new int[1];
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Get the approximate heap footprint
+     * @return bytes used by the chunks and their directory
+     */
+    public long getSizeInBytes() {
+        long bytes = 16 + keys.length * 2L + chunks.length * 4L;
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertChunk(int index, char key, Chunk chunk) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+        chunks[--size] = null;
+    }
+
+    /**
+     * Append a result chunk in key order, dropping empty ones
+     */
+    private void appendChunk(char key, Chunk chunk) {
+        if (chunk.cardinality() > 0) {
+            insertChunk(size, key, chunk);
+        }
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Bitmap values must not be negative: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RoaringBitmap{cardinality=" + cardinality() + ", chunks=" + size + "}";
+    }
+
+    /**
+     * Values sharing the upper 16 bits
+     * Mutators return the chunk to keep, which changes representation
+     * when the cardinality crosses ARRAY_LIMIT
+     */
+    private abstract static class Chunk {
+        abstract Chunk add(char value);
+        abstract Chunk remove(char value);
+        abstract boolean contains(char value);
+        abstract int cardinality();
+        abstract Chunk and(Chunk other);
+        abstract int andCardinality(Chunk other);
+        abstract Chunk or(Chunk other);
+        abstract Chunk andNot(Chunk other);
+        abstract Chunk copy();
+        abstract void forEach(int high, IntConsumer action);
+        abstract long sizeInBytes();
+    }
+
+    /**
+     * Sparse chunk: sorted array of the lower 16 bits
+     */
+    private static final class ArrayChunk extends Chunk {
+        private char[] values;
+        private int cardinality;
+
+        ArrayChunk() {
+            this(new char[4], 0);
+        }
+
+        ArrayChunk(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Chunk add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitChunk().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Chunk remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof BitChunk) {
+                BitChunk bits = (BitChunk) other;
+                for (int i = 0; i < cardinality; i++) {
+                    if (bits.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            } else {
+                ArrayChunk array = (ArrayChunk) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new ArrayChunk(result, count);
+        }
+
+        @Override
+        int andCardinality(Chunk other) {
+            int count = 0;
+            if (other instanceof BitChunk) {
+                BitChunk bits = (BitChunk) other;
+                for (int i = 0; i < cardinality; i++) {
+                    if (bits.contains(values[i])) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            if (other instanceof BitChunk) {
+                return other.or(this);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            if (cardinality + array.cardinality > ARRAY_LIMIT) {
+                return toBitChunk().or(array);
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || i < cardinality && values[i] < array.values[j]) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayChunk(result, count);
+        }
+
+        @Override
+        Chunk andNot(Chunk other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) { // Binary search or bit test; the array is small
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayChunk(result, count);
+        }
+
+        @Override
+        Chunk copy() {
+            return new ArrayChunk(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + values.length * 2L;
+        }
+
+        BitChunk toBitChunk() {
+            BitChunk bits = new BitChunk();
+            for (int i = 0; i < cardinality; i++) {
+                bits.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bits.cardinality = cardinality;
+            return bits;
+        }
+    }
+
+    /**
+     * Dense chunk: 65536 bits
+     */
+    private static final class BitChunk extends Chunk {
+        private final long[] words;
+        private int cardinality;
+
+        BitChunk() {
+            this.words = new long[WORDS];
+        }
+
+        private BitChunk(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Chunk add(char value) {
+            long before = words[value >>> 6];
+            long after = before | 1L << value;
+            if (after != before) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            if (after != before) {
+                words[value >>> 6] = after;
+                cardinality--;
+                if (cardinality <= ARRAY_LIMIT) {
+                    return toArrayChunk();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitChunk) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return fromWords(result, count);
+        }
+
+        @Override
+        int andCardinality(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.andCardinality(this);
+            }
+            long[] otherWords = ((BitChunk) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                count += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return count;
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            long[] result = words.clone();
+            int count;
+            if (other instanceof ArrayChunk) {
+                ArrayChunk array = (ArrayChunk) other;
+                count = cardinality;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    long before = result[value >>> 6];
+                    result[value >>> 6] = before | 1L << value;
+                    count += result[value >>> 6] != before ? 1 : 0;
+                }
+            } else {
+                long[] otherWords = ((BitChunk) other).words;
+                count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] |= otherWords[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+            return new BitChunk(result, count);
+        }
+
+        @Override
+        Chunk andNot(Chunk other) {
+            long[] result = words.clone();
+            int count;
+            if (other instanceof ArrayChunk) {
+                ArrayChunk array = (ArrayChunk) other;
+                count = cardinality;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    long before = result[value >>> 6];
+                    result[value >>> 6] = before & ~(1L << value);
+                    count -= result[value >>> 6] != before ? 1 : 0;
+                }
+            } else {
+                long[] otherWords = ((BitChunk) other).words;
+                count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] &= ~otherWords[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+            return fromWords(result, count);
+        }
+
+        @Override
+        Chunk copy() {
+            return new BitChunk(words.clone(), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + WORDS * 8L;
+        }
+
+        private static Chunk fromWords(long[] words, int cardinality) {
+            BitChunk bits = new BitChunk(words, cardinality);
+            return cardinality <= ARRAY_LIMIT ? bits.toArrayChunk() : bits;
+        }
+
+        ArrayChunk toArrayChunk() {
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayChunk(values, count);
+        }
+    }
+}